@@ -38,6 +38,10 @@ public abstract class Bundle {
 
     public abstract boolean isEncryptionEnabled();
 
+    public boolean isCompleted() {
+        return getStatus().isCompleted(isEncryptionEnabled());
+    }
+
     public static Bundle create(UUID id, ApplicationContext applicationContext, BundleStatus status, String xRequestId, DateTime messageTimestamp, boolean encryptionEnabled) {
         return new AutoValue_Bundle(id, applicationContext, status, xRequestId, messageTimestamp, encryptionEnabled);
     }
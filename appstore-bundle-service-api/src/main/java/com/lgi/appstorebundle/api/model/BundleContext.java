@@ -29,7 +29,9 @@ public abstract class BundleContext {
 
     public abstract boolean getEncrypt();
 
-    public static BundleContext create(Bundle bundle, String ociImageUrl, boolean encrypt) {
-        return new AutoValue_BundleContext(bundle, ociImageUrl, encrypt);
+    public abstract String getMaintainerCode();
+
+    public static BundleContext create(Bundle bundle, String ociImageUrl, boolean encrypt, String maintainerCode) {
+        return new AutoValue_BundleContext(bundle, ociImageUrl, encrypt, maintainerCode);
     }
 }
@@ -0,0 +1,50 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.api.model;
+
+import com.google.auto.value.AutoValue;
+import org.joda.time.DateTime;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Selects bundles by status, application, platform, firmware version and creation time. Empty statuses and absent
+ * values match every bundle; the creation time range includes {@code createdFrom} and excludes {@code createdTo}.
+ */
+@AutoValue
+public abstract class BundleFilter {
+
+    public abstract Set<BundleStatus> getStatuses();
+
+    public abstract Optional<String> getApplicationId();
+
+    public abstract Optional<String> getPlatformName();
+
+    public abstract Optional<String> getFirmwareVersion();
+
+    public abstract Optional<DateTime> getCreatedFrom();
+
+    public abstract Optional<DateTime> getCreatedTo();
+
+    public static BundleFilter create(Set<BundleStatus> statuses, Optional<String> applicationId, Optional<String> platformName,
+                                      Optional<String> firmwareVersion, Optional<DateTime> createdFrom, Optional<DateTime> createdTo) {
+        return new AutoValue_BundleFilter(Set.copyOf(statuses), applicationId, platformName, firmwareVersion, createdFrom, createdTo);
+    }
+}
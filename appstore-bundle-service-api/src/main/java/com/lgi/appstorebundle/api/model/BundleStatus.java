@@ -22,6 +22,7 @@ import java.util.Optional;
 
 public enum BundleStatus {
 
+    GENERATION_QUEUED,
     GENERATION_REQUESTED,
     GENERATION_LAUNCHED,
     GENERATION_COMPLETED,
@@ -30,6 +31,14 @@ public enum BundleStatus {
     ENCRYPTION_COMPLETED,
     BUNDLE_ERROR;
 
+    /**
+     * Whether a bundle in this status is ready to be downloaded. Bundles that are not encrypted are ready as soon as
+     * they are generated.
+     */
+    public boolean isCompleted(boolean encryptionEnabled) {
+        return this == ENCRYPTION_COMPLETED || (this == GENERATION_COMPLETED && !encryptionEnabled);
+    }
+
     public static Optional<BundleStatus> of(String status) {
         try {
             return Optional.of(valueOf(status));
@@ -0,0 +1,60 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.api.model;
+
+import com.google.auto.value.AutoValue;
+import org.joda.time.DateTime;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Stored progress of a prewarm job, i.e. of pre-generating the bundles of a list of applications for one platform and
+ * firmware version.
+ */
+@AutoValue
+public abstract class PrewarmJobState {
+
+    public abstract UUID getId();
+
+    public abstract String getPlatformName();
+
+    public abstract String getFirmwareVersion();
+
+    public abstract List<ApplicationContext> getApplicationContexts();
+
+    public abstract int getSkipped();
+
+    public abstract int getQueued();
+
+    public abstract int getNotFound();
+
+    public abstract int getFailed();
+
+    public abstract DateTime getStartedAt();
+
+    public abstract Optional<DateTime> getFinishedAt();
+
+    public static PrewarmJobState create(UUID id, String platformName, String firmwareVersion, List<ApplicationContext> applicationContexts,
+                                         int skipped, int queued, int notFound, int failed, DateTime startedAt, Optional<DateTime> finishedAt) {
+        return new AutoValue_PrewarmJobState(id, platformName, firmwareVersion, List.copyOf(applicationContexts), skipped, queued, notFound, failed,
+                startedAt, finishedAt);
+    }
+}
@@ -25,14 +25,20 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import com.lgi.appstorebundle.api.Environment;
+import com.lgi.appstorebundle.common.r4j.AdaptiveLimiter;
 import com.lgi.appstorebundle.common.r4j.AsmsClientInvoker;
 import com.lgi.appstorebundle.common.r4j.ClientInvokerFactory;
 import com.lgi.appstorebundle.external.asms.AppstoreMetadataServiceClient;
+import com.lgi.appstorebundle.external.asms.configuration.AsmsAdaptiveLimitConfiguration;
 import com.lgi.appstorebundle.external.asms.configuration.AsmsBulkheadConfiguration;
 import com.lgi.appstorebundle.external.asms.configuration.AsmsCircuitBreakerConfiguration;
+import com.lgi.appstorebundle.external.asms.configuration.AsmsHedgingConfiguration;
 import com.lgi.appstorebundle.model.EncryptionMessageFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -43,12 +49,24 @@ import javax.validation.constraints.NotNull;
 @Configuration
 public class AppStoreBundleServiceConfiguration {
 
+    private static final String ASMS_CONCURRENCY_LIMIT_METRIC = "asms.concurrency.limit";
+
     @Autowired
     private AsmsCircuitBreakerConfiguration asmsCircuitBreakerConfiguration;
 
     @Autowired
     private AsmsBulkheadConfiguration asmsBulkheadConfiguration;
 
+    @Autowired
+    private AsmsAdaptiveLimitConfiguration asmsAdaptiveLimitConfiguration;
+
+    @Autowired
+    private AsmsHedgingConfiguration asmsHedgingConfiguration;
+
+    /**
+     * Shared by the REST endpoints, the AMQP messages and the ASMS client. Blackbird replaces the reflective property
+     * accessors with generated lambdas.
+     */
     @Bean
     public ObjectMapper objectMapper() {
         return new ObjectMapper()
@@ -56,6 +74,7 @@ public class AppStoreBundleServiceConfiguration {
                 .registerModule(new Jdk8Module())
                 .registerModule(new JavaTimeModule())
                 .registerModule(new ParameterNamesModule())
+                .registerModule(new BlackbirdModule())
                 .setSerializationInclusion(JsonInclude.Include.NON_ABSENT)
                 .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
                 .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
@@ -66,10 +85,25 @@ public class AppStoreBundleServiceConfiguration {
         return ClientInvokerFactory.createClientInvoker(
                 asmsCircuitBreakerConfiguration,
                 asmsBulkheadConfiguration,
+                asmsAdaptiveLimitConfiguration,
+                asmsHedgingConfiguration,
                 AppstoreMetadataServiceClient.class
         );
     }
 
+    /**
+     * The max concurrent ASMS calls, which changes over time when the adaptive limit is enabled.
+     */
+    @Bean
+    public MeterBinder asmsConcurrencyLimitMetrics(AsmsClientInvoker asmsClientInvoker) {
+        return meterRegistry -> asmsClientInvoker.getAdaptiveLimiter().ifPresentOrElse(
+                adaptiveLimiter -> Gauge.builder(ASMS_CONCURRENCY_LIMIT_METRIC, adaptiveLimiter, AdaptiveLimiter::getLimit)
+                        .register(meterRegistry),
+                () -> asmsClientInvoker.getBulkhead().ifPresent(bulkhead ->
+                        Gauge.builder(ASMS_CONCURRENCY_LIMIT_METRIC, bulkhead, bh -> bh.getMetrics().getMaxAllowedConcurrentCalls())
+                                .register(meterRegistry)));
+    }
+
     @Bean
     public EncryptionMessageFactory encryptionMessageFactory(@Value("${environment}") Environment environment,
                                                              @Value("${bundle.extension}") @NotNull String bundleExtension) {
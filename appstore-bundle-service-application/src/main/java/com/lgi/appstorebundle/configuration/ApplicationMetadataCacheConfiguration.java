@@ -0,0 +1,77 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+@Configuration
+public class ApplicationMetadataCacheConfiguration {
+
+    @Value("${asms.cache.maximumSize}")
+    @NotNull
+    private Long maximumSize;
+
+    @Value("${asms.cache.expireAfterWrite}")
+    @NotNull
+    private Duration expireAfterWrite;
+
+    @Value("${asms.cache.notFoundExpireAfterWrite}")
+    @NotNull
+    private Duration notFoundExpireAfterWrite;
+
+    @Value("${asms.cache.refreshAfterWrite}")
+    @NotNull
+    private Duration refreshAfterWrite;
+
+    @Value("${asms.cache.lastKnownGood.maximumSize}")
+    @NotNull
+    private Long lastKnownGoodMaximumSize;
+
+    @Value("${asms.cache.lastKnownGood.expireAfterWrite}")
+    @NotNull
+    private Duration lastKnownGoodExpireAfterWrite;
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public Duration getNotFoundExpireAfterWrite() {
+        return notFoundExpireAfterWrite;
+    }
+
+    public Duration getRefreshAfterWrite() {
+        return refreshAfterWrite;
+    }
+
+    public long getLastKnownGoodMaximumSize() {
+        return lastKnownGoodMaximumSize;
+    }
+
+    public Duration getLastKnownGoodExpireAfterWrite() {
+        return lastKnownGoodExpireAfterWrite;
+    }
+}
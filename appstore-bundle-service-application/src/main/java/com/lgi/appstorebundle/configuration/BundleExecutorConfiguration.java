@@ -0,0 +1,80 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.configuration;
+
+import com.lgi.appstorebundle.common.VirtualThreads;
+import com.lgi.appstorebundle.util.ConcurrencyLimitedTaskExecutor;
+import com.lgi.appstorebundle.util.MdcTaskDecorator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadFactory;
+
+@Configuration
+public class BundleExecutorConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BundleExecutorConfiguration.class);
+
+    public static final String BUNDLE_EXECUTOR = "bundleExecutor";
+    private static final String THREAD_NAME_PREFIX = "bundle-executor-";
+
+    @Bean(name = BUNDLE_EXECUTOR)
+    public TaskExecutor bundleExecutor(@Value("${virtual.threads.enabled}") boolean virtualThreadsEnabled,
+                                       @Value("${bundle.executor.poolSize}") int poolSize,
+                                       @Value("${bundle.executor.queueCapacity}") int queueCapacity,
+                                       @Value("${bundle.executor.virtualThreads.concurrencyLimit}") int virtualThreadsConcurrencyLimit) {
+        if (virtualThreadsEnabled) {
+            LOG.info("Bundle executor uses virtual threads with concurrency limit: '{}'.", virtualThreadsConcurrencyLimit);
+            return virtualThreadExecutor(VirtualThreads.threadFactory(THREAD_NAME_PREFIX), virtualThreadsConcurrencyLimit);
+        }
+        return threadPoolExecutor(poolSize, queueCapacity);
+    }
+
+    /**
+     * The concurrency limit of {@link SimpleAsyncTaskExecutor} blocks the submitting thread at the limit, so the limit is
+     * enforced by rejecting tasks instead, which is answered with 503.
+     */
+    private static TaskExecutor virtualThreadExecutor(ThreadFactory threadFactory, int concurrencyLimit) {
+        final SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadFactory);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        return new ConcurrencyLimitedTaskExecutor(executor, concurrencyLimit);
+    }
+
+    /**
+     * A thread pool only grows past its core size once its queue is full, so the core size is the max size and idle
+     * threads time out instead. The steps block on the database, ASMS and RabbitMQ, so the pool is sized like the
+     * Tomcat pool that used to run them.
+     */
+    private static TaskExecutor threadPoolExecutor(int poolSize, int queueCapacity) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        return executor;
+    }
+}
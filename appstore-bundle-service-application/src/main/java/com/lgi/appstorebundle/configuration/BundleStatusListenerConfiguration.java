@@ -0,0 +1,43 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.configuration;
+
+import com.lgi.appstorebundle.service.BundleStatusSubscriptions;
+import com.lgi.appstorebundle.storage.persistent.PostgresBundleStatusListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class BundleStatusListenerConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public PostgresBundleStatusListener bundleStatusListener(@Value("${spring.datasource.hikari.write.jdbcUrl}") String jdbcUrl,
+                                                             @Value("${spring.datasource.hikari.write.username}") String username,
+                                                             @Value("${spring.datasource.hikari.write.password}") String password,
+                                                             @Value("${bundle.status.listener.reconnectDelay}") Duration reconnectDelay,
+                                                             @Value("${bundle.status.listener.socketTimeout}") Duration socketTimeout,
+                                                             @Value("${bundle.status.listener.validationInterval}") Duration validationInterval,
+                                                             BundleStatusSubscriptions bundleStatusSubscriptions) {
+        return new PostgresBundleStatusListener(jdbcUrl, username, password, reconnectDelay, socketTimeout, validationInterval,
+                bundleStatusSubscriptions::publish);
+    }
+}
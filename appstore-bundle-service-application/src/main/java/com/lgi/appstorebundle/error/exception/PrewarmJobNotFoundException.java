@@ -0,0 +1,34 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.error.exception;
+
+import java.util.UUID;
+
+public class PrewarmJobNotFoundException extends RuntimeException {
+
+    public static final String PREWARM_JOB_NOT_FOUND = "Prewarm job id: '%s' not found";
+
+    public PrewarmJobNotFoundException(String message) {
+        super(message);
+    }
+
+    public static PrewarmJobNotFoundException createDefault(UUID id) {
+        return new PrewarmJobNotFoundException(String.format(PREWARM_JOB_NOT_FOUND, id));
+    }
+}
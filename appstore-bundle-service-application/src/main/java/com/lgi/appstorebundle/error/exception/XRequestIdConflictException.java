@@ -0,0 +1,39 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.error.exception;
+
+import java.util.UUID;
+
+public class XRequestIdConflictException extends RuntimeException {
+
+    public static final String OTHER_APPLICATION = "x-request-id: '%s' was already used for bundle id: '%s' of another application";
+    public static final String FAILED_BUNDLE = "x-request-id: '%s' was already used for bundle id: '%s' whose generation failed";
+
+    public XRequestIdConflictException(String message) {
+        super(message);
+    }
+
+    public static XRequestIdConflictException otherApplication(String xRequestId, UUID bundleId) {
+        return new XRequestIdConflictException(String.format(OTHER_APPLICATION, xRequestId, bundleId));
+    }
+
+    public static XRequestIdConflictException failedBundle(String xRequestId, UUID bundleId) {
+        return new XRequestIdConflictException(String.format(FAILED_BUNDLE, xRequestId, bundleId));
+    }
+}
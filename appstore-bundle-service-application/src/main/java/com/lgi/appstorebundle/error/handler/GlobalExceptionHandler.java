@@ -19,6 +19,12 @@
 package com.lgi.appstorebundle.error.handler;
 
 import com.lgi.appstorebundle.error.exception.ApplicationNotFoundException;
+import com.lgi.appstorebundle.error.exception.BundleNotFoundException;
+import com.lgi.appstorebundle.error.exception.InvalidCursorException;
+import com.lgi.appstorebundle.error.exception.InvalidPrewarmRequestException;
+import com.lgi.appstorebundle.error.exception.PrewarmJobNotFoundException;
+import com.lgi.appstorebundle.error.exception.ServiceOverloadedException;
+import com.lgi.appstorebundle.error.exception.XRequestIdConflictException;
 import com.lgi.appstorebundle.exception.RabbitMQException;
 import com.lgi.appstorebundle.model.ErrorResponse;
 import com.lgi.appstorebundle.model.ErrorResponseError;
@@ -33,6 +39,8 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.util.concurrent.RejectedExecutionException;
+
 import static com.lgi.appstorebundle.filters.CorrelationIdFilter.X_REQUEST_ID_HEADER_NAME;
 
 @RestControllerAdvice
@@ -40,6 +48,12 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(GlobalExceptionHandler.class);
     private static final String APP_NOT_FOUND_MESSAGE = "Application not found!";
+    private static final String BUNDLE_NOT_FOUND_MESSAGE = "Bundle not found!";
+    private static final String PREWARM_JOB_NOT_FOUND_MESSAGE = "Prewarm job not found!";
+    private static final String INVALID_PREWARM_REQUEST_MESSAGE = "Invalid prewarm request!";
+    private static final String INVALID_CURSOR_MESSAGE = "Invalid bundle search cursor!";
+    private static final String SERVICE_OVERLOADED_MESSAGE = "Service overloaded, try again later!";
+    private static final String X_REQUEST_ID_CONFLICT_MESSAGE = "x-request-id already used, retry with a new one!";
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleAll(Exception ex, WebRequest request) {
@@ -51,12 +65,49 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return handleGenericResponse(ex, HttpStatus.NOT_FOUND, request, APP_NOT_FOUND_MESSAGE);
     }
 
+    @ExceptionHandler(BundleNotFoundException.class)
+    public ResponseEntity<Object> handleBundleNotFound(Exception ex, WebRequest request) {
+        return handleGenericResponse(ex, HttpStatus.NOT_FOUND, request, BUNDLE_NOT_FOUND_MESSAGE);
+    }
+
+    @ExceptionHandler(PrewarmJobNotFoundException.class)
+    public ResponseEntity<Object> handlePrewarmJobNotFound(Exception ex, WebRequest request) {
+        return handleGenericResponse(ex, HttpStatus.NOT_FOUND, request, PREWARM_JOB_NOT_FOUND_MESSAGE);
+    }
+
+    @ExceptionHandler(InvalidPrewarmRequestException.class)
+    public ResponseEntity<Object> handleInvalidPrewarmRequest(Exception ex, WebRequest request) {
+        return handleGenericResponse(ex, HttpStatus.BAD_REQUEST, request, INVALID_PREWARM_REQUEST_MESSAGE);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Object> handleInvalidCursor(Exception ex, WebRequest request) {
+        return handleGenericResponse(ex, HttpStatus.BAD_REQUEST, request, INVALID_CURSOR_MESSAGE);
+    }
+
+    @ExceptionHandler(XRequestIdConflictException.class)
+    public ResponseEntity<Object> handleXRequestIdConflict(Exception ex, WebRequest request) {
+        return handleGenericResponse(ex, HttpStatus.CONFLICT, request, X_REQUEST_ID_CONFLICT_MESSAGE);
+    }
+
     @ExceptionHandler(RabbitMQException.class)
     public ResponseEntity<Object> handleRabbitMQException(Exception ex, WebRequest request) {
         LOG.error("RabbitMQException message: {}", ex.getMessage());
         return handleGenericResponse(ex, HttpStatus.INTERNAL_SERVER_ERROR, request, ex.getMessage());
     }
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Object> handleRejectedExecution(Exception ex, WebRequest request) {
+        return handleGenericResponse(ex, HttpStatus.SERVICE_UNAVAILABLE, request, SERVICE_OVERLOADED_MESSAGE);
+    }
+
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<Object> handleServiceOverloaded(ServiceOverloadedException ex, WebRequest request) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()));
+        return handleGenericResponse(ex, headers, HttpStatus.SERVICE_UNAVAILABLE, request, SERVICE_OVERLOADED_MESSAGE);
+    }
+
     private ResponseEntity<Object> handleGenericResponse(Exception ex,
                                                          HttpStatus httpStatus,
                                                          WebRequest webRequest,
@@ -18,42 +18,76 @@
  */
 package com.lgi.appstorebundle.resources;
 
+import com.google.auto.value.AutoValue;
 import com.lgi.appstorebundle.api.ApplicationParams;
 import com.lgi.appstorebundle.api.model.ApplicationContext;
 import com.lgi.appstorebundle.api.model.Bundle;
 import com.lgi.appstorebundle.api.model.BundleContext;
 import com.lgi.appstorebundle.error.exception.ApplicationNotFoundException;
-import com.lgi.appstorebundle.external.asms.model.ApplicationMetadata;
 import com.lgi.appstorebundle.external.asms.model.ApplicationMetadataForMaintainer;
+import com.lgi.appstorebundle.model.BatchBundleRequest;
+import com.lgi.appstorebundle.model.BatchBundleResponse;
+import com.lgi.appstorebundle.model.BatchBundleResponseItem;
+import com.lgi.appstorebundle.model.BundleLocationResponse;
+import com.lgi.appstorebundle.service.AdmissionControl;
 import com.lgi.appstorebundle.service.ApplicationMetadataService;
 import com.lgi.appstorebundle.service.BundleService;
+import com.lgi.appstorebundle.service.IdempotencyService;
+import com.lgi.appstorebundle.service.RetryAfterEstimator;
+import com.lgi.appstorebundle.util.BoundedParallelism;
+import com.lgi.appstorebundle.util.BundleLocations;
 import com.lgi.appstorebundle.util.EncryptionHelper;
+import com.lgi.appstorebundle.util.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
-import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.lgi.appstorebundle.api.model.BundleStatus.BUNDLE_ERROR;
 import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
 import static com.lgi.appstorebundle.common.Headers.CORRELATION_ID;
+import static com.lgi.appstorebundle.configuration.BundleExecutorConfiguration.BUNDLE_EXECUTOR;
 import static java.util.UUID.randomUUID;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.stream.Collectors.toList;
 import static org.joda.time.DateTime.now;
 import static org.springframework.http.HttpStatus.ACCEPTED;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.SEE_OTHER;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
 @RestController
 @RequestMapping("/applications")
@@ -62,63 +96,295 @@ public class AppStoreBundleController {
     private static final Logger LOG = LoggerFactory.getLogger(AppStoreBundleController.class);
 
     private static final String RETRY_AFTER = "Retry-After";
+    private static final String GENERATION_REQUESTS_METRIC = "bundle.generation.requests";
+    private static final String FAST_PATH_TAG = "fastPath";
+    private static final String GENERATION_STAGE_METRIC = "bundle.generation.stage";
+    private static final String STAGE_TAG = "stage";
+    private static final String APP_NOT_FOUND_MESSAGE = "Application not found!";
+    private static final String SERVICE_OVERLOADED_MESSAGE = "Service overloaded, try again later!";
+    private static final String GENERATION_NOT_SENT_MESSAGE = "Bundle generation message could not be sent!";
 
-    private final Duration retryAfter;
+    private final RetryAfterEstimator retryAfterEstimator;
+    private final AdmissionControl admissionControl;
+    private final int batchAsmsParallelism;
     private final ApplicationMetadataService applicationMetadataService;
     private final BundleService bundleService;
+    private final IdempotencyService idempotencyService;
     private final EncryptionHelper encryptionHelper;
+    private final BundleLocations bundleLocations;
+    private final Executor executor;
+    private final Counter fastPathCounter;
+    private final Counter fullPathCounter;
+    private final Timer idempotencyTimer;
+    private final Timer latestBundleTimer;
+    private final Timer applicationMetadataTimer;
+    private final Timer maintainerMetadataTimer;
+    private final Timer triggerTimer;
+    private final SingleFlight<ApplicationContext, Bundle> bundleGenerationFlight = new SingleFlight<>();
 
     private static final Predicate<Bundle> IS_NOT_BUNDLE_ERROR = application -> BUNDLE_ERROR != application.getStatus();
 
     @Autowired
-    public AppStoreBundleController(@Value("${http.retry.after}") Duration retryAfter,
+    public AppStoreBundleController(@Value("${batch.asms.parallelism}") int batchAsmsParallelism,
                                     ApplicationMetadataService applicationMetadataService,
                                     BundleService bundleService,
-                                    EncryptionHelper encryptionHelper) {
-        this.retryAfter = checkNotNull(retryAfter, "retryAfter");
+                                    IdempotencyService idempotencyService,
+                                    EncryptionHelper encryptionHelper,
+                                    BundleLocations bundleLocations,
+                                    RetryAfterEstimator retryAfterEstimator,
+                                    AdmissionControl admissionControl,
+                                    MeterRegistry meterRegistry,
+                                    @Qualifier(BUNDLE_EXECUTOR) Executor executor) {
+        checkArgument(batchAsmsParallelism > 0, "batchAsmsParallelism must be positive");
+        this.batchAsmsParallelism = batchAsmsParallelism;
         this.applicationMetadataService = applicationMetadataService;
         this.bundleService = bundleService;
+        this.idempotencyService = checkNotNull(idempotencyService, "idempotencyService");
         this.encryptionHelper = checkNotNull(encryptionHelper, "encryptionHelper");
+        this.bundleLocations = checkNotNull(bundleLocations, "bundleLocations");
+        this.retryAfterEstimator = checkNotNull(retryAfterEstimator, "retryAfterEstimator");
+        this.admissionControl = checkNotNull(admissionControl, "admissionControl");
+        this.executor = checkNotNull(executor, "executor");
+        checkNotNull(meterRegistry, "meterRegistry");
+        this.fastPathCounter = meterRegistry.counter(GENERATION_REQUESTS_METRIC, FAST_PATH_TAG, "true");
+        this.fullPathCounter = meterRegistry.counter(GENERATION_REQUESTS_METRIC, FAST_PATH_TAG, "false");
+        this.idempotencyTimer = stageTimer(meterRegistry, "idempotency");
+        this.latestBundleTimer = stageTimer(meterRegistry, "latestBundle");
+        this.applicationMetadataTimer = stageTimer(meterRegistry, "applicationMetadata");
+        this.maintainerMetadataTimer = stageTimer(meterRegistry, "maintainerMetadata");
+        this.triggerTimer = stageTimer(meterRegistry, "trigger");
     }
 
     @GetMapping(value = "/{appId}/{appVersion}/{platformName}/{firmwareVersion}/{appBundleName}", produces = {"application/json"})
-    public ResponseEntity<Object> startBundleGeneration(@Valid @PathVariable("appId") String appId,
-                                                        @Valid @PathVariable("appVersion") String appVersion,
-                                                        @Valid @PathVariable("platformName") String platformName,
-                                                        @Valid @PathVariable("firmwareVersion") String firmwareVersion,
-                                                        @Valid @PathVariable("appBundleName") String appBundleName,
-                                                        @RequestHeader(CORRELATION_ID) String xRequestId) {
+    public CompletableFuture<ResponseEntity<Object>> startBundleGeneration(@Valid @PathVariable("appId") String appId,
+                                                                           @Valid @PathVariable("appVersion") String appVersion,
+                                                                           @Valid @PathVariable("platformName") String platformName,
+                                                                           @Valid @PathVariable("firmwareVersion") String firmwareVersion,
+                                                                           @Valid @PathVariable("appBundleName") String appBundleName,
+                                                                           @RequestHeader(CORRELATION_ID) String xRequestId) {
+        admissionControl.admit();
         final ApplicationParams applicationParams = ApplicationParams.create(appId, appVersion, platformName, firmwareVersion, appBundleName);
-        final ApplicationMetadata applicationMetadataWithMaintainer = applicationMetadataService.getApplicationMetadata(applicationParams)
-                .orElseThrow(() -> ApplicationNotFoundException.createDefault(appId, appVersion, platformName, firmwareVersion));
-
-        final String maintainerCode = applicationMetadataWithMaintainer.getMaintainer().getCode();
-        final ApplicationMetadataForMaintainer applicationMetadataForMaintainer = applicationMetadataService.getApplicationMetadataForMaintainerCode(applicationParams, maintainerCode)
-                .orElseThrow(() -> ApplicationNotFoundException.createDefault(appId, appVersion, platformName, firmwareVersion));
-
-        final Optional<Bundle> maybeBundle = bundleService.getLatestBundle(appId, appVersion, platformName, firmwareVersion);
-
-        if (maybeBundle.filter(IS_NOT_BUNDLE_ERROR).isEmpty()) {
-            final UUID id = randomUUID();
-            final boolean isEncryptionEnabled = encryptionHelper.isEncryptionEnabled(applicationMetadataForMaintainer);
-            LOG.info("Starting a new bundle generation for bundle id:'{}', appId:'{}', appVersion:'{}', platformName:'{}', firmwareVersion:'{}', calculated encryption:'{}'.",
-                    id, appId, appVersion, platformName, firmwareVersion, isEncryptionEnabled);
-            final BundleContext bundleContext = createBundleContext(id, appId, appVersion, platformName, firmwareVersion,
-                    xRequestId, applicationMetadataForMaintainer.getHeader().getOciImageUrl(), isEncryptionEnabled);
-            bundleService.triggerBundleGeneration(bundleContext);
+        final ApplicationContext applicationContext = ApplicationContext.create(appId, appVersion, platformName, firmwareVersion);
+        return timed(idempotencyTimer, () -> supplyAsync(() -> idempotencyService.findBundle(xRequestId, applicationContext), executor))
+                .thenCompose(maybeRequestedBundle -> {
+                    if (maybeRequestedBundle.isPresent()) {
+                        LOG.debug("Request with x-request-id:'{}' was already handled with bundle id:'{}'.", xRequestId, maybeRequestedBundle.get().getId());
+                        return completedFuture(maybeRequestedBundle.get());
+                    }
+                    return bundleGenerationFlight.execute(applicationContext, () -> findOrStartBundleGeneration(applicationParams, xRequestId))
+                            .thenApply(bundle -> {
+                                idempotencyService.remember(xRequestId, bundle);
+                                return bundle;
+                            });
+                })
+                .thenApply(bundle -> bundle.isCompleted() ? ready(bundle, xRequestId) : accepted(bundle, xRequestId));
+    }
+
+    private CompletableFuture<Bundle> findOrStartBundleGeneration(ApplicationParams applicationParams, String xRequestId) {
+        final String appId = applicationParams.getApplicationId();
+        final String appVersion = applicationParams.getAppVersion();
+        final String platformName = applicationParams.getPlatformName();
+        final String firmwareVersion = applicationParams.getFirmwareVersion();
+        final CompletableFuture<Optional<Bundle>> latestHealthyBundle = timed(latestBundleTimer, () -> supplyAsync(
+                () -> bundleService.getLatestBundle(appId, appVersion, platformName, firmwareVersion).filter(IS_NOT_BUNDLE_ERROR), executor));
+        return latestHealthyBundle.thenCompose(maybeHealthyBundle -> {
+            if (maybeHealthyBundle.isPresent()) {
+                fastPathCounter.increment();
+                LOG.debug("Bundle id:'{}' with status:'{}' already exists for appId:'{}', appVersion:'{}', platformName:'{}', firmwareVersion:'{}'.",
+                        maybeHealthyBundle.get().getId(), maybeHealthyBundle.get().getStatus(), appId, appVersion, platformName, firmwareVersion);
+                return completedFuture(maybeHealthyBundle.get());
+            }
+            fullPathCounter.increment();
+            return timed(applicationMetadataTimer, () -> applicationMetadataService.getApplicationMetadata(applicationParams))
+                    .thenApply(maybeMetadata -> maybeMetadata
+                            .orElseThrow(() -> ApplicationNotFoundException.createDefault(appId, appVersion, platformName, firmwareVersion)))
+                    .thenCompose(applicationMetadataWithMaintainer -> {
+                        final String maintainerCode = applicationMetadataWithMaintainer.getMaintainer().getCode();
+                        return timed(maintainerMetadataTimer,
+                                () -> applicationMetadataService.getApplicationMetadataForMaintainerCode(applicationParams, maintainerCode))
+                                .thenApply(maybeMetadata -> maybeMetadata
+                                        .orElseThrow(() -> ApplicationNotFoundException.createDefault(appId, appVersion, platformName, firmwareVersion)))
+                                .thenCompose(applicationMetadataForMaintainer -> timed(triggerTimer, () -> supplyAsync(
+                                        () -> startBundleGeneration(applicationParams, xRequestId, maintainerCode, applicationMetadataForMaintainer), executor)));
+                    });
+        });
+    }
+
+    private Bundle startBundleGeneration(ApplicationParams applicationParams, String xRequestId, String maintainerCode,
+                                         ApplicationMetadataForMaintainer applicationMetadataForMaintainer) {
+        return bundleService.triggerBundleGeneration(newBundleContext(applicationParams, xRequestId, maintainerCode, applicationMetadataForMaintainer));
+    }
+
+    @PostMapping(value = "/batch", consumes = {"application/json"}, produces = {"application/json"})
+    public CompletableFuture<BatchBundleResponse> startBundleGenerations(@Valid @RequestBody BatchBundleRequest batchBundleRequest,
+                                                                         @RequestHeader(CORRELATION_ID) String xRequestId) {
+        admissionControl.admit();
+        final List<ApplicationParams> applications = batchBundleRequest.getItems().stream()
+                .map(item -> ApplicationParams.create(item.getAppId(), item.getAppVersion(), item.getPlatformName(), item.getFirmwareVersion(), item.getAppBundleName()))
+                .collect(toList());
+        final Map<ApplicationContext, Integer> firstIndexes = new LinkedHashMap<>();
+        for (int index = 0; index < applications.size(); index++) {
+            firstIndexes.putIfAbsent(toApplicationContext(applications.get(index)), index);
         }
+        return supplyAsync(() -> bundleService.getLatestBundles(firstIndexes.keySet()), executor)
+                .thenCompose(latestBundles -> {
+                    final Map<ApplicationContext, BatchItemOutcome> outcomes = new ConcurrentHashMap<>();
+                    latestBundles.stream()
+                            .filter(IS_NOT_BUNDLE_ERROR)
+                            .forEach(bundle -> outcomes.put(bundle.getApplicationContext(), BatchItemOutcome.of(bundle)));
+                    fastPathCounter.increment(outcomes.size());
+                    fullPathCounter.increment(firstIndexes.size() - outcomes.size());
+                    final List<Integer> missingIndexes = firstIndexes.entrySet().stream()
+                            .filter(entry -> !outcomes.containsKey(entry.getKey()))
+                            .map(Map.Entry::getValue)
+                            .collect(toList());
+                    return BoundedParallelism.map(missingIndexes, batchAsmsParallelism,
+                                    index -> resolveBundleContext(applications.get(index), xRequestId + "-" + index)
+                                            .handle((bundleContext, failure) -> {
+                                                if (failure != null) {
+                                                    outcomes.put(toApplicationContext(applications.get(index)), BatchItemOutcome.of(failure));
+                                                    return Optional.<BundleContext>empty();
+                                                }
+                                                return Optional.of(bundleContext);
+                                            }))
+                            .thenApplyAsync(maybeBundleContexts -> {
+                                final List<BundleContext> bundleContexts = maybeBundleContexts.stream()
+                                        .flatMap(Optional::stream)
+                                        .collect(toList());
+                                bundleService.triggerBundleGenerations(bundleContexts)
+                                        .forEach(bundle -> outcomes.put(bundle.getApplicationContext(), BatchItemOutcome.of(bundle)));
+                                return outcomes;
+                            }, executor);
+                })
+                .thenApply(outcomes -> toBatchBundleResponse(applications, outcomes));
+    }
 
+    private CompletableFuture<BundleContext> resolveBundleContext(ApplicationParams applicationParams, String xRequestId) {
+        final Supplier<ApplicationNotFoundException> notFound = () -> ApplicationNotFoundException.createDefault(applicationParams.getApplicationId(),
+                applicationParams.getAppVersion(), applicationParams.getPlatformName(), applicationParams.getFirmwareVersion());
+        return applicationMetadataService.getApplicationMetadata(applicationParams)
+                .thenApply(maybeMetadata -> maybeMetadata.orElseThrow(notFound))
+                .thenCompose(applicationMetadata -> {
+                    final String maintainerCode = applicationMetadata.getMaintainer().getCode();
+                    return applicationMetadataService.getApplicationMetadataForMaintainerCode(applicationParams, maintainerCode)
+                            .thenApply(maybeMetadata -> maybeMetadata.orElseThrow(notFound))
+                            .thenApply(applicationMetadataForMaintainer -> newBundleContext(applicationParams, xRequestId, maintainerCode, applicationMetadataForMaintainer));
+                });
+    }
+
+    private BundleContext newBundleContext(ApplicationParams applicationParams, String xRequestId, String maintainerCode,
+                                           ApplicationMetadataForMaintainer applicationMetadataForMaintainer) {
+        final String appId = applicationParams.getApplicationId();
+        final String appVersion = applicationParams.getAppVersion();
+        final String platformName = applicationParams.getPlatformName();
+        final String firmwareVersion = applicationParams.getFirmwareVersion();
+        final UUID id = randomUUID();
+        final boolean isEncryptionEnabled = encryptionHelper.isEncryptionEnabled(applicationMetadataForMaintainer);
+        LOG.info("Starting a new bundle generation for bundle id:'{}', appId:'{}', appVersion:'{}', platformName:'{}', firmwareVersion:'{}', calculated encryption:'{}'.",
+                id, appId, appVersion, platformName, firmwareVersion, isEncryptionEnabled);
+        return createBundleContext(id, appId, appVersion, platformName, firmwareVersion,
+                xRequestId, applicationMetadataForMaintainer.getHeader().getOciImageUrl(), isEncryptionEnabled, maintainerCode);
+    }
+
+    private BatchBundleResponse toBatchBundleResponse(List<ApplicationParams> applications, Map<ApplicationContext, BatchItemOutcome> outcomes) {
+        return new BatchBundleResponse().items(applications.stream()
+                .map(applicationParams -> {
+                    final BatchItemOutcome outcome = outcomes.get(toApplicationContext(applicationParams));
+                    final boolean ready = outcome.getHttpStatusCode() == SEE_OTHER.value();
+                    return new BatchBundleResponseItem()
+                            .appId(applicationParams.getApplicationId())
+                            .appVersion(applicationParams.getAppVersion())
+                            .platformName(applicationParams.getPlatformName())
+                            .firmwareVersion(applicationParams.getFirmwareVersion())
+                            .appBundleName(applicationParams.getAppBundleName())
+                            .httpStatusCode(ready && !bundleLocations.hasBaseUrl() ? OK.value() : outcome.getHttpStatusCode())
+                            .bundleId(outcome.getBundle().map(Bundle::getId).orElse(null))
+                            .xRequestId(outcome.getBundle().map(Bundle::getXRequestId).orElse(null))
+                            .location(ready ? outcome.getBundle().map(bundle -> bundleLocations.of(bundle).toString()).orElse(null) : null)
+                            .message(outcome.getMessage().orElse(null));
+                })
+                .collect(toList()));
+    }
+
+    private static ApplicationContext toApplicationContext(ApplicationParams applicationParams) {
+        return ApplicationContext.create(applicationParams.getApplicationId(), applicationParams.getAppVersion(),
+                applicationParams.getPlatformName(), applicationParams.getFirmwareVersion());
+    }
+
+    private static <T> CompletableFuture<T> timed(Timer timer, Supplier<CompletableFuture<T>> stage) {
+        final Timer.Sample sample = Timer.start();
+        return stage.get().whenComplete((result, failure) -> sample.stop(timer));
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder(GENERATION_STAGE_METRIC)
+                .tag(STAGE_TAG, stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Redirects to the completed bundle, or returns its location in the body when no download base URL is configured,
+     * since a relative redirect would resolve against this service.
+     */
+    private ResponseEntity<Object> ready(Bundle bundle, String xRequestId) {
+        if (bundleLocations.hasBaseUrl()) {
+            return ResponseEntity.status(SEE_OTHER)
+                    .location(bundleLocations.of(bundle))
+                    .header(CORRELATION_ID, xRequestId)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .header(CORRELATION_ID, xRequestId)
+                .body(new BundleLocationResponse()
+                        .id(bundle.getId())
+                        .location(bundleLocations.of(bundle).toString()));
+    }
+
+    private ResponseEntity<Object> accepted(Bundle bundle, String xRequestId) {
         return ResponseEntity.status(ACCEPTED)
-                .header(RETRY_AFTER, String.valueOf(retryAfter.toSeconds()))
+                .header(RETRY_AFTER, String.valueOf(retryAfterEstimator.retryAfter(bundle).toSeconds()))
                 .header(CORRELATION_ID, xRequestId)
                 .build();
     }
 
     private BundleContext createBundleContext(UUID id, String appId, String appVersion, String platformName,
-                                              String firmwareVersion, String xRequestId, String ociImageUrl, boolean isEncryptionEnabled) {
+                                              String firmwareVersion, String xRequestId, String ociImageUrl, boolean isEncryptionEnabled,
+                                              String maintainerCode) {
         final DateTime messageTimestamp = now(DateTimeZone.UTC);
         final ApplicationContext applicationContext = ApplicationContext.create(appId, appVersion, platformName, firmwareVersion);
         final Bundle bundle = Bundle.create(id, applicationContext, GENERATION_REQUESTED, xRequestId, messageTimestamp, isEncryptionEnabled);
-        return BundleContext.create(bundle, ociImageUrl, isEncryptionEnabled);
+        return BundleContext.create(bundle, ociImageUrl, isEncryptionEnabled, maintainerCode);
+    }
+
+    @AutoValue
+    abstract static class BatchItemOutcome {
+
+        abstract int getHttpStatusCode();
+
+        abstract Optional<Bundle> getBundle();
+
+        abstract Optional<String> getMessage();
+
+        static BatchItemOutcome of(Bundle bundle) {
+            if (bundle.getStatus() == BUNDLE_ERROR) {
+                return new AutoValue_AppStoreBundleController_BatchItemOutcome(INTERNAL_SERVER_ERROR.value(), Optional.of(bundle), Optional.of(GENERATION_NOT_SENT_MESSAGE));
+            }
+            if (bundle.isCompleted()) {
+                return new AutoValue_AppStoreBundleController_BatchItemOutcome(SEE_OTHER.value(), Optional.of(bundle), Optional.empty());
+            }
+            return new AutoValue_AppStoreBundleController_BatchItemOutcome(ACCEPTED.value(), Optional.of(bundle), Optional.empty());
+        }
+
+        static BatchItemOutcome of(Throwable failure) {
+            final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (cause instanceof ApplicationNotFoundException) {
+                return new AutoValue_AppStoreBundleController_BatchItemOutcome(NOT_FOUND.value(), Optional.empty(), Optional.of(APP_NOT_FOUND_MESSAGE));
+            }
+            if (cause instanceof RejectedExecutionException) {
+                return new AutoValue_AppStoreBundleController_BatchItemOutcome(SERVICE_UNAVAILABLE.value(), Optional.empty(), Optional.of(SERVICE_OVERLOADED_MESSAGE));
+            }
+            return new AutoValue_AppStoreBundleController_BatchItemOutcome(INTERNAL_SERVER_ERROR.value(), Optional.empty(), Optional.ofNullable(cause.getMessage()));
+        }
     }
 }
@@ -0,0 +1,335 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.resources;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleFilter;
+import com.lgi.appstorebundle.api.model.BundlePage;
+import com.lgi.appstorebundle.api.model.BundlePosition;
+import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.api.model.BundleStatusCount;
+import com.lgi.appstorebundle.error.exception.BundleNotFoundException;
+import com.lgi.appstorebundle.error.exception.InvalidCursorException;
+import com.lgi.appstorebundle.model.BundlePageResponse;
+import com.lgi.appstorebundle.model.BundleStatusCountResponseItem;
+import com.lgi.appstorebundle.model.BundleStatusCountsResponse;
+import com.lgi.appstorebundle.model.BundleStatusResponse;
+import com.lgi.appstorebundle.service.BundleService;
+import com.lgi.appstorebundle.service.BundleStatusSubscriptions;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.lgi.appstorebundle.api.model.BundleStatus.BUNDLE_ERROR;
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_LAUNCHED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_REQUESTED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_LAUNCHED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_QUEUED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
+import static java.util.stream.Collectors.toList;
+import static org.joda.time.DateTimeZone.UTC;
+
+/**
+ * Read-only bundle status endpoints. Responses carry an ETag built from the bundle status and message timestamp, so
+ * polling clients can revalidate with If-None-Match and get 304 Not Modified; completed bundles never change and are
+ * additionally cacheable for a long time. Clients that want to wait for a change can subscribe to status events instead
+ * of polling.
+ */
+@RestController
+@RequestMapping("/bundles")
+public class BundleController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BundleController.class);
+
+    private static final String STATUS_EVENT = "status";
+    private static final String CURSOR_SEPARATOR = "_";
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final BundleService bundleService;
+    private final BundleStatusSubscriptions bundleStatusSubscriptions;
+    private final CacheControl completedCacheControl;
+    private final Duration eventsTimeout;
+    private final ObjectWriter bundleStatusWriter;
+
+    @Autowired
+    public BundleController(@Value("${bundle.status.completed.maxAge}") Duration completedMaxAge,
+                            @Value("${bundle.status.events.timeout}") Duration eventsTimeout,
+                            BundleService bundleService,
+                            BundleStatusSubscriptions bundleStatusSubscriptions,
+                            ObjectMapper objectMapper) {
+        this.completedCacheControl = CacheControl.maxAge(checkNotNull(completedMaxAge, "completedMaxAge")).cachePublic();
+        this.eventsTimeout = checkNotNull(eventsTimeout, "eventsTimeout");
+        this.bundleService = checkNotNull(bundleService, "bundleService");
+        this.bundleStatusSubscriptions = checkNotNull(bundleStatusSubscriptions, "bundleStatusSubscriptions");
+        this.bundleStatusWriter = checkNotNull(objectMapper, "objectMapper")
+                .writerFor(BundleStatusResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Lists the matching bundles oldest first from a read node. Pages are keyset paginated on the bundle creation time
+     * and id, the opaque {@code next} cursor of a page is passed back as {@code after} to fetch the following one.
+     */
+    @GetMapping(produces = {"application/json"})
+    public BundlePageResponse searchBundles(@RequestParam(value = "appId", required = false) String appId,
+                                            @RequestParam(value = "platformName", required = false) String platformName,
+                                            @RequestParam(value = "firmwareVersion", required = false) String firmwareVersion,
+                                            @RequestParam(value = "status", required = false) Set<BundleStatus> statuses,
+                                            @RequestParam(value = "after", required = false) String after,
+                                            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        final BundleFilter filter = BundleFilter.create(statuses == null ? Set.of() : statuses, Optional.ofNullable(appId),
+                Optional.ofNullable(platformName), Optional.ofNullable(firmwareVersion), Optional.empty(), Optional.empty());
+        final BundlePage page = bundleService.searchBundles(filter, Optional.ofNullable(after).map(BundleController::decodeCursor),
+                Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        return new BundlePageResponse()
+                .items(page.getBundles().stream().map(BundleController::toBundleStatusResponse).collect(toList()))
+                .next(page.getNext().map(BundleController::encodeCursor).orElse(null));
+    }
+
+    /**
+     * Returns the number of bundles per platform and status from the counters the database maintains, without scanning
+     * the bundle table.
+     */
+    @GetMapping(value = "/counts", produces = {"application/json"})
+    public BundleStatusCountsResponse getBundleStatusCounts() {
+        return new BundleStatusCountsResponse()
+                .items(bundleService.getBundleStatusCounts().stream().map(BundleController::toCountResponseItem).collect(toList()));
+    }
+
+    /**
+     * Streams the matching bundles as newline delimited JSON, one bundle status per line, straight from a read node
+     * cursor to the response.
+     */
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE})
+    public void exportBundles(@RequestParam(value = "status", required = false) Set<BundleStatus> statuses,
+                              @RequestParam(value = "appId", required = false) String appId,
+                              @RequestParam(value = "platformName", required = false) String platformName,
+                              @RequestParam(value = "firmwareVersion", required = false) String firmwareVersion,
+                              @RequestParam(value = "createdFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdFrom,
+                              @RequestParam(value = "createdTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime createdTo,
+                              HttpServletResponse response) throws IOException {
+        final BundleFilter filter = BundleFilter.create(statuses == null ? Set.of() : statuses, Optional.ofNullable(appId),
+                Optional.ofNullable(platformName), Optional.ofNullable(firmwareVersion),
+                Optional.ofNullable(createdFrom).map(BundleController::toDateTime),
+                Optional.ofNullable(createdTo).map(BundleController::toDateTime));
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        final AtomicLong exported = new AtomicLong();
+        try (JsonGenerator generator = bundleStatusWriter.getFactory().createGenerator(response.getOutputStream())) {
+            bundleService.exportBundles(filter, bundle -> {
+                try {
+                    bundleStatusWriter.writeValue(generator, toBundleStatusResponse(bundle));
+                    generator.writeRaw('\n');
+                    exported.incrementAndGet();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        LOG.info("Exported {} bundle(s) matching {}.", exported.get(), filter);
+    }
+
+    @GetMapping(value = "/{id}", produces = {"application/json"})
+    public ResponseEntity<BundleStatusResponse> getBundle(@PathVariable("id") UUID id) {
+        final Bundle bundle = bundleService.getBundle(id)
+                .orElseThrow(() -> BundleNotFoundException.createDefault(id));
+        return toResponseEntity(bundle);
+    }
+
+    /**
+     * Streams the current status of the bundle followed by every change, as Server-Sent Events named {@code status}.
+     * The stream completes once the bundle reaches a final state or after the configured timeout. The subscription is
+     * made before the bundle is read, so no change is missed, and statuses older than the last one sent are dropped.
+     */
+    @GetMapping(value = "/{id}/events", produces = {MediaType.TEXT_EVENT_STREAM_VALUE})
+    public SseEmitter streamBundleStatus(@PathVariable("id") UUID id) {
+        final SseEmitter emitter = new SseEmitter(eventsTimeout.toMillis());
+        final BundleStatusEvents events = new BundleStatusEvents(emitter);
+        final Runnable unsubscribe = bundleStatusSubscriptions.subscribe(id, events::notified);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(failure -> unsubscribe.run());
+        final Optional<Bundle> maybeBundle = bundleService.getBundle(id);
+        if (maybeBundle.isEmpty()) {
+            unsubscribe.run();
+            throw BundleNotFoundException.createDefault(id);
+        }
+        events.read(maybeBundle.get());
+        return emitter;
+    }
+
+    /**
+     * Statuses notified before the bundle is read are held back, as completion depends on its encryption flag, and only
+     * the newest one is sent once the stored status is known. Statuses are compared by their progression rank rather than
+     * their declaration order: a queued generation goes back to requested once it is claimed, so both share a rank and
+     * either may follow the other.
+     */
+    private static final class BundleStatusEvents {
+
+        private static final Map<BundleStatus, Integer> PROGRESSION_RANKS = new EnumMap<>(Map.of(
+                GENERATION_QUEUED, 0,
+                GENERATION_REQUESTED, 0,
+                GENERATION_LAUNCHED, 1,
+                GENERATION_COMPLETED, 2,
+                ENCRYPTION_REQUESTED, 3,
+                ENCRYPTION_LAUNCHED, 4,
+                ENCRYPTION_COMPLETED, 5,
+                BUNDLE_ERROR, 6));
+
+        private final SseEmitter emitter;
+        private Boolean encryptionEnabled;
+        private BundleStatus notifiedStatus;
+        private BundleStatus sentStatus;
+
+        private BundleStatusEvents(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void notified(BundleStatus status) {
+            if (encryptionEnabled == null) {
+                notifiedStatus = notifiedStatus == null || rank(status) >= rank(notifiedStatus) ? status : notifiedStatus;
+            } else {
+                sendIfNewer(status);
+            }
+        }
+
+        synchronized void read(Bundle bundle) {
+            encryptionEnabled = bundle.isEncryptionEnabled();
+            final BundleStatus status = bundle.getStatus();
+            sendIfNewer(notifiedStatus != null && rank(notifiedStatus) > rank(status) ? notifiedStatus : status);
+        }
+
+        private void sendIfNewer(BundleStatus status) {
+            if (sentStatus == null || rank(status) > rank(sentStatus) || (rank(status) == rank(sentStatus) && status != sentStatus)) {
+                sentStatus = status;
+                send(emitter, status, encryptionEnabled);
+            }
+        }
+
+        private static int rank(BundleStatus status) {
+            return PROGRESSION_RANKS.get(status);
+        }
+    }
+
+    private static void send(SseEmitter emitter, BundleStatus status, boolean encryptionEnabled) {
+        try {
+            emitter.send(SseEmitter.event().name(STATUS_EVENT).data(status.name()));
+            if (status == BUNDLE_ERROR || status.isCompleted(encryptionEnabled)) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            LOG.debug("Bundle status event could not be sent: {}", e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    @GetMapping(value = "/{appId}/{appVersion}/{platformName}/{firmwareVersion}", produces = {"application/json"})
+    public ResponseEntity<BundleStatusResponse> getLatestBundle(@PathVariable("appId") String appId,
+                                                                @PathVariable("appVersion") String appVersion,
+                                                                @PathVariable("platformName") String platformName,
+                                                                @PathVariable("firmwareVersion") String firmwareVersion) {
+        final Bundle bundle = bundleService.getLatestBundle(appId, appVersion, platformName, firmwareVersion)
+                .orElseThrow(() -> BundleNotFoundException.createDefault(appId, appVersion, platformName, firmwareVersion));
+        return toResponseEntity(bundle);
+    }
+
+    private ResponseEntity<BundleStatusResponse> toResponseEntity(Bundle bundle) {
+        return ResponseEntity.ok()
+                .eTag(eTag(bundle))
+                .cacheControl(bundle.isCompleted() ? completedCacheControl : CacheControl.noCache())
+                .body(toBundleStatusResponse(bundle));
+    }
+
+    private static String eTag(Bundle bundle) {
+        return bundle.getId() + "-" + bundle.getStatus() + "-" + bundle.getMessageTimestamp().getMillis();
+    }
+
+    private static DateTime toDateTime(OffsetDateTime offsetDateTime) {
+        return new DateTime(offsetDateTime.toInstant().toEpochMilli(), UTC);
+    }
+
+    private static String encodeCursor(BundlePosition position) {
+        final String cursor = position.getCreatedAt() + CURSOR_SEPARATOR + position.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BundlePosition decodeCursor(String cursor) {
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final int separator = decoded.indexOf(CURSOR_SEPARATOR);
+            return BundlePosition.create(Instant.parse(decoded.substring(0, Math.max(separator, 0))),
+                    UUID.fromString(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw InvalidCursorException.malformed(cursor, e);
+        }
+    }
+
+    private static BundleStatusCountResponseItem toCountResponseItem(BundleStatusCount count) {
+        return new BundleStatusCountResponseItem()
+                .platformName(count.getPlatformName())
+                .status(BundleStatusCountResponseItem.StatusEnum.fromValue(count.getStatus().name()))
+                .count(count.getCount());
+    }
+
+    private static BundleStatusResponse toBundleStatusResponse(Bundle bundle) {
+        return new BundleStatusResponse()
+                .id(bundle.getId())
+                .appId(bundle.getApplicationContext().getApplicationId())
+                .appVersion(bundle.getApplicationContext().getApplicationVersion())
+                .platformName(bundle.getApplicationContext().getPlatformName())
+                .firmwareVersion(bundle.getApplicationContext().getFirmwareVersion())
+                .status(BundleStatusResponse.StatusEnum.fromValue(bundle.getStatus().name()))
+                .xRequestId(bundle.getXRequestId())
+                .messageTimestamp(bundle.getMessageTimestamp().toString())
+                .encryption(bundle.isEncryptionEnabled());
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.resources;
+
+import com.lgi.appstorebundle.api.ApplicationParams;
+import com.lgi.appstorebundle.error.exception.PrewarmJobNotFoundException;
+import com.lgi.appstorebundle.model.PrewarmJobResponse;
+import com.lgi.appstorebundle.model.PrewarmRequest;
+import com.lgi.appstorebundle.service.AdmissionControl;
+import com.lgi.appstorebundle.service.PrewarmJob;
+import com.lgi.appstorebundle.service.PrewarmJob.Outcome;
+import com.lgi.appstorebundle.service.PrewarmService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.validation.Valid;
+import java.util.List;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Pre-generation of bundles for a new firmware version. Jobs run in the background of the instance that accepted them;
+ * their progress is stored in the database and polled with GET /prewarm/{id} on any instance.
+ */
+@RestController
+@RequestMapping("/prewarm")
+public class PrewarmController {
+
+    private final PrewarmService prewarmService;
+    private final AdmissionControl admissionControl;
+
+    @Autowired
+    public PrewarmController(PrewarmService prewarmService, AdmissionControl admissionControl) {
+        this.prewarmService = checkNotNull(prewarmService, "prewarmService");
+        this.admissionControl = checkNotNull(admissionControl, "admissionControl");
+    }
+
+    @PostMapping(consumes = {"application/json"}, produces = {"application/json"})
+    public ResponseEntity<PrewarmJobResponse> startPrewarm(@Valid @RequestBody PrewarmRequest prewarmRequest) {
+        admissionControl.admit();
+        final String platformName = prewarmRequest.getPlatformName();
+        final String firmwareVersion = prewarmRequest.getFirmwareVersion();
+        final List<ApplicationParams> applications = prewarmRequest.getApplications() == null ? List.of() : prewarmRequest.getApplications().stream()
+                .map(application -> ApplicationParams.create(application.getAppId(), application.getAppVersion(), platformName, firmwareVersion, application.getAppId()))
+                .collect(toList());
+        final PrewarmJob job = prewarmService.start(platformName, firmwareVersion, applications);
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(job.getId()).toUri())
+                .body(toPrewarmJobResponse(job));
+    }
+
+    @GetMapping(value = "/{id}", produces = {"application/json"})
+    public PrewarmJobResponse getPrewarm(@PathVariable("id") UUID id) {
+        final PrewarmJob job = prewarmService.getJob(id)
+                .orElseThrow(() -> PrewarmJobNotFoundException.createDefault(id));
+        return toPrewarmJobResponse(job).completed(Math.toIntExact(prewarmService.countCompleted(job)));
+    }
+
+    private static PrewarmJobResponse toPrewarmJobResponse(PrewarmJob job) {
+        return new PrewarmJobResponse()
+                .id(job.getId())
+                .platformName(job.getPlatformName())
+                .firmwareVersion(job.getFirmwareVersion())
+                .state(job.isFinished() ? PrewarmJobResponse.StateEnum.FINISHED : PrewarmJobResponse.StateEnum.RUNNING)
+                .total(job.getTotal())
+                .skipped(job.getCount(Outcome.SKIPPED))
+                .queued(job.getCount(Outcome.QUEUED))
+                .notFound(job.getCount(Outcome.NOT_FOUND))
+                .failed(job.getCount(Outcome.FAILED))
+                .startedAt(job.getStartedAt().toString())
+                .finishedAt(job.getFinishedAt().map(Object::toString).orElse(null));
+    }
+}
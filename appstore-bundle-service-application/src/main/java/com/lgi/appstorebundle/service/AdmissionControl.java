@@ -0,0 +1,140 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.common.r4j.AdaptiveLimiter;
+import com.lgi.appstorebundle.common.r4j.AsmsClientInvoker;
+import com.lgi.appstorebundle.error.exception.ServiceOverloadedException;
+import com.lgi.appstorebundle.external.ManagedRabbitMQ;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Rejects bundle generation requests up front while a dependency is saturated, instead of letting them queue on
+ * Tomcat threads until the Hikari connection timeout, the ASMS bulkhead wait or a blocked AMQP publish gives up.
+ * Keeping the queues short preserves the latency of the requests that are accepted.
+ */
+@Service
+public class AdmissionControl {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionControl.class);
+    private static final String REJECTED_METRIC = "bundle.admission.rejected";
+    private static final String REASON_TAG = "reason";
+    static final String RABBITMQ_BLOCKED = "rabbitmqBlocked";
+    static final String DATABASE_POOL_EXHAUSTED = "databasePoolExhausted";
+    static final String ASMS_BULKHEAD_SATURATED = "asmsBulkheadSaturated";
+
+    private final boolean enabled;
+    private final Duration retryAfter;
+    private final int maxThreadsAwaitingConnection;
+    private final double maxBulkheadUtilization;
+    private final List<HikariDataSource> dataSources;
+    private final Optional<Bulkhead> asmsBulkhead;
+    private final Optional<AdaptiveLimiter> asmsAdaptiveLimiter;
+    private final ManagedRabbitMQ managedRabbitMQ;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public AdmissionControl(@Value("${admission.control.enabled}") boolean enabled,
+                            @Value("${admission.control.retryAfter}") Duration retryAfter,
+                            @Value("${admission.control.db.maxThreadsAwaitingConnection}") int maxThreadsAwaitingConnection,
+                            @Value("${admission.control.asms.maxBulkheadUtilization}") double maxBulkheadUtilization,
+                            @Qualifier("readDataSource") HikariDataSource readDataSource,
+                            @Qualifier("writeDataSource") HikariDataSource writeDataSource,
+                            AsmsClientInvoker asmsClientInvoker,
+                            ManagedRabbitMQ managedRabbitMQ,
+                            MeterRegistry meterRegistry) {
+        checkArgument(maxThreadsAwaitingConnection >= 0, "maxThreadsAwaitingConnection must not be negative");
+        checkArgument(maxBulkheadUtilization > 0 && maxBulkheadUtilization <= 1, "maxBulkheadUtilization must be in (0, 1]");
+        this.enabled = enabled;
+        this.retryAfter = checkNotNull(retryAfter, "retryAfter");
+        this.maxThreadsAwaitingConnection = maxThreadsAwaitingConnection;
+        this.maxBulkheadUtilization = maxBulkheadUtilization;
+        this.dataSources = List.of(checkNotNull(readDataSource, "readDataSource"), checkNotNull(writeDataSource, "writeDataSource"));
+        this.asmsBulkhead = checkNotNull(asmsClientInvoker, "asmsClientInvoker").getBulkhead();
+        this.asmsAdaptiveLimiter = asmsClientInvoker.getAdaptiveLimiter();
+        this.managedRabbitMQ = checkNotNull(managedRabbitMQ, "managedRabbitMQ");
+        this.meterRegistry = checkNotNull(meterRegistry, "meterRegistry");
+    }
+
+    /**
+     * Throws {@link ServiceOverloadedException} when the request should be shed.
+     */
+    public void admit() {
+        if (!enabled) {
+            return;
+        }
+        rejectionReason().ifPresent(reason -> {
+            LOG.debug("Request rejected by admission control: {}", reason);
+            meterRegistry.counter(REJECTED_METRIC, REASON_TAG, reason).increment();
+            throw ServiceOverloadedException.createDefault(reason, retryAfter);
+        });
+    }
+
+    Optional<String> rejectionReason() {
+        if (managedRabbitMQ.isBlocked()) {
+            return Optional.of(RABBITMQ_BLOCKED);
+        }
+        if (dataSources.stream().anyMatch(dataSource -> threadsAwaitingConnection(dataSource) > maxThreadsAwaitingConnection)) {
+            return Optional.of(DATABASE_POOL_EXHAUSTED);
+        }
+        if (asmsUtilization().filter(utilization -> utilization >= maxBulkheadUtilization).isPresent()) {
+            return Optional.of(ASMS_BULKHEAD_SATURATED);
+        }
+        return Optional.empty();
+    }
+
+    private static int threadsAwaitingConnection(HikariDataSource dataSource) {
+        final HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getThreadsAwaitingConnection();
+    }
+
+    /**
+     * With the adaptive limit enabled the bulkhead is sized to the max limit, so the utilization is taken from the
+     * current limit instead.
+     */
+    private Optional<Double> asmsUtilization() {
+        return asmsAdaptiveLimiter.map(AdmissionControl::utilization)
+                .or(() -> asmsBulkhead.map(AdmissionControl::utilization));
+    }
+
+    private static double utilization(AdaptiveLimiter adaptiveLimiter) {
+        return (double) adaptiveLimiter.getInFlight() / adaptiveLimiter.getLimit();
+    }
+
+    private static double utilization(Bulkhead bulkhead) {
+        final Bulkhead.Metrics metrics = bulkhead.getMetrics();
+        return 1 - (double) metrics.getAvailableConcurrentCalls() / metrics.getMaxAllowedConcurrentCalls();
+    }
+}
@@ -18,28 +18,126 @@
  */
 package com.lgi.appstorebundle.service;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.auto.value.AutoValue;
 import com.lgi.appstorebundle.api.ApplicationParams;
+import com.lgi.appstorebundle.configuration.ApplicationMetadataCacheConfiguration;
 import com.lgi.appstorebundle.external.asms.AppstoreMetadataServiceClient;
 import com.lgi.appstorebundle.external.asms.model.ApplicationMetadata;
 import com.lgi.appstorebundle.external.asms.model.ApplicationMetadataForMaintainer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static com.lgi.appstorebundle.configuration.BundleExecutorConfiguration.BUNDLE_EXECUTOR;
 
 @Service
 public class ApplicationMetadataService {
 
-    private final AppstoreMetadataServiceClient appstoreMetadataServiceClient;
+    static final String APPLICATION_METADATA_CACHE_NAME = "asms.application.metadata";
+    static final String MAINTAINER_APPLICATION_METADATA_CACHE_NAME = "asms.maintainer.application.metadata";
+
+    private final AsyncLoadingCache<ApplicationParams, Optional<ApplicationMetadata>> applicationMetadataCache;
+    private final AsyncLoadingCache<MaintainerApplicationKey, Optional<ApplicationMetadataForMaintainer>> maintainerApplicationMetadataCache;
+    private final LastKnownGoodStore<ApplicationParams, ApplicationMetadata> lastKnownApplicationMetadata;
+    private final LastKnownGoodStore<MaintainerApplicationKey, ApplicationMetadataForMaintainer> lastKnownMaintainerApplicationMetadata;
+
+    @Autowired
+    public ApplicationMetadataService(AppstoreMetadataServiceClient appstoreMetadataServiceClient,
+                                      ApplicationMetadataCacheConfiguration cacheConfiguration,
+                                      MeterRegistry meterRegistry,
+                                      @Qualifier(BUNDLE_EXECUTOR) Executor executor) {
+        this(appstoreMetadataServiceClient, cacheConfiguration, meterRegistry, executor, Ticker.systemTicker());
+    }
+
+    ApplicationMetadataService(AppstoreMetadataServiceClient appstoreMetadataServiceClient,
+                               ApplicationMetadataCacheConfiguration cacheConfiguration,
+                               MeterRegistry meterRegistry,
+                               Executor executor,
+                               Ticker ticker) {
+        this.lastKnownApplicationMetadata = new LastKnownGoodStore<>(APPLICATION_METADATA_CACHE_NAME, cacheConfiguration, meterRegistry, ticker);
+        this.lastKnownMaintainerApplicationMetadata =
+                new LastKnownGoodStore<>(MAINTAINER_APPLICATION_METADATA_CACHE_NAME, cacheConfiguration, meterRegistry, ticker);
+        this.applicationMetadataCache = CaffeineCacheMetrics.monitor(meterRegistry,
+                newCacheBuilder(cacheConfiguration, executor, ticker)
+                        .<ApplicationParams, Optional<ApplicationMetadata>>expireAfter(new NotFoundAwareExpiry<>(cacheConfiguration))
+                        .buildAsync((key, loadExecutor) -> lastKnownApplicationMetadata.load(key,
+                                appstoreMetadataServiceClient.getApplicationByAppIdAsync(key, loadExecutor))),
+                APPLICATION_METADATA_CACHE_NAME);
+        this.maintainerApplicationMetadataCache = CaffeineCacheMetrics.monitor(meterRegistry,
+                newCacheBuilder(cacheConfiguration, executor, ticker)
+                        .<MaintainerApplicationKey, Optional<ApplicationMetadataForMaintainer>>expireAfter(new NotFoundAwareExpiry<>(cacheConfiguration))
+                        .buildAsync((key, loadExecutor) -> lastKnownMaintainerApplicationMetadata.load(key,
+                                appstoreMetadataServiceClient.getApplicationByIdAndMaintainerCodeAsync(
+                                        key.getApplicationParams(), key.getMaintainerCode(), loadExecutor))),
+                MAINTAINER_APPLICATION_METADATA_CACHE_NAME);
+    }
+
+    public CompletableFuture<Optional<ApplicationMetadata>> getApplicationMetadata(ApplicationParams app) {
+        return applicationMetadataCache.get(app);
+    }
+
+    public CompletableFuture<Optional<ApplicationMetadataForMaintainer>> getApplicationMetadataForMaintainerCode(ApplicationParams app, String maintainerCode) {
+        return maintainerApplicationMetadataCache.get(MaintainerApplicationKey.create(app, maintainerCode));
+    }
 
-    public ApplicationMetadataService(AppstoreMetadataServiceClient appstoreMetadataServiceClient) {
-        this.appstoreMetadataServiceClient = appstoreMetadataServiceClient;
+    private static Caffeine<Object, Object> newCacheBuilder(ApplicationMetadataCacheConfiguration cacheConfiguration, Executor executor, Ticker ticker) {
+        return Caffeine.newBuilder()
+                .maximumSize(cacheConfiguration.getMaximumSize())
+                .refreshAfterWrite(cacheConfiguration.getRefreshAfterWrite())
+                .executor(executor)
+                .ticker(ticker)
+                .recordStats();
     }
 
-    public Optional<ApplicationMetadata> getApplicationMetadata(ApplicationParams app) {
-        return appstoreMetadataServiceClient.getApplicationByAppId(app);
+    /**
+     * Keeps ASMS 404s (cached as empty optionals) for a shorter time than found applications, so a newly published
+     * application becomes visible quickly while a missing one still does not hit ASMS on every request.
+     */
+    private static final class NotFoundAwareExpiry<K, V> implements Expiry<K, Optional<V>> {
+
+        private final long expireAfterWriteNanos;
+        private final long notFoundExpireAfterWriteNanos;
+
+        private NotFoundAwareExpiry(ApplicationMetadataCacheConfiguration cacheConfiguration) {
+            this.expireAfterWriteNanos = cacheConfiguration.getExpireAfterWrite().toNanos();
+            this.notFoundExpireAfterWriteNanos = cacheConfiguration.getNotFoundExpireAfterWrite().toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(K key, Optional<V> value, long currentTime) {
+            return value.isPresent() ? expireAfterWriteNanos : notFoundExpireAfterWriteNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, Optional<V> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(K key, Optional<V> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 
-    public Optional<ApplicationMetadataForMaintainer> getApplicationMetadataForMaintainerCode(ApplicationParams app, String maintainerCode) {
-        return appstoreMetadataServiceClient.getApplicationByIdAndMaintainerCode(app, maintainerCode);
+    @AutoValue
+    abstract static class MaintainerApplicationKey {
+
+        abstract ApplicationParams getApplicationParams();
+
+        abstract String getMaintainerCode();
+
+        static MaintainerApplicationKey create(ApplicationParams applicationParams, String maintainerCode) {
+            return new AutoValue_ApplicationMetadataService_MaintainerApplicationKey(applicationParams, maintainerCode);
+        }
     }
 }
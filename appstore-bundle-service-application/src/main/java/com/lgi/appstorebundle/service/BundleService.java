@@ -18,9 +18,15 @@
  */
 package com.lgi.appstorebundle.service;
 
+import com.lgi.appstorebundle.api.model.ApplicationContext;
 import com.lgi.appstorebundle.api.model.Bundle;
 import com.lgi.appstorebundle.api.model.BundleContext;
+import com.lgi.appstorebundle.api.model.BundleFilter;
+import com.lgi.appstorebundle.api.model.BundlePage;
+import com.lgi.appstorebundle.api.model.BundlePosition;
 import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.api.model.BundleStatusCount;
+import com.lgi.appstorebundle.exception.RabbitMQException;
 import com.lgi.appstorebundle.external.OptionalException;
 import com.lgi.appstorebundle.external.RabbitMQService;
 import com.lgi.appstorebundle.model.EncryptionMessageFactory;
@@ -32,10 +38,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static com.lgi.appstorebundle.api.model.BundleStatus.BUNDLE_ERROR;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 @Service
 public class BundleService {
@@ -45,33 +59,114 @@ public class BundleService {
     private final BundleDao bundleDao;
     private final RabbitMQService rabbitMqService;
     private final EncryptionMessageFactory encryptionMessageFactory;
+    private final RetryAfterEstimator retryAfterEstimator;
+    private final GenerationDispatcher generationDispatcher;
 
     @Autowired
-    public BundleService(BundleDao bundleDao, RabbitMQService rabbitMqService, EncryptionMessageFactory encryptionMessageFactory) {
+    public BundleService(BundleDao bundleDao, RabbitMQService rabbitMqService, EncryptionMessageFactory encryptionMessageFactory,
+                         RetryAfterEstimator retryAfterEstimator, GenerationDispatcher generationDispatcher) {
         this.bundleDao = bundleDao;
         this.rabbitMqService = rabbitMqService;
         this.encryptionMessageFactory = encryptionMessageFactory;
+        this.retryAfterEstimator = retryAfterEstimator;
+        this.generationDispatcher = generationDispatcher;
     }
 
     public Optional<Bundle> getLatestBundle(String applicationId, String applicationVersion, String platformName, String firmwareVersion) {
         return bundleDao.getLatestBundle(applicationId, applicationVersion, platformName, firmwareVersion);
     }
 
-    public void triggerBundleGeneration(BundleContext bundleContext) {
+    public Optional<Bundle> getBundle(UUID id) {
+        return bundleDao.getBundle(id);
+    }
+
+    public List<Bundle> getLatestBundles(Collection<ApplicationContext> applicationContexts) {
+        return bundleDao.getLatestBundles(applicationContexts);
+    }
+
+    public void exportBundles(BundleFilter filter, Consumer<Bundle> consumer) {
+        bundleDao.exportBundles(filter, consumer);
+    }
+
+    public BundlePage searchBundles(BundleFilter filter, Optional<BundlePosition> after, int limit) {
+        return bundleDao.searchBundles(filter, after, limit);
+    }
+
+    public List<BundleStatusCount> getBundleStatusCounts() {
+        return bundleDao.getBundleStatusCounts();
+    }
+
+    public Bundle triggerBundleGeneration(BundleContext bundleContext) {
+        final Bundle savedBundle = bundleDao.saveBundleWithStatus(bundleContext.getBundle());
+        return publishIfSaved(bundleContext, savedBundle);
+    }
+
+    /**
+     * Saves all bundles with a single insert and publishes the generation messages back to back. Unlike
+     * {@link #triggerBundleGeneration(BundleContext)} a failed publication does not fail the call; the affected bundle is
+     * returned with {@link BundleStatus#BUNDLE_ERROR} instead. The bundle contexts must belong to distinct applications.
+     */
+    public List<Bundle> triggerBundleGenerations(List<BundleContext> bundleContexts) {
+        final List<Bundle> bundles = bundleContexts.stream().map(BundleContext::getBundle).collect(toList());
+        final Map<ApplicationContext, Bundle> savedBundles = bundleDao.saveBundlesWithStatus(bundles).stream()
+                .collect(toMap(Bundle::getApplicationContext, identity()));
+        return bundleContexts.stream()
+                .map(bundleContext -> {
+                    final Bundle bundle = bundleContext.getBundle();
+                    try {
+                        return publishIfSaved(bundleContext, savedBundles.get(bundle.getApplicationContext()));
+                    } catch (RabbitMQException e) {
+                        LOG.warn("Generation message for bundle id:'{}' could not be sent: {}", bundle.getId(), e.getMessage());
+                        return Bundle.create(bundle.getId(), bundle.getApplicationContext(), BUNDLE_ERROR, bundle.getXRequestId(),
+                                bundle.getMessageTimestamp(), bundle.isEncryptionEnabled());
+                    }
+                })
+                .collect(toList());
+    }
+
+    /**
+     * Saves all bundles with a single insert and queues their generation at background priority. Bundles already in
+     * flight for the same application are returned instead and not generated again. The bundle contexts must belong to
+     * distinct applications.
+     */
+    public List<Bundle> triggerBackgroundBundleGenerations(List<BundleContext> bundleContexts) {
+        final List<Bundle> bundles = bundleContexts.stream().map(BundleContext::getBundle).collect(toList());
+        final Map<ApplicationContext, Bundle> savedBundles = bundleDao.saveBundlesWithStatus(bundles).stream()
+                .collect(toMap(Bundle::getApplicationContext, identity()));
+        return bundleContexts.stream()
+                .map(bundleContext -> {
+                    final Bundle savedBundle = savedBundles.get(bundleContext.getBundle().getApplicationContext());
+                    if (bundleContext.getBundle().getId().equals(savedBundle.getId())) {
+                        generationDispatcher.submitBackground(bundleContext);
+                    }
+                    return savedBundle;
+                })
+                .collect(toList());
+    }
+
+    private Bundle publishIfSaved(BundleContext bundleContext, Bundle savedBundle) {
         final Bundle bundle = bundleContext.getBundle();
-        bundleDao.saveBundleWithStatus(bundle);
-        final var maybeException = rabbitMqService.sendGenerationMessage(bundleContext);
+        if (!bundle.getId().equals(savedBundle.getId())) {
+            LOG.info("Bundle id:'{}' with status:'{}' is already in flight for {}, skipping generation of bundle id:'{}'.",
+                    savedBundle.getId(), savedBundle.getStatus(), bundle.getApplicationContext(), bundle.getId());
+            return savedBundle;
+        }
+        final var maybeException = generationDispatcher.submit(bundleContext);
         maybeException.ifPresent(exception -> {
             bundleDao.updateStatusForBundle(bundle.getId(), BUNDLE_ERROR, bundle.getMessageTimestamp());
             throw exception;
         });
+        return bundle;
     }
 
     public void updateBundleStatusIfNewer(UUID id, BundleStatus status, DateTime messageTimestamp) {
-        final boolean wasUpdated = bundleDao.updateBundleStatusIfNewer(id, status, messageTimestamp);
-        if (wasUpdated) {
+        bundleDao.updateBundleStatusIfNewer(id, status, messageTimestamp).ifPresent(transition -> {
             LOG.info("Bundle for id: '{}' was updated", id);
-        }
+            retryAfterEstimator.record(transition);
+            if (transition.getStatus().compareTo(GENERATION_COMPLETED) >= 0) {
+                generationDispatcher.complete(id);
+            }
+        });
     }
 
     public void triggerBundleEncryption(UUID id, String xRequestId) {
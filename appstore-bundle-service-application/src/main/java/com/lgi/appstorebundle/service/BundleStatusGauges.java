@@ -0,0 +1,96 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.storage.persistent.BundleDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Publishes the number of bundles per platform and status as gauges. The counts are read from the counter table the
+ * database keeps up to date, so a refresh costs one small query regardless of the size of the bundle table.
+ */
+@Service
+public class BundleStatusGauges {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BundleStatusGauges.class);
+    private static final String COUNT_METRIC = "bundle.status.count";
+    private static final String PLATFORM_TAG = "platform";
+    private static final String STATUS_TAG = "status";
+
+    private final long refreshIntervalMillis;
+    private final BundleDao bundleDao;
+    private final MultiGauge counts;
+    private final ScheduledExecutorService refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "bundle-status-gauges");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public BundleStatusGauges(@Value("${bundle.status.counts.refreshInterval}") Duration refreshInterval,
+                              BundleDao bundleDao,
+                              MeterRegistry meterRegistry) {
+        checkArgument(!checkNotNull(refreshInterval, "refreshInterval").isNegative() && !refreshInterval.isZero(),
+                "refreshInterval must be positive");
+        this.refreshIntervalMillis = refreshInterval.toMillis();
+        this.bundleDao = checkNotNull(bundleDao, "bundleDao");
+        this.counts = MultiGauge.builder(COUNT_METRIC)
+                .description("Number of bundles per platform and status")
+                .register(checkNotNull(meterRegistry, "meterRegistry"));
+    }
+
+    @PostConstruct
+    public void start() {
+        refreshExecutor.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refreshExecutor.shutdownNow();
+    }
+
+    void refresh() {
+        try {
+            counts.register(bundleDao.getBundleStatusCounts().stream()
+                    .map(count -> MultiGauge.Row.of(
+                            Tags.of(PLATFORM_TAG, count.getPlatformName(), STATUS_TAG, count.getStatus().name()), count.getCount()))
+                    .collect(toList()), true);
+        } catch (RuntimeException e) {
+            LOG.warn("Bundle status counts could not be refreshed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.api.model.BundleStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Fans bundle status changes out to the clients waiting for them. Subscribers are kept in memory only, so waiting does
+ * not hold any database connection.
+ */
+@Service
+public class BundleStatusSubscriptions {
+
+    private final ConcurrentMap<UUID, Set<Consumer<BundleStatus>>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the action that removes the subscription again. Adding and removing both happen inside the map's atomic
+     * compute, so a subscriber is never added to a set that a concurrent unsubscribe has just dropped from the map.
+     */
+    public Runnable subscribe(UUID id, Consumer<BundleStatus> subscriber) {
+        checkNotNull(id, "id");
+        checkNotNull(subscriber, "subscriber");
+        subscribers.compute(id, (ignored, idSubscribers) -> {
+            final Set<Consumer<BundleStatus>> updatedSubscribers = idSubscribers == null ? new CopyOnWriteArraySet<>() : idSubscribers;
+            updatedSubscribers.add(subscriber);
+            return updatedSubscribers;
+        });
+        return () -> subscribers.computeIfPresent(id, (ignored, idSubscribers) -> {
+            idSubscribers.remove(subscriber);
+            return idSubscribers.isEmpty() ? null : idSubscribers;
+        });
+    }
+
+    public void publish(UUID id, BundleStatus status) {
+        final Set<Consumer<BundleStatus>> idSubscribers = subscribers.get(id);
+        if (idSubscribers != null) {
+            idSubscribers.forEach(subscriber -> subscriber.accept(status));
+        }
+    }
+
+    int subscriberCount(UUID id) {
+        final Set<Consumer<BundleStatus>> idSubscribers = subscribers.get(id);
+        return idSubscribers == null ? 0 : idSubscribers.size();
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.google.common.base.Splitter;
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleContext;
+import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.api.model.QueuedGeneration;
+import com.lgi.appstorebundle.external.OptionalException;
+import com.lgi.appstorebundle.external.RabbitMQService;
+import com.lgi.appstorebundle.storage.persistent.BundleDao;
+import com.lgi.appstorebundle.util.WeightedFairQueue;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.lgi.appstorebundle.api.model.BundleStatus.BUNDLE_ERROR;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Sits between bundle generation requests and the generation queue, so that one maintainer re-bundling its whole
+ * catalogue cannot starve the interactive requests of everybody else. At most {@code maxInFlight} generations are
+ * outstanding at the bundle generator; requests beyond that wait in a {@link WeightedFairQueue} keyed by maintainer code
+ * (and optionally platform) and are published as generations complete. While there is spare capacity requests are
+ * published right away on the calling thread, so publication failures still surface to the caller.
+ * <p>
+ * Background generations, such as catalogue pre-generation, share a single tenant with a low weight, so they use spare
+ * capacity but yield to device requests. They are always queued, never published on the calling thread.
+ * <p>
+ * Queued generations are stored with {@link BundleStatus#GENERATION_QUEUED}, which counts as in flight for the
+ * application, and every instance with spare capacity loads the oldest of them from the database on startup and every
+ * {@code recoveryInterval}, so a restart loses none of them. A queued generation is claimed in the database before it is
+ * published, so it is published by one instance only.
+ * <p>
+ * The in-flight cap is per service instance. A generation stops counting against it when its completion is reported
+ * to this instance, when the database shows it completed, or after {@code inFlightTimeout}.
+ */
+@Service
+public class GenerationDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GenerationDispatcher.class);
+    private static final String WAIT_METRIC = "bundle.generation.dispatch.wait";
+    private static final String QUEUED_METRIC = "bundle.generation.dispatch.queued";
+    private static final String IN_FLIGHT_METRIC = "bundle.generation.dispatch.inFlight";
+    private static final String TENANT_TAG = "tenant";
+    private static final String BACKGROUND_TENANT = "background";
+    private static final double DEFAULT_WEIGHT = 1;
+    private static final long DRAIN_INTERVAL_MILLIS = 1000;
+
+    private final int maxInFlight;
+    private final long inFlightTimeoutNanos;
+    private final long recoveryIntervalMillis;
+    private final boolean tenantByPlatform;
+    private final Map<String, Double> weights;
+    private final double backgroundWeight;
+    private final RabbitMQService rabbitMqService;
+    private final BundleDao bundleDao;
+    private final MeterRegistry meterRegistry;
+    private final WeightedFairQueue<String, QueuedGeneration> queue;
+    private final Set<UUID> queuedIds = new HashSet<>();
+    private final Map<UUID, Long> inFlightSince = new HashMap<>();
+    private final Map<String, Timer> waitTimers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService dispatchExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "generation-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public GenerationDispatcher(@Value("${generation.dispatch.maxInFlight}") int maxInFlight,
+                                @Value("${generation.dispatch.inFlightTimeout}") Duration inFlightTimeout,
+                                @Value("${generation.dispatch.recoveryInterval}") Duration recoveryInterval,
+                                @Value("${generation.dispatch.tenantByPlatform}") boolean tenantByPlatform,
+                                @Value("${generation.dispatch.weights}") String weights,
+                                @Value("${generation.dispatch.backgroundWeight}") double backgroundWeight,
+                                RabbitMQService rabbitMqService,
+                                BundleDao bundleDao,
+                                MeterRegistry meterRegistry) {
+        checkArgument(maxInFlight > 0, "maxInFlight must be positive");
+        this.maxInFlight = maxInFlight;
+        this.inFlightTimeoutNanos = checkNotNull(inFlightTimeout, "inFlightTimeout").toNanos();
+        this.recoveryIntervalMillis = checkNotNull(recoveryInterval, "recoveryInterval").toMillis();
+        checkArgument(recoveryIntervalMillis > 0, "recoveryInterval must be positive");
+        this.tenantByPlatform = tenantByPlatform;
+        this.weights = parseWeights(checkNotNull(weights, "weights"));
+        checkArgument(backgroundWeight > 0, "backgroundWeight must be positive");
+        this.backgroundWeight = backgroundWeight;
+        this.rabbitMqService = checkNotNull(rabbitMqService, "rabbitMqService");
+        this.bundleDao = checkNotNull(bundleDao, "bundleDao");
+        this.meterRegistry = checkNotNull(meterRegistry, "meterRegistry");
+        this.queue = new WeightedFairQueue<>(this::weight);
+        meterRegistry.gauge(QUEUED_METRIC, this, GenerationDispatcher::queued);
+        meterRegistry.gauge(IN_FLIGHT_METRIC, this, GenerationDispatcher::inFlight);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatchExecutor.scheduleWithFixedDelay(this::recover, 0, recoveryIntervalMillis, TimeUnit.MILLISECONDS);
+        dispatchExecutor.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatchExecutor.shutdownNow();
+    }
+
+    /**
+     * Publishes the generation message right away when there is capacity and nobody is waiting, otherwise queues it.
+     * Only the failure of an immediate publication is returned; a queued generation that cannot be published later
+     * moves its bundle to {@link BundleStatus#BUNDLE_ERROR}.
+     */
+    public OptionalException submit(BundleContext bundleContext) {
+        final UUID id = bundleContext.getBundle().getId();
+        final String tenant = tenant(bundleContext);
+        final boolean hasCapacity;
+        synchronized (this) {
+            expireInFlight();
+            hasCapacity = queue.isEmpty() && inFlightSince.size() < maxInFlight;
+            if (hasCapacity) {
+                inFlightSince.put(id, System.nanoTime());
+            }
+        }
+        if (!hasCapacity) {
+            enqueue(List.of(QueuedGeneration.create(bundleContext, tenant, DateTime.now(DateTimeZone.UTC))));
+            return OptionalException.empty();
+        }
+        waitTimer(tenant).record(0, TimeUnit.NANOSECONDS);
+        return publish(bundleContext);
+    }
+
+    /**
+     * Queues the generation at background priority. A failure to publish it later moves its bundle to
+     * {@link BundleStatus#BUNDLE_ERROR}.
+     */
+    public void submitBackground(BundleContext bundleContext) {
+        enqueue(List.of(QueuedGeneration.create(bundleContext, BACKGROUND_TENANT, DateTime.now(DateTimeZone.UTC))));
+        dispatchExecutor.execute(this::drain);
+    }
+
+    /**
+     * Frees the capacity held by the generation of the given bundle, if any, and dispatches the next queued generation.
+     */
+    public void complete(UUID id) {
+        final boolean released;
+        synchronized (this) {
+            released = inFlightSince.remove(id) != null;
+        }
+        if (released) {
+            dispatchExecutor.execute(this::drain);
+        }
+    }
+
+    void drain() {
+        while (true) {
+            final QueuedGeneration next;
+            synchronized (this) {
+                expireInFlight();
+                if (inFlightSince.size() >= maxInFlight) {
+                    return;
+                }
+                final Optional<QueuedGeneration> maybeNext = queue.poll();
+                if (maybeNext.isEmpty()) {
+                    return;
+                }
+                next = maybeNext.get();
+                final UUID id = next.getBundleContext().getBundle().getId();
+                queuedIds.remove(id);
+                inFlightSince.put(id, System.nanoTime());
+            }
+            final BundleContext bundleContext = next.getBundleContext();
+            final Bundle bundle = bundleContext.getBundle();
+            if (!claim(bundle.getId())) {
+                synchronized (this) {
+                    inFlightSince.remove(bundle.getId());
+                }
+                continue;
+            }
+            waitTimer(next.getTenant()).record(Math.max(DateTime.now().getMillis() - next.getQueuedAt().getMillis(), 0), TimeUnit.MILLISECONDS);
+            publish(bundleContext).ifPresent(exception -> {
+                LOG.warn("Queued generation message for bundle id:'{}' could not be sent: {}", bundle.getId(), exception.getMessage());
+                bundleDao.updateStatusForBundle(bundle.getId(), BUNDLE_ERROR, bundle.getMessageTimestamp());
+            });
+        }
+    }
+
+    /**
+     * Releases the capacity of generations the database shows completed, e.g. because their feedback was consumed by
+     * another instance, and picks up the queued generations of every instance, including ones that were queued before a
+     * restart. No more generations per tenant are loaded than this instance could dispatch right now.
+     */
+    void recover() {
+        try {
+            releaseCompletedInFlight();
+            final int freeCapacity;
+            synchronized (this) {
+                expireInFlight();
+                freeCapacity = maxInFlight - inFlightSince.size() - queue.size();
+            }
+            if (freeCapacity > 0) {
+                final List<QueuedGeneration> queuedGenerations = bundleDao.getQueuedGenerations(freeCapacity);
+                final long recovered;
+                synchronized (this) {
+                    recovered = queuedGenerations.stream()
+                            .filter(queuedGeneration -> !inFlightSince.containsKey(queuedGeneration.getBundleContext().getBundle().getId()))
+                            .filter(this::addToQueue)
+                            .count();
+                }
+                if (recovered > 0) {
+                    LOG.info("Recovered {} queued generation(s) from the database.", recovered);
+                }
+            }
+            drain();
+        } catch (RuntimeException e) {
+            LOG.warn("Recovering queued generations failed: {}", e.getMessage());
+        }
+    }
+
+    synchronized int queued() {
+        return queue.size();
+    }
+
+    synchronized int inFlight() {
+        return inFlightSince.size();
+    }
+
+    private void enqueue(List<QueuedGeneration> queuedGenerations) {
+        final Set<UUID> persistedIds = new HashSet<>(bundleDao.queueBundleGenerations(queuedGenerations));
+        synchronized (this) {
+            for (QueuedGeneration queuedGeneration : queuedGenerations) {
+                final UUID id = queuedGeneration.getBundleContext().getBundle().getId();
+                if (!persistedIds.contains(id)) {
+                    LOG.warn("Bundle id:'{}' is no longer requested, its generation is not queued.", id);
+                } else if (addToQueue(queuedGeneration)) {
+                    LOG.info("Generation of bundle id:'{}' queued for tenant:'{}', {} generation(s) waiting.",
+                            id, queuedGeneration.getTenant(), queue.size());
+                }
+            }
+        }
+    }
+
+    private boolean addToQueue(QueuedGeneration queuedGeneration) {
+        if (!queuedIds.add(queuedGeneration.getBundleContext().getBundle().getId())) {
+            return false;
+        }
+        queue.add(queuedGeneration.getTenant(), queuedGeneration);
+        return true;
+    }
+
+    /**
+     * A generation that cannot be claimed now stays queued in the database and is picked up again by {@link #recover()}.
+     */
+    private boolean claim(UUID id) {
+        try {
+            return bundleDao.claimQueuedGeneration(id);
+        } catch (RuntimeException e) {
+            LOG.warn("Queued generation of bundle id:'{}' could not be claimed: {}", id, e.getMessage());
+            return false;
+        }
+    }
+
+    private void releaseCompletedInFlight() {
+        final Set<UUID> ids;
+        synchronized (this) {
+            ids = new HashSet<>(inFlightSince.keySet());
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        final List<UUID> completedIds = bundleDao.getBundleStatuses(ids).entrySet().stream()
+                .filter(status -> status.getValue().compareTo(GENERATION_COMPLETED) >= 0)
+                .map(Map.Entry::getKey)
+                .collect(toList());
+        synchronized (this) {
+            completedIds.forEach(inFlightSince::remove);
+        }
+    }
+
+    private OptionalException publish(BundleContext bundleContext) {
+        final OptionalException result = rabbitMqService.sendGenerationMessage(bundleContext);
+        if (result.isPresent()) {
+            synchronized (this) {
+                inFlightSince.remove(bundleContext.getBundle().getId());
+            }
+        }
+        return result;
+    }
+
+    private void expireInFlight() {
+        final long now = System.nanoTime();
+        inFlightSince.entrySet().removeIf(entry -> {
+            final boolean expired = now - entry.getValue() > inFlightTimeoutNanos;
+            if (expired) {
+                LOG.warn("Completion of the generation of bundle id:'{}' was not reported in time, releasing its dispatch slot.", entry.getKey());
+            }
+            return expired;
+        });
+    }
+
+    private String tenant(BundleContext bundleContext) {
+        return tenantByPlatform
+                ? bundleContext.getMaintainerCode() + "/" + bundleContext.getBundle().getApplicationContext().getPlatformName()
+                : bundleContext.getMaintainerCode();
+    }
+
+    private double weight(String tenant) {
+        if (BACKGROUND_TENANT.equals(tenant)) {
+            return backgroundWeight;
+        }
+        final int platformSeparator = tenant.indexOf('/');
+        final String maintainerCode = tenantByPlatform && platformSeparator >= 0 ? tenant.substring(0, platformSeparator) : tenant;
+        return weights.getOrDefault(maintainerCode, DEFAULT_WEIGHT);
+    }
+
+    private Timer waitTimer(String tenant) {
+        return waitTimers.computeIfAbsent(tenant, ignored -> Timer.builder(WAIT_METRIC)
+                .tag(TENANT_TAG, tenant)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    /**
+     * Parses weights given as {@code maintainerCode=weight} pairs separated by commas.
+     */
+    private static Map<String, Double> parseWeights(String weights) {
+        return Splitter.on(',').omitEmptyStrings().trimResults().withKeyValueSeparator(Splitter.on('=').trimResults()).split(weights).entrySet().stream()
+                .collect(toMap(Map.Entry::getKey, entry -> {
+                    final double weight = Double.parseDouble(entry.getValue());
+                    checkArgument(weight > 0, "weight of maintainer %s must be positive", entry.getKey());
+                    return weight;
+                }));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lgi.appstorebundle.api.model.ApplicationContext;
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.error.exception.XRequestIdConflictException;
+import com.lgi.appstorebundle.storage.persistent.BundleDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.lgi.appstorebundle.api.model.BundleStatus.BUNDLE_ERROR;
+
+/**
+ * Only bundle ids are cached, the bundle itself is read again on every lookup so that a repeated x-request-id sees the
+ * current status. A repeated x-request-id whose bundle failed or belongs to another application context is rejected
+ * rather than handled again.
+ */
+@Service
+public class IdempotencyService {
+
+    static final String X_REQUEST_ID_CACHE_NAME = "bundle.x.request.id";
+
+    private final BundleDao bundleDao;
+    private final Cache<String, UUID> bundleIdsByXRequestId;
+
+    @Autowired
+    public IdempotencyService(BundleDao bundleDao,
+                              @Value("${idempotency.cache.maximumSize}") long maximumSize,
+                              @Value("${idempotency.cache.expireAfterWrite}") Duration expireAfterWrite,
+                              MeterRegistry meterRegistry) {
+        this.bundleDao = checkNotNull(bundleDao, "bundleDao");
+        this.bundleIdsByXRequestId = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(checkNotNull(expireAfterWrite, "expireAfterWrite"))
+                        .recordStats()
+                        .<String, UUID>build(),
+                X_REQUEST_ID_CACHE_NAME);
+    }
+
+    public Optional<Bundle> findBundle(String xRequestId, ApplicationContext applicationContext) {
+        final UUID cachedId = bundleIdsByXRequestId.getIfPresent(xRequestId);
+        final Optional<Bundle> maybeBundle = cachedId != null
+                ? bundleDao.getBundle(cachedId)
+                : bundleDao.getBundleByXRequestId(xRequestId);
+        maybeBundle.ifPresent(bundle -> {
+            bundleIdsByXRequestId.put(xRequestId, bundle.getId());
+            if (!bundle.getApplicationContext().equals(applicationContext)) {
+                throw XRequestIdConflictException.otherApplication(xRequestId, bundle.getId());
+            }
+            if (bundle.getStatus() == BUNDLE_ERROR) {
+                throw XRequestIdConflictException.failedBundle(xRequestId, bundle.getId());
+            }
+        });
+        return maybeBundle;
+    }
+
+    public void remember(String xRequestId, Bundle bundle) {
+        bundleIdsByXRequestId.put(xRequestId, bundle.getId());
+    }
+}
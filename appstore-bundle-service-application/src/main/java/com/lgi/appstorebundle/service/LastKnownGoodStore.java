@@ -0,0 +1,76 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.lgi.appstorebundle.configuration.ApplicationMetadataCacheConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Remembers the last metadata ASMS returned per key, for much longer than the metadata cache keeps it, and answers
+ * from it when an ASMS call fails, including when the circuit breaker is open. The stale answer is cached like a fresh
+ * one, so ASMS is only asked again when the entry is due for refresh. A key ASMS no longer knows is forgotten.
+ */
+final class LastKnownGoodStore<K, V> {
+
+    static final String STALE_RESPONSES_METRIC = "asms.stale.responses";
+
+    private static final Logger LOG = LoggerFactory.getLogger(LastKnownGoodStore.class);
+
+    private final Cache<K, V> store;
+    private final Counter staleResponses;
+
+    LastKnownGoodStore(String cacheName, ApplicationMetadataCacheConfiguration cacheConfiguration, MeterRegistry meterRegistry, Ticker ticker) {
+        this.store = CaffeineCacheMetrics.monitor(meterRegistry,
+                Caffeine.newBuilder()
+                        .maximumSize(cacheConfiguration.getLastKnownGoodMaximumSize())
+                        .expireAfterWrite(cacheConfiguration.getLastKnownGoodExpireAfterWrite())
+                        .ticker(ticker)
+                        .recordStats()
+                        .build(),
+                cacheName + ".last.known.good");
+        this.staleResponses = meterRegistry.counter(STALE_RESPONSES_METRIC, "cache", cacheName);
+    }
+
+    CompletableFuture<Optional<V>> load(K key, CompletableFuture<Optional<V>> response) {
+        return response.handle((result, throwable) -> {
+            if (throwable == null) {
+                result.ifPresentOrElse(value -> store.put(key, value), () -> store.invalidate(key));
+                return result;
+            }
+            final V lastKnown = store.getIfPresent(key);
+            if (lastKnown == null) {
+                throw throwable instanceof CompletionException ? (CompletionException) throwable : new CompletionException(throwable);
+            }
+            staleResponses.increment();
+            LOG.warn("ASMS call for '{}' failed, serving the last known metadata: {}", key, throwable.toString());
+            return Optional.of(lastKnown);
+        });
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.api.model.ApplicationContext;
+import com.lgi.appstorebundle.api.model.PrewarmJobState;
+import org.joda.time.DateTime;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Progress of pre-generating the bundles of a list of applications for one platform and firmware version. Every
+ * application ends up with exactly one {@link Outcome} once the job is finished.
+ */
+public class PrewarmJob {
+
+    public enum Outcome {
+        /** A healthy bundle already existed or was already being generated. */
+        SKIPPED,
+        /** Generation was queued at background priority. */
+        QUEUED,
+        /** The application is not known to ASMS for the platform and firmware version. */
+        NOT_FOUND,
+        /** ASMS lookup or saving the bundle failed. */
+        FAILED
+    }
+
+    private final UUID id;
+    private final String platformName;
+    private final String firmwareVersion;
+    private final List<ApplicationContext> applicationContexts;
+    private final DateTime startedAt;
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(Outcome.values().length);
+    private volatile DateTime finishedAt;
+
+    public PrewarmJob(UUID id, String platformName, String firmwareVersion, List<ApplicationContext> applicationContexts, DateTime startedAt) {
+        this.id = checkNotNull(id, "id");
+        this.platformName = checkNotNull(platformName, "platformName");
+        this.firmwareVersion = checkNotNull(firmwareVersion, "firmwareVersion");
+        this.applicationContexts = List.copyOf(applicationContexts);
+        this.startedAt = checkNotNull(startedAt, "startedAt");
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getPlatformName() {
+        return platformName;
+    }
+
+    public String getFirmwareVersion() {
+        return firmwareVersion;
+    }
+
+    public List<ApplicationContext> getApplicationContexts() {
+        return applicationContexts;
+    }
+
+    public int getTotal() {
+        return applicationContexts.size();
+    }
+
+    public int getCount(Outcome outcome) {
+        return counts.get(outcome.ordinal());
+    }
+
+    public DateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public Optional<DateTime> getFinishedAt() {
+        return Optional.ofNullable(finishedAt);
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    PrewarmJobState toState() {
+        return PrewarmJobState.create(id, platformName, firmwareVersion, applicationContexts, getCount(Outcome.SKIPPED), getCount(Outcome.QUEUED),
+                getCount(Outcome.NOT_FOUND), getCount(Outcome.FAILED), startedAt, getFinishedAt());
+    }
+
+    static PrewarmJob fromState(PrewarmJobState state) {
+        final PrewarmJob job = new PrewarmJob(state.getId(), state.getPlatformName(), state.getFirmwareVersion(), state.getApplicationContexts(),
+                state.getStartedAt());
+        job.record(Outcome.SKIPPED, state.getSkipped());
+        job.record(Outcome.QUEUED, state.getQueued());
+        job.record(Outcome.NOT_FOUND, state.getNotFound());
+        job.record(Outcome.FAILED, state.getFailed());
+        state.getFinishedAt().ifPresent(job::finish);
+        return job;
+    }
+
+    void record(Outcome outcome, int count) {
+        counts.addAndGet(outcome.ordinal(), count);
+    }
+
+    void finish(DateTime finishedAt) {
+        this.finishedAt = checkNotNull(finishedAt, "finishedAt");
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.lgi.appstorebundle.api.ApplicationParams;
+import com.lgi.appstorebundle.api.model.ApplicationContext;
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleContext;
+import com.lgi.appstorebundle.error.exception.ApplicationNotFoundException;
+import com.lgi.appstorebundle.error.exception.InvalidPrewarmRequestException;
+import com.lgi.appstorebundle.service.PrewarmJob.Outcome;
+import com.lgi.appstorebundle.storage.persistent.PrewarmJobDao;
+import com.lgi.appstorebundle.util.BoundedParallelism;
+import com.lgi.appstorebundle.util.EncryptionHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.lgi.appstorebundle.api.model.BundleStatus.BUNDLE_ERROR;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
+import static com.lgi.appstorebundle.configuration.BundleExecutorConfiguration.BUNDLE_EXECUTOR;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Pre-generates the bundles of a list of applications for a new platform firmware version, so that devices picking up
+ * the firmware find warm bundles instead of waiting for a full generation. Applications are resolved in ASMS with
+ * bounded parallelism, applications that already have a healthy bundle are skipped and the remaining generations are
+ * saved in chunks and queued at background priority in the {@link GenerationDispatcher}, which keeps them in the database.
+ * <p>
+ * Jobs are stored in the database, so their progress can be polled on any instance and survives restarts. The instance
+ * running a job stores its progress every {@code heartbeatInterval}; an unfinished job whose progress was not stored for
+ * {@code abandonAfter} is taken over and run again by another instance. A job run again reports the applications it
+ * queued before as skipped, since they are already being generated.
+ */
+@Service
+public class PrewarmService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PrewarmService.class);
+
+    private static final String PREWARM_APPLICATIONS_METRIC = "bundle.prewarm.applications";
+    private static final String OUTCOME_TAG = "outcome";
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+    private static final int TRIGGER_CHUNK_SIZE = 100;
+    private static final Splitter CATALOG_ENTRY_SPLITTER = Splitter.on(':').trimResults().limit(2);
+
+    private final int asmsParallelism;
+    private final Optional<Path> catalogFile;
+    private final ApplicationMetadataService applicationMetadataService;
+    private final BundleService bundleService;
+    private final EncryptionHelper encryptionHelper;
+    private final MeterRegistry meterRegistry;
+    private final Executor executor;
+    private final PrewarmJobDao prewarmJobDao;
+    private final long heartbeatIntervalMillis;
+    private final Duration abandonAfter;
+    private final Duration jobsExpireAfterWrite;
+    private final Map<UUID, PrewarmJob> runningJobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "prewarm-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public PrewarmService(@Value("${prewarm.asms.parallelism}") int asmsParallelism,
+                          @Value("${prewarm.catalog.file}") String catalogFile,
+                          @Value("${prewarm.jobs.expireAfterWrite}") Duration jobsExpireAfterWrite,
+                          @Value("${prewarm.jobs.heartbeatInterval}") Duration heartbeatInterval,
+                          @Value("${prewarm.jobs.abandonAfter}") Duration abandonAfter,
+                          ApplicationMetadataService applicationMetadataService,
+                          BundleService bundleService,
+                          EncryptionHelper encryptionHelper,
+                          MeterRegistry meterRegistry,
+                          PrewarmJobDao prewarmJobDao,
+                          @Qualifier(BUNDLE_EXECUTOR) Executor executor) {
+        checkArgument(asmsParallelism > 0, "asmsParallelism must be positive");
+        this.asmsParallelism = asmsParallelism;
+        this.catalogFile = Optional.ofNullable(Strings.emptyToNull(catalogFile)).map(Path::of);
+        this.applicationMetadataService = checkNotNull(applicationMetadataService, "applicationMetadataService");
+        this.bundleService = checkNotNull(bundleService, "bundleService");
+        this.encryptionHelper = checkNotNull(encryptionHelper, "encryptionHelper");
+        this.meterRegistry = checkNotNull(meterRegistry, "meterRegistry");
+        this.prewarmJobDao = checkNotNull(prewarmJobDao, "prewarmJobDao");
+        this.executor = checkNotNull(executor, "executor");
+        this.jobsExpireAfterWrite = checkNotNull(jobsExpireAfterWrite, "jobsExpireAfterWrite");
+        this.heartbeatIntervalMillis = checkNotNull(heartbeatInterval, "heartbeatInterval").toMillis();
+        this.abandonAfter = checkNotNull(abandonAfter, "abandonAfter");
+        checkArgument(heartbeatIntervalMillis > 0, "heartbeatInterval must be positive");
+        checkArgument(abandonAfter.compareTo(heartbeatInterval) > 0, "abandonAfter must exceed heartbeatInterval");
+    }
+
+    @PostConstruct
+    public void startHeartbeat() {
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stopHeartbeat() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts pre-generating the given applications, or the applications of the configured catalog file when none are
+     * given. Application parameters must be for the given platform name and firmware version.
+     */
+    public PrewarmJob start(String platformName, String firmwareVersion, List<ApplicationParams> applications) {
+        final List<ApplicationParams> requestedApplications = applications.isEmpty()
+                ? readCatalog(platformName, firmwareVersion)
+                : applications;
+        final Map<ApplicationContext, ApplicationParams> distinctApplications = new LinkedHashMap<>();
+        requestedApplications.forEach(applicationParams -> distinctApplications.putIfAbsent(toApplicationContext(applicationParams), applicationParams));
+        final PrewarmJob job = new PrewarmJob(randomUUID(), platformName, firmwareVersion,
+                List.copyOf(distinctApplications.keySet()), DateTime.now(DateTimeZone.UTC));
+        prewarmJobDao.savePrewarmJob(job.toState());
+        LOG.info("Starting prewarm job id:'{}' of {} application(s) for platformName:'{}', firmwareVersion:'{}'.",
+                job.getId(), job.getTotal(), platformName, firmwareVersion);
+        run(job, distinctApplications);
+        return job;
+    }
+
+    public Optional<PrewarmJob> getJob(UUID id) {
+        return Optional.ofNullable(runningJobs.get(id))
+                .or(() -> prewarmJobDao.getPrewarmJob(id).map(PrewarmJob::fromState));
+    }
+
+    /**
+     * Number of applications of the job whose latest bundle is completed, i.e. ready for devices.
+     */
+    public long countCompleted(PrewarmJob job) {
+        return getLatestBundles(job).stream().filter(Bundle::isCompleted).count();
+    }
+
+    /**
+     * Stores the progress of the jobs running on this instance, takes over one abandoned job and deletes expired jobs.
+     */
+    void heartbeat() {
+        try {
+            runningJobs.values().forEach(job -> prewarmJobDao.updatePrewarmJob(job.toState()));
+            prewarmJobDao.claimAbandonedPrewarmJob(abandonAfter).map(PrewarmJob::fromState).ifPresent(job -> {
+                LOG.info("Resuming abandoned prewarm job id:'{}' of {} application(s) for platformName:'{}', firmwareVersion:'{}'.",
+                        job.getId(), job.getTotal(), job.getPlatformName(), job.getFirmwareVersion());
+                final Map<ApplicationContext, ApplicationParams> applications = new LinkedHashMap<>();
+                job.getApplicationContexts().forEach(applicationContext -> applications.put(applicationContext, toApplicationParams(applicationContext)));
+                run(job, applications);
+            });
+            prewarmJobDao.deletePrewarmJobsFinishedBefore(DateTime.now(DateTimeZone.UTC).minus(jobsExpireAfterWrite.toMillis()));
+        } catch (RuntimeException e) {
+            LOG.warn("Prewarm job heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void run(PrewarmJob job, Map<ApplicationContext, ApplicationParams> distinctApplications) {
+        runningJobs.put(job.getId(), job);
+        supplyAsync(() -> getLatestBundles(job), executor)
+                .thenCompose(latestBundles -> {
+                    final Set<ApplicationContext> healthy = latestBundles.stream()
+                            .filter(bundle -> bundle.getStatus() != BUNDLE_ERROR)
+                            .map(Bundle::getApplicationContext)
+                            .collect(toSet());
+                    record(job, Outcome.SKIPPED, healthy.size());
+                    final List<ApplicationParams> missing = distinctApplications.entrySet().stream()
+                            .filter(entry -> !healthy.contains(entry.getKey()))
+                            .map(Map.Entry::getValue)
+                            .collect(toList());
+                    CompletableFuture<Void> prewarmed = CompletableFuture.completedFuture(null);
+                    for (List<ApplicationParams> chunk : Lists.partition(missing, TRIGGER_CHUNK_SIZE)) {
+                        prewarmed = prewarmed.thenCompose(ignored -> prewarm(job, chunk));
+                    }
+                    return prewarmed;
+                })
+                .whenComplete((ignored, failure) -> {
+                    if (failure != null) {
+                        LOG.warn("Prewarm job id:'{}' failed: {}", job.getId(), failure.getMessage());
+                        record(job, Outcome.FAILED, job.getTotal() - recorded(job));
+                    }
+                    job.finish(DateTime.now(DateTimeZone.UTC));
+                    LOG.info("Finished prewarm job id:'{}': {} skipped, {} queued, {} not found, {} failed.", job.getId(),
+                            job.getCount(Outcome.SKIPPED), job.getCount(Outcome.QUEUED), job.getCount(Outcome.NOT_FOUND), job.getCount(Outcome.FAILED));
+                    try {
+                        prewarmJobDao.updatePrewarmJob(job.toState());
+                    } catch (RuntimeException e) {
+                        LOG.warn("Progress of finished prewarm job id:'{}' could not be stored: {}", job.getId(), e.getMessage());
+                    } finally {
+                        runningJobs.remove(job.getId());
+                    }
+                });
+    }
+
+    private List<Bundle> getLatestBundles(PrewarmJob job) {
+        return Lists.partition(job.getApplicationContexts(), LOOKUP_CHUNK_SIZE).stream()
+                .flatMap(applicationContexts -> bundleService.getLatestBundles(applicationContexts).stream())
+                .collect(toList());
+    }
+
+    /**
+     * Resolves the bundle contexts of the applications in ASMS and queues all generations that could be resolved with a
+     * single bulk insert.
+     */
+    private CompletableFuture<Void> prewarm(PrewarmJob job, List<ApplicationParams> applications) {
+        return BoundedParallelism.map(applications, asmsParallelism, applicationParams -> resolveBundleContext(job, applicationParams)
+                        .thenApply(Optional::of)
+                        .exceptionally(failure -> {
+                            final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                            if (cause instanceof ApplicationNotFoundException) {
+                                record(job, Outcome.NOT_FOUND, 1);
+                            } else {
+                                LOG.warn("Prewarm job id:'{}' could not resolve {}: {}", job.getId(), applicationParams.getFullyQualifiedApplicationName(), cause.getMessage());
+                                record(job, Outcome.FAILED, 1);
+                            }
+                            return Optional.empty();
+                        }))
+                .thenAcceptAsync(maybeBundleContexts -> {
+                    final List<BundleContext> bundleContexts = maybeBundleContexts.stream().flatMap(Optional::stream).collect(toList());
+                    if (bundleContexts.isEmpty()) {
+                        return;
+                    }
+                    try {
+                        final List<Bundle> bundles = bundleService.triggerBackgroundBundleGenerations(bundleContexts);
+                        final int queued = (int) IntStream.range(0, bundleContexts.size())
+                                .filter(index -> bundles.get(index).getId().equals(bundleContexts.get(index).getBundle().getId()))
+                                .count();
+                        record(job, Outcome.QUEUED, queued);
+                        record(job, Outcome.SKIPPED, bundleContexts.size() - queued);
+                    } catch (RuntimeException e) {
+                        LOG.warn("Prewarm job id:'{}' could not queue {} application(s): {}", job.getId(), bundleContexts.size(), e.getMessage());
+                        record(job, Outcome.FAILED, bundleContexts.size());
+                    }
+                }, executor);
+    }
+
+    private CompletableFuture<BundleContext> resolveBundleContext(PrewarmJob job, ApplicationParams applicationParams) {
+        final Supplier<ApplicationNotFoundException> notFound = () -> ApplicationNotFoundException.createDefault(applicationParams.getApplicationId(),
+                applicationParams.getAppVersion(), applicationParams.getPlatformName(), applicationParams.getFirmwareVersion());
+        return applicationMetadataService.getApplicationMetadata(applicationParams)
+                .thenApply(maybeMetadata -> maybeMetadata.orElseThrow(notFound))
+                .thenCompose(applicationMetadata -> {
+                    final String maintainerCode = applicationMetadata.getMaintainer().getCode();
+                    return applicationMetadataService.getApplicationMetadataForMaintainerCode(applicationParams, maintainerCode)
+                            .thenApply(maybeMetadata -> maybeMetadata.orElseThrow(notFound))
+                            .thenApply(applicationMetadataForMaintainer -> {
+                                final boolean isEncryptionEnabled = encryptionHelper.isEncryptionEnabled(applicationMetadataForMaintainer);
+                                final UUID bundleId = randomUUID();
+                                final Bundle bundle = Bundle.create(bundleId, toApplicationContext(applicationParams), GENERATION_REQUESTED,
+                                        "prewarm-" + job.getId() + "-" + bundleId, DateTime.now(DateTimeZone.UTC), isEncryptionEnabled);
+                                return BundleContext.create(bundle, applicationMetadataForMaintainer.getHeader().getOciImageUrl(),
+                                        isEncryptionEnabled, maintainerCode);
+                            });
+                });
+    }
+
+    private List<ApplicationParams> readCatalog(String platformName, String firmwareVersion) {
+        final Path path = catalogFile.orElseThrow(InvalidPrewarmRequestException::noApplications);
+        try {
+            return Files.readAllLines(path).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .map(CATALOG_ENTRY_SPLITTER::splitToList)
+                    .filter(entry -> {
+                        if (entry.size() != 2) {
+                            LOG.warn("Skipping catalog entry '{}' of {}, expected appId:appVersion.", String.join(":", entry), path);
+                            return false;
+                        }
+                        return true;
+                    })
+                    .map(entry -> ApplicationParams.create(entry.get(0), entry.get(1), platformName, firmwareVersion, entry.get(0)))
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Prewarm catalog " + path + " could not be read", e);
+        }
+    }
+
+    private void record(PrewarmJob job, Outcome outcome, int count) {
+        job.record(outcome, count);
+        meterRegistry.counter(PREWARM_APPLICATIONS_METRIC, OUTCOME_TAG, outcome.name()).increment(count);
+    }
+
+    private static int recorded(PrewarmJob job) {
+        int recorded = 0;
+        for (Outcome outcome : Outcome.values()) {
+            recorded += job.getCount(outcome);
+        }
+        return recorded;
+    }
+
+    private static ApplicationParams toApplicationParams(ApplicationContext applicationContext) {
+        return ApplicationParams.create(applicationContext.getApplicationId(), applicationContext.getApplicationVersion(),
+                applicationContext.getPlatformName(), applicationContext.getFirmwareVersion(), applicationContext.getApplicationId());
+    }
+
+    private static ApplicationContext toApplicationContext(ApplicationParams applicationParams) {
+        return ApplicationContext.create(applicationParams.getApplicationId(), applicationParams.getAppVersion(),
+                applicationParams.getPlatformName(), applicationParams.getFirmwareVersion());
+    }
+}
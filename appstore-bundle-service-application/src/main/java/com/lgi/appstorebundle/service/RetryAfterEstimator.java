@@ -0,0 +1,169 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.api.model.BundleStatusTransition;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.joda.time.DateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_LAUNCHED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_REQUESTED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_LAUNCHED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
+
+/**
+ * Estimates how long a client should wait before polling a bundle again, from the bundle's current status and the
+ * exponentially weighted moving average of how long each remaining pipeline phase took on the bundle's platform.
+ * The estimate is jittered so that device fleets polling in lockstep spread out over time.
+ */
+@Service
+public class RetryAfterEstimator {
+
+    private static final double SMOOTHING_FACTOR = 0.2;
+    private static final String PHASE_DURATION_METRIC = "bundle.phase.duration";
+
+    enum Phase {
+        GENERATION_WAIT(GENERATION_REQUESTED, GENERATION_LAUNCHED),
+        GENERATION(GENERATION_LAUNCHED, GENERATION_COMPLETED),
+        ENCRYPTION_WAIT(ENCRYPTION_REQUESTED, ENCRYPTION_LAUNCHED),
+        ENCRYPTION(ENCRYPTION_LAUNCHED, ENCRYPTION_COMPLETED);
+
+        private final BundleStatus from;
+        private final BundleStatus to;
+
+        Phase(BundleStatus from, BundleStatus to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean isEncryption() {
+            return from.compareTo(ENCRYPTION_REQUESTED) >= 0;
+        }
+
+        static Optional<Phase> of(BundleStatus from, BundleStatus to) {
+            return Stream.of(values())
+                    .filter(phase -> phase.from == from && phase.to == to)
+                    .findFirst();
+        }
+    }
+
+    private final Duration defaultRetryAfter;
+    private final Duration minRetryAfter;
+    private final Duration maxRetryAfter;
+    private final double jitter;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, ConcurrentMap<Phase, Double>> averageMillisByPlatform = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<Phase, Timer>> timersByPlatform = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RetryAfterEstimator(@Value("${http.retry.after}") Duration defaultRetryAfter,
+                               @Value("${http.retry.after.min}") Duration minRetryAfter,
+                               @Value("${http.retry.after.max}") Duration maxRetryAfter,
+                               @Value("${http.retry.after.jitter}") double jitter,
+                               MeterRegistry meterRegistry) {
+        this.defaultRetryAfter = checkNotNull(defaultRetryAfter, "defaultRetryAfter");
+        this.minRetryAfter = checkNotNull(minRetryAfter, "minRetryAfter");
+        this.maxRetryAfter = checkNotNull(maxRetryAfter, "maxRetryAfter");
+        checkArgument(minRetryAfter.compareTo(maxRetryAfter) <= 0, "minRetryAfter must not exceed maxRetryAfter");
+        checkArgument(jitter >= 0 && jitter < 1, "jitter must be in [0, 1)");
+        this.jitter = jitter;
+        this.meterRegistry = checkNotNull(meterRegistry, "meterRegistry");
+    }
+
+    /**
+     * Only transitions between adjacent statuses are taken into account, as a skipped feedback message would otherwise
+     * be attributed to a single phase.
+     */
+    public void record(BundleStatusTransition transition) {
+        Phase.of(transition.getPreviousStatus(), transition.getStatus()).ifPresent(phase -> {
+            final long millis = transition.getMessageTimestamp().getMillis() - transition.getPreviousMessageTimestamp().getMillis();
+            if (millis < 0) {
+                return;
+            }
+            averageMillisByPlatform.computeIfAbsent(transition.getPlatformName(), ignored -> new ConcurrentHashMap<>())
+                    .merge(phase, (double) millis, (average, sample) -> average + SMOOTHING_FACTOR * (sample - average));
+            timer(transition.getPlatformName(), phase).record(millis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private Timer timer(String platformName, Phase phase) {
+        return timersByPlatform.computeIfAbsent(platformName, ignored -> new ConcurrentHashMap<>())
+                .computeIfAbsent(phase, ignored -> Timer.builder(PHASE_DURATION_METRIC)
+                        .tag("platform", platformName)
+                        .tag("phase", phase.name())
+                        .register(meterRegistry));
+    }
+
+    public Duration retryAfter(Bundle bundle) {
+        final List<Phase> remainingPhases = Stream.of(Phase.values())
+                .filter(phase -> phase.to.compareTo(bundle.getStatus()) > 0)
+                .filter(phase -> bundle.isEncryptionEnabled() || !phase.isEncryption())
+                .collect(Collectors.toList());
+        if (remainingPhases.isEmpty() || bundle.getStatus() == BundleStatus.BUNDLE_ERROR) {
+            return minRetryAfter;
+        }
+        return clamp(jittered(estimate(bundle, remainingPhases).orElse(defaultRetryAfter)));
+    }
+
+    private Optional<Duration> estimate(Bundle bundle, List<Phase> remainingPhases) {
+        final ConcurrentMap<Phase, Double> averageMillis = averageMillisByPlatform.get(bundle.getApplicationContext().getPlatformName());
+        if (averageMillis == null || !averageMillis.keySet().containsAll(remainingPhases)) {
+            return Optional.empty();
+        }
+        final double remainingMillis = remainingPhases.stream().mapToDouble(averageMillis::get).sum();
+        final long elapsedMillis = DateTime.now().getMillis() - bundle.getMessageTimestamp().getMillis();
+        return Optional.of(Duration.ofMillis(Math.round(remainingMillis) - Math.max(elapsedMillis, 0)));
+    }
+
+    private Duration jittered(Duration duration) {
+        final double factor = 1 + jitter * ThreadLocalRandom.current().nextDouble(-1, 1);
+        return Duration.ofMillis(Math.round(duration.toMillis() * factor));
+    }
+
+    /**
+     * Rounds up to whole seconds, the resolution of the Retry-After header.
+     */
+    private Duration clamp(Duration duration) {
+        duration = Duration.ofSeconds((duration.toMillis() + 999) / 1000);
+        if (duration.compareTo(minRetryAfter) < 0) {
+            return minRetryAfter;
+        }
+        return duration.compareTo(maxRetryAfter) > 0 ? maxRetryAfter : duration;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.util;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Applies an asynchronous task to every item while keeping at most {@code parallelism} tasks running. A new task is
+ * started whenever a running one completes; results are returned in item order.
+ */
+public final class BoundedParallelism {
+
+    private BoundedParallelism() {
+    }
+
+    public static <T, R> CompletableFuture<List<R>> map(List<T> items, int parallelism, Function<T, CompletableFuture<R>> task) {
+        checkNotNull(items, "items");
+        checkNotNull(task, "task");
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        final List<CompletableFuture<R>> results = items.stream()
+                .map(item -> new CompletableFuture<R>())
+                .collect(toList());
+        final AtomicInteger nextIndex = new AtomicInteger();
+        for (int i = 0; i < Math.min(parallelism, items.size()); i++) {
+            startNext(items, task, results, nextIndex);
+        }
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> results.stream().map(CompletableFuture::join).collect(toList()));
+    }
+
+    private static <T, R> void startNext(List<T> items, Function<T, CompletableFuture<R>> task,
+                                         List<CompletableFuture<R>> results, AtomicInteger nextIndex) {
+        final int index = nextIndex.getAndIncrement();
+        if (index >= items.size()) {
+            return;
+        }
+        CompletableFuture<R> running;
+        try {
+            running = task.apply(items.get(index));
+        } catch (RuntimeException e) {
+            running = CompletableFuture.failedFuture(e);
+        }
+        running.whenComplete((result, failure) -> {
+            if (failure != null) {
+                results.get(index).completeExceptionally(failure);
+            } else {
+                results.get(index).complete(result);
+            }
+            startNext(items, task, results, nextIndex);
+        });
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.util;
+
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.model.EncryptionMessageFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Resolves where devices download a completed bundle from, using the same path layout the bundle cryptor is told to
+ * publish the bundle under. Without a configured base URL only the path is known, which must not be used as a redirect
+ * since this service does not serve bundle files.
+ */
+@Component
+public class BundleLocations {
+
+    private final String baseUrl;
+    private final EncryptionMessageFactory encryptionMessageFactory;
+
+    @Autowired
+    public BundleLocations(@Value("${bundle.download.baseUrl}") String baseUrl, EncryptionMessageFactory encryptionMessageFactory) {
+        this.baseUrl = checkNotNull(baseUrl, "baseUrl");
+        this.encryptionMessageFactory = checkNotNull(encryptionMessageFactory, "encryptionMessageFactory");
+    }
+
+    public boolean hasBaseUrl() {
+        return !baseUrl.isEmpty();
+    }
+
+    public URI of(Bundle bundle) {
+        return UriComponentsBuilder.fromUriString(baseUrl)
+                .path(encryptionMessageFactory.buildBundleUrl(bundle.getApplicationContext()))
+                .encode()
+                .build()
+                .toUri();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.util;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Runs at most {@code concurrencyLimit} tasks at a time on the delegate executor and rejects further tasks with a
+ * {@link TaskRejectedException} instead of blocking the caller.
+ * <p>
+ * Every task holds its own permit until it returns. Dependent stages of a {@link java.util.concurrent.CompletableFuture}
+ * are submitted from the thread that completes it, so the next step of a request briefly needs a second permit while
+ * the previous one finishes; the limit has to leave room for that.
+ */
+public class ConcurrencyLimitedTaskExecutor implements TaskExecutor {
+
+    private final Executor delegate;
+    private final int concurrencyLimit;
+    private final Semaphore permits;
+
+    public ConcurrencyLimitedTaskExecutor(Executor delegate, int concurrencyLimit) {
+        checkArgument(concurrencyLimit > 0, "concurrencyLimit must be positive");
+        this.delegate = checkNotNull(delegate, "delegate");
+        this.concurrencyLimit = concurrencyLimit;
+        this.permits = new Semaphore(concurrencyLimit);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        checkNotNull(task, "task");
+        if (!permits.tryAcquire()) {
+            throw new TaskRejectedException("Concurrency limit of " + concurrencyLimit + " reached, rejected task " + task);
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+}
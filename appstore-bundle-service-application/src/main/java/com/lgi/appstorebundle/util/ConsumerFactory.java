@@ -19,6 +19,7 @@
 package com.lgi.appstorebundle.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.lgi.appstorebundle.external.RabbitMQConsumerMDC;
 import com.lgi.appstorebundle.model.FeedbackMessage;
 import com.rabbitmq.client.DeliverCallback;
@@ -38,11 +39,11 @@ import static com.lgi.appstorebundle.common.Headers.CORRELATION_ID;
 public class ConsumerFactory {
     private static final Logger LOG = LoggerFactory.getLogger(ConsumerFactory.class);
 
-    private final ObjectMapper objectMapper;
+    private final ObjectReader feedbackMessageReader;
 
     @Autowired
     public ConsumerFactory(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+        this.feedbackMessageReader = objectMapper.readerFor(FeedbackMessage.class);
     }
 
     public DeliverCallback createConsumer(BiConsumer<FeedbackMessage, String> messageConsumer) {
@@ -81,7 +82,7 @@ public class ConsumerFactory {
 
     private Optional<FeedbackMessage> getFeedbackMessage(Delivery delivery) {
         try {
-            return Optional.ofNullable(objectMapper.readValue(delivery.getBody(), FeedbackMessage.class));
+            return Optional.ofNullable(feedbackMessageReader.readValue(delivery.getBody()));
         } catch (IOException exception) {
             LOG.error("Received message cannot be parsed to FeedbackMessage. Exception: '{}'.", exception.getMessage());
             return Optional.empty();
@@ -0,0 +1,64 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Merges concurrent calls for the same key: the first caller starts the task, callers arriving while it is still
+ * running get a view of its future and share its result (or exception). The key is released as soon as the task
+ * completes, so nothing is cached beyond the in-flight call.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> task) {
+        checkNotNull(key, "key");
+        checkNotNull(task, "task");
+        final CompletableFuture<V> call = new CompletableFuture<>();
+        final CompletableFuture<V> existingCall = inFlight.putIfAbsent(key, call);
+        if (existingCall != null) {
+            return existingCall.copy();
+        }
+        try {
+            task.get().whenComplete((result, failure) -> {
+                inFlight.remove(key, call);
+                if (failure != null) {
+                    call.completeExceptionally(failure);
+                } else {
+                    call.complete(result);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+        }
+        return call.copy();
+    }
+
+    CompletableFuture<V> inFlightCall(K key) {
+        return inFlight.get(key);
+    }
+}
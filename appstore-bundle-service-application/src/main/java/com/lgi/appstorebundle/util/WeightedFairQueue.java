@@ -0,0 +1,101 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.util;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.ToDoubleFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Weighted fair queue over tenants: every item is tagged with a virtual finish time that advances by the inverse of its
+ * tenant's weight, and items are served in finish time order. A tenant with weight 2 is therefore served twice as often
+ * as a tenant with weight 1 while both have items queued, and a tenant that has been idle starts at the current virtual
+ * time instead of catching up on the service it did not use. Not thread safe.
+ */
+public class WeightedFairQueue<K, T> {
+
+    private final ToDoubleFunction<K> weights;
+    private final PriorityQueue<Entry<K, T>> entries = new PriorityQueue<>(
+            Comparator.<Entry<K, T>>comparingDouble(entry -> entry.finishTime).thenComparingLong(entry -> entry.sequence));
+    private final Map<K, Double> lastFinishTimes = new HashMap<>();
+    private final Map<K, Integer> tenantSizes = new HashMap<>();
+    private double virtualTime;
+    private long sequence;
+
+    public WeightedFairQueue(ToDoubleFunction<K> weights) {
+        this.weights = checkNotNull(weights, "weights");
+    }
+
+    public void add(K tenant, T item) {
+        checkNotNull(tenant, "tenant");
+        checkNotNull(item, "item");
+        final double weight = weights.applyAsDouble(tenant);
+        checkArgument(weight > 0, "weight of tenant %s must be positive", tenant);
+        final double finishTime = Math.max(virtualTime, lastFinishTimes.getOrDefault(tenant, 0d)) + 1 / weight;
+        lastFinishTimes.put(tenant, finishTime);
+        tenantSizes.merge(tenant, 1, Integer::sum);
+        entries.add(new Entry<>(tenant, item, finishTime, sequence++));
+    }
+
+    public Optional<T> poll() {
+        final Entry<K, T> entry = entries.poll();
+        if (entry == null) {
+            return Optional.empty();
+        }
+        virtualTime = entry.finishTime;
+        if (tenantSizes.merge(entry.tenant, -1, Integer::sum) == 0) {
+            tenantSizes.remove(entry.tenant);
+            lastFinishTimes.remove(entry.tenant);
+        }
+        return Optional.of(entry.item);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size(K tenant) {
+        return tenantSizes.getOrDefault(tenant, 0);
+    }
+
+    private static final class Entry<K, T> {
+
+        private final K tenant;
+        private final T item;
+        private final double finishTime;
+        private final long sequence;
+
+        private Entry(K tenant, T item, double finishTime, long sequence) {
+            this.tenant = tenant;
+            this.item = item;
+            this.finishTime = finishTime;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -19,40 +19,68 @@
 package com.lgi.appstorebundle.resources;
 
 import com.lgi.appstorebundle.api.ApplicationParams;
+import com.lgi.appstorebundle.api.model.ApplicationContext;
 import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleContext;
 import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.configuration.BundleExecutorConfiguration;
+import com.lgi.appstorebundle.error.exception.ServiceOverloadedException;
+import com.lgi.appstorebundle.error.exception.XRequestIdConflictException;
 import com.lgi.appstorebundle.exception.RabbitMQException;
 import com.lgi.appstorebundle.external.asms.model.ApplicationMetadata;
 import com.lgi.appstorebundle.external.asms.model.ApplicationMetadataForMaintainer;
 import com.lgi.appstorebundle.external.asms.model.Header;
 import com.lgi.appstorebundle.external.asms.model.HeaderForMaintainer;
 import com.lgi.appstorebundle.external.asms.model.Maintainer;
+import com.lgi.appstorebundle.service.AdmissionControl;
 import com.lgi.appstorebundle.service.ApplicationMetadataService;
 import com.lgi.appstorebundle.service.BundleService;
+import com.lgi.appstorebundle.service.IdempotencyService;
+import com.lgi.appstorebundle.service.RetryAfterEstimator;
+import com.lgi.appstorebundle.util.BundleLocations;
 import com.lgi.appstorebundle.util.EncryptionHelper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.joda.time.DateTime;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AppStoreBundleController.class)
+@Import({SimpleMeterRegistry.class, BundleExecutorConfiguration.class, RetryAfterEstimator.class})
+@TestPropertySource(properties = "http.retry.after.jitter=0")
 class AppStoreBundleControllerRealRequestsTest {
 
     private static final String GET_APPLICATION_PATH = "/applications/{appId}/{appVersion}/{platformName}/{firmwareVersion}/{appBundleName}";
+    private static final String BATCH_PATH = "/applications/batch";
     private static final String CORRELATION_ID = "x-request-id";
     private static final String APP_ID = "applicationId";
     private static final String APP_VER = "applicationVersion";
@@ -85,16 +113,25 @@ class AppStoreBundleControllerRealRequestsTest {
     @MockBean
     private BundleService bundleServiceMock;
 
+    @MockBean
+    private IdempotencyService idempotencyServiceMock;
+
     @MockBean
     private EncryptionHelper encryptionHelper;
 
+    @MockBean
+    private BundleLocations bundleLocationsMock;
+
+    @MockBean
+    private AdmissionControl admissionControlMock;
+
     @Test
     void givenValidRequestWhenApplicationDoesNotExistThenNotFound() throws Exception {
         // GIVEN
-        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(Optional.empty());
+        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(completedFuture(Optional.empty()));
 
         // WHEN THEN
-        mockMvc.perform(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
+        performAsync(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
                 .header(CORRELATION_ID, X_REQUEST_ID)
         ).andExpectAll(
                 status().is(HttpStatus.NOT_FOUND.value()),
@@ -105,11 +142,11 @@ class AppStoreBundleControllerRealRequestsTest {
     @Test
     void givenValidRequestWhenApplicationForMaintainerDoesNotExistThenNotFound() throws Exception {
         // GIVEN
-        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(Optional.of(applicationMetadata));
-        when(applicationMetadataServiceMock.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.empty());
+        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(applicationMetadataServiceMock.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.empty()));
 
         // WHEN THEN
-        mockMvc.perform(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
+        performAsync(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
                 .header(CORRELATION_ID, X_REQUEST_ID)
         ).andExpectAll(
                 status().is(HttpStatus.NOT_FOUND.value()),
@@ -120,12 +157,13 @@ class AppStoreBundleControllerRealRequestsTest {
     @Test
     void givenValidRequestWhenGenerationNotStartedThenGenerationRequested() throws Exception {
         // GIVEN
-        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(Optional.of(applicationMetadata));
-        when(applicationMetadataServiceMock.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.of(applicationMetadataForMaintainer));
+        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(applicationMetadataServiceMock.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(applicationMetadataForMaintainer)));
         when(bundleServiceMock.getLatestBundle(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER)).thenReturn(Optional.empty());
+        when(bundleServiceMock.triggerBundleGeneration(any())).thenAnswer(invocation -> invocation.<BundleContext>getArgument(0).getBundle());
 
         // WHEN THEN
-        mockMvc.perform(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
+        performAsync(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
                 .header(CORRELATION_ID, X_REQUEST_ID)
         ).andExpectAll(
                 status().is(HttpStatus.ACCEPTED.value()),
@@ -136,14 +174,14 @@ class AppStoreBundleControllerRealRequestsTest {
     @Test
     void givenValidRequestWhenGenerationErrorThenTriggerNewGeneration() throws Exception {
         // GIVEN
-        final Bundle bundle = mock(Bundle.class);
-        when(bundle.getStatus()).thenReturn(BundleStatus.BUNDLE_ERROR);
-        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(Optional.of(applicationMetadata));
-        when(applicationMetadataServiceMock.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.of(applicationMetadataForMaintainer));
+        final Bundle bundle = bundle(BundleStatus.BUNDLE_ERROR);
+        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(applicationMetadataServiceMock.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(applicationMetadataForMaintainer)));
         when(bundleServiceMock.getLatestBundle(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER)).thenReturn(Optional.of(bundle));
+        when(bundleServiceMock.triggerBundleGeneration(any())).thenAnswer(invocation -> invocation.<BundleContext>getArgument(0).getBundle());
 
         // WHEN THEN
-        mockMvc.perform(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
+        performAsync(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
                 .header(CORRELATION_ID, X_REQUEST_ID)
         ).andExpectAll(
                 status().is(HttpStatus.ACCEPTED.value()),
@@ -154,14 +192,13 @@ class AppStoreBundleControllerRealRequestsTest {
     @Test
     void givenValidRequestWhenGenerationRequestedThenGenerationSkipped() throws Exception {
         // GIVEN
-        final Bundle bundle = mock(Bundle.class);
-        when(bundle.getStatus()).thenReturn(BundleStatus.GENERATION_REQUESTED);
-        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(Optional.of(applicationMetadata));
-        when(applicationMetadataServiceMock.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.of(applicationMetadataForMaintainer));
+        final Bundle bundle = bundle(BundleStatus.GENERATION_REQUESTED);
+        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(applicationMetadataServiceMock.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(applicationMetadataForMaintainer)));
         when(bundleServiceMock.getLatestBundle(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER)).thenReturn(Optional.of(bundle));
 
         // WHEN THEN
-        mockMvc.perform(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
+        performAsync(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
                 .header(CORRELATION_ID, X_REQUEST_ID)
         ).andExpectAll(
                 status().is(HttpStatus.ACCEPTED.value()),
@@ -169,17 +206,109 @@ class AppStoreBundleControllerRealRequestsTest {
         );
     }
 
+    @Test
+    void givenValidRequestWhenBundleCompletedThenSeeOtherBundleLocation() throws Exception {
+        // GIVEN
+        final Bundle bundle = bundle(BundleStatus.ENCRYPTION_COMPLETED);
+        final URI bundleLocation = URI.create("https://bundles.example.com/bundle.tar.gz");
+        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(bundleServiceMock.getLatestBundle(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER)).thenReturn(Optional.of(bundle));
+        when(bundleLocationsMock.hasBaseUrl()).thenReturn(true);
+        when(bundleLocationsMock.of(bundle)).thenReturn(bundleLocation);
+
+        // WHEN THEN
+        performAsync(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
+                .header(CORRELATION_ID, X_REQUEST_ID)
+        ).andExpectAll(
+                status().isSeeOther(),
+                header().string("Location", bundleLocation.toString()),
+                header().doesNotExist("Retry-After")
+        );
+    }
+
     @Test
     void givenValidRequestWhenTriggeringGenerationThrowsExceptionThenInternalServerError() throws Exception {
         // GIVEN
-        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(Optional.of(applicationMetadata));
-        when(applicationMetadataServiceMock.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.of(applicationMetadataForMaintainer));
+        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(applicationMetadataServiceMock.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(applicationMetadataForMaintainer)));
         when(bundleServiceMock.getLatestBundle(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER)).thenReturn(Optional.empty());
         doThrow(RabbitMQException.createDefault(X_REQUEST_ID, "error")).when(bundleServiceMock).triggerBundleGeneration(any());
 
         // WHEN THEN
-        mockMvc.perform(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
+        performAsync(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
                 .header(CORRELATION_ID, X_REQUEST_ID)
         ).andExpect(status().is(HttpStatus.INTERNAL_SERVER_ERROR.value()));
     }
+
+    @Test
+    void givenXRequestIdUsedForFailedBundleWhenRequestedAgainThenConflict() throws Exception {
+        // GIVEN
+        when(idempotencyServiceMock.findBundle(any(), any())).thenThrow(XRequestIdConflictException.failedBundle(X_REQUEST_ID, randomUUID()));
+
+        // WHEN THEN
+        performAsync(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
+                .header(CORRELATION_ID, X_REQUEST_ID)
+        ).andExpectAll(
+                status().isConflict(),
+                jsonPath("$.error.httpStatusCode").value(HttpStatus.CONFLICT.value())
+        );
+        verifyNoInteractions(applicationMetadataServiceMock, bundleServiceMock);
+    }
+
+    @Test
+    void givenBatchRequestWhenApplicationDoesNotExistThenNotFoundItem() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getLatestBundles(any())).thenReturn(List.of());
+        when(applicationMetadataServiceMock.getApplicationMetadata(any(ApplicationParams.class))).thenReturn(completedFuture(Optional.empty()));
+        when(bundleServiceMock.triggerBundleGenerations(any())).thenReturn(List.of());
+
+        // WHEN THEN
+        performAsync(post(BATCH_PATH)
+                .header(CORRELATION_ID, X_REQUEST_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"items\":[{\"appId\":\"" + APP_ID + "\",\"appVersion\":\"" + APP_VER + "\",\"platformName\":\"" + PLATFORM_NAME
+                        + "\",\"firmwareVersion\":\"" + FIRMWARE_VER + "\",\"appBundleName\":\"" + APP_BUNDLE_NAME + "\"}]}")
+        ).andExpectAll(
+                status().isOk(),
+                jsonPath("$.items[0].appId").value(APP_ID),
+                jsonPath("$.items[0].httpStatusCode").value(HttpStatus.NOT_FOUND.value())
+        );
+    }
+
+    @Test
+    void givenSaturatedDependencyWhenRequestedThenServiceUnavailableWithRetryAfter() throws Exception {
+        // GIVEN
+        doThrow(ServiceOverloadedException.createDefault("databasePoolExhausted", Duration.ofSeconds(10))).when(admissionControlMock).admit();
+
+        // WHEN THEN
+        mockMvc.perform(get(GET_APPLICATION_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_BUNDLE_NAME)
+                .header(CORRELATION_ID, X_REQUEST_ID)
+        ).andExpectAll(
+                status().isServiceUnavailable(),
+                header().string("Retry-After", "10"),
+                jsonPath("$.error.httpStatusCode").value(HttpStatus.SERVICE_UNAVAILABLE.value())
+        );
+    }
+
+    @Test
+    void givenEmptyBatchRequestThenBadRequest() throws Exception {
+        // WHEN THEN
+        mockMvc.perform(post(BATCH_PATH)
+                .header(CORRELATION_ID, X_REQUEST_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"items\":[]}")
+        ).andExpect(status().isBadRequest());
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        final MvcResult mvcResult = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvcResult.getAsyncResult();
+        return mockMvc.perform(asyncDispatch(mvcResult));
+    }
+
+    private static Bundle bundle(BundleStatus status) {
+        return Bundle.create(randomUUID(), ApplicationContext.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER), status, X_REQUEST_ID, DateTime.now(), ENCRYPTION_ENABLED);
+    }
 }
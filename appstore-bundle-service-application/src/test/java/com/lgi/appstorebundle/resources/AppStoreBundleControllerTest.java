@@ -18,18 +18,36 @@
  */
 package com.lgi.appstorebundle.resources;
 
+import com.lgi.appstorebundle.api.ApplicationParams;
+import com.lgi.appstorebundle.api.model.ApplicationContext;
 import com.lgi.appstorebundle.api.model.Bundle;
 import com.lgi.appstorebundle.api.model.BundleContext;
 import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.configuration.ApplicationMetadataCacheConfiguration;
 import com.lgi.appstorebundle.error.exception.ApplicationNotFoundException;
+import com.lgi.appstorebundle.error.exception.ServiceOverloadedException;
+import com.lgi.appstorebundle.external.asms.AppstoreMetadataServiceClient;
 import com.lgi.appstorebundle.external.asms.model.ApplicationMetadata;
 import com.lgi.appstorebundle.external.asms.model.ApplicationMetadataForMaintainer;
 import com.lgi.appstorebundle.external.asms.model.Header;
 import com.lgi.appstorebundle.external.asms.model.HeaderForMaintainer;
 import com.lgi.appstorebundle.external.asms.model.Maintainer;
+import com.lgi.appstorebundle.api.Environment;
+import com.lgi.appstorebundle.model.BatchBundleRequest;
+import com.lgi.appstorebundle.model.BatchBundleRequestItem;
+import com.lgi.appstorebundle.model.BatchBundleResponse;
+import com.lgi.appstorebundle.model.BatchBundleResponseItem;
+import com.lgi.appstorebundle.model.BundleLocationResponse;
+import com.lgi.appstorebundle.model.EncryptionMessageFactory;
+import com.lgi.appstorebundle.service.AdmissionControl;
 import com.lgi.appstorebundle.service.ApplicationMetadataService;
 import com.lgi.appstorebundle.service.BundleService;
+import com.lgi.appstorebundle.service.IdempotencyService;
+import com.lgi.appstorebundle.service.RetryAfterEstimator;
+import com.lgi.appstorebundle.util.BundleLocations;
 import com.lgi.appstorebundle.util.EncryptionHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -41,24 +59,39 @@ import org.springframework.http.ResponseEntity;
 import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
+import static com.lgi.appstorebundle.common.Headers.CORRELATION_ID;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.stream.Collectors.toList;
+import static java.util.UUID.randomUUID;
 import static javax.servlet.http.HttpServletResponse.SC_ACCEPTED;
+import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_SEE_OTHER;
+import static org.joda.time.DateTime.now;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class AppStoreBundleControllerTest {
 
     private static final String RETRY_AFTER = "Retry-After";
     private static final Duration RETRY_AFTER_IN_SECONDS = Duration.ofSeconds(30);
+    private static final int BATCH_ASMS_PARALLELISM = 2;
     public static final String APP_ID = "appId";
     public static final String APP_NAME = "appName";
     public static final String APP_VER = "applicationVersion";
@@ -73,8 +106,15 @@ class AppStoreBundleControllerTest {
 
     private static final ApplicationMetadataService ASMS_SERVICE = mock(ApplicationMetadataService.class);
     private static final BundleService BUNDLE_SERVICE = mock(BundleService.class);
-    private static final AppStoreBundleController RESOURCE_ENCRYPTION_ENABLED = new AppStoreBundleController(RETRY_AFTER_IN_SECONDS, ASMS_SERVICE, BUNDLE_SERVICE, new EncryptionHelper(ENCRYPTION_ENABLED, BUNDLE_SERVICE));
-    private static final AppStoreBundleController RESOURCE_ENCRYPTION_DISABLED = new AppStoreBundleController(RETRY_AFTER_IN_SECONDS, ASMS_SERVICE, BUNDLE_SERVICE, new EncryptionHelper(ENCRYPTION_DISABLED, BUNDLE_SERVICE));
+    private static final IdempotencyService IDEMPOTENCY_SERVICE = mock(IdempotencyService.class);
+    private static final AdmissionControl ADMISSION_CONTROL = mock(AdmissionControl.class);
+    private static final MeterRegistry METER_REGISTRY = new SimpleMeterRegistry();
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+    private static final String BUNDLE_DOWNLOAD_BASE_URL = "https://bundles.example.com";
+    private static final BundleLocations BUNDLE_LOCATIONS = new BundleLocations(BUNDLE_DOWNLOAD_BASE_URL, new EncryptionMessageFactory(Environment.DEV, "tar.gz"));
+    private static final RetryAfterEstimator RETRY_AFTER_ESTIMATOR = new RetryAfterEstimator(RETRY_AFTER_IN_SECONDS, Duration.ofSeconds(5), Duration.ofMinutes(5), 0, METER_REGISTRY);
+    private static final AppStoreBundleController RESOURCE_ENCRYPTION_ENABLED = new AppStoreBundleController(BATCH_ASMS_PARALLELISM, ASMS_SERVICE, BUNDLE_SERVICE, IDEMPOTENCY_SERVICE, new EncryptionHelper(ENCRYPTION_ENABLED, BUNDLE_SERVICE), BUNDLE_LOCATIONS, RETRY_AFTER_ESTIMATOR, ADMISSION_CONTROL, METER_REGISTRY, DIRECT_EXECUTOR);
+    private static final AppStoreBundleController RESOURCE_ENCRYPTION_DISABLED = new AppStoreBundleController(BATCH_ASMS_PARALLELISM, ASMS_SERVICE, BUNDLE_SERVICE, IDEMPOTENCY_SERVICE, new EncryptionHelper(ENCRYPTION_DISABLED, BUNDLE_SERVICE), BUNDLE_LOCATIONS, RETRY_AFTER_ESTIMATOR, ADMISSION_CONTROL, METER_REGISTRY, DIRECT_EXECUTOR);
     private static final HeaderForMaintainer APPLICATION_HEADER_FOR_MAINTAINER_ENCRYPTION_ENABLED = HeaderForMaintainer.create(APP_ID, APP_NAME, APP_VER, URL, ENCRYPTION_ENABLED, OCI_IMAGE_URL);
     private static final HeaderForMaintainer APPLICATION_HEADER_FOR_MAINTAINER_ENCRYPTION_DISABLED = HeaderForMaintainer.create(APP_ID, APP_NAME, APP_VER, URL, ENCRYPTION_DISABLED, OCI_IMAGE_URL);
     private static final Header applicationHeader = Header.create(APP_ID, APP_NAME, APP_VER, URL);
@@ -85,40 +125,60 @@ class AppStoreBundleControllerTest {
 
     @BeforeEach
     void setUp() {
-        reset(ASMS_SERVICE, BUNDLE_SERVICE);
+        reset(ASMS_SERVICE, BUNDLE_SERVICE, IDEMPOTENCY_SERVICE, ADMISSION_CONTROL);
+        when(BUNDLE_SERVICE.triggerBundleGeneration(any())).thenAnswer(invocation -> invocation.<BundleContext>getArgument(0).getBundle());
     }
 
     @Test
     void returnErrorWhenApplicationNotExistsInAppstoreMetadataService() {
         // GIVEN
-        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(Optional.empty());
+        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.empty()));
 
-        // WHEN, THEN
-        assertThrows(ApplicationNotFoundException.class, () -> RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
+        // WHEN
+        CompletionException exception = assertThrows(CompletionException.class, () -> RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join());
+
+        // THEN
+        assertTrue(exception.getCause() instanceof ApplicationNotFoundException);
+    }
+
+    @Test
+    void rejectWithoutTouchingDependenciesWhenAdmissionControlSheds() {
+        // GIVEN
+        doThrow(ServiceOverloadedException.createDefault("rabbitmqBlocked", RETRY_AFTER_IN_SECONDS)).when(ADMISSION_CONTROL).admit();
+
+        // WHEN
+        assertThrows(ServiceOverloadedException.class, () -> RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
                 APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID));
+
+        // THEN
+        verifyNoInteractions(ASMS_SERVICE, BUNDLE_SERVICE, IDEMPOTENCY_SERVICE);
     }
 
     @Test
     void returnErrorWhenApplicationForMaintainerNotExistsInAppstoreMetadataService() {
         // GIVEN
-        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(Optional.of(applicationMetadata));
-        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.empty());
+        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.empty()));
 
-        // WHEN, THEN
-        assertThrows(ApplicationNotFoundException.class, () -> RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
-                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID));
+        // WHEN
+        CompletionException exception = assertThrows(CompletionException.class, () -> RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join());
+
+        // THEN
+        assertTrue(exception.getCause() instanceof ApplicationNotFoundException);
     }
 
     @Test
     void returnRetryAfterAndTriggerBundleGeneration() {
         // GIVEN
-        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(Optional.of(applicationMetadata));
-        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED));
+        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED)));
         when(BUNDLE_SERVICE.getLatestBundle(any(), any(), any(), any())).thenReturn(Optional.empty());
 
         // WHEN
         ResponseEntity<Object> response = RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
-                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID);
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
 
         // THEN
         verify(BUNDLE_SERVICE).triggerBundleGeneration(any());
@@ -133,15 +193,15 @@ class AppStoreBundleControllerTest {
     @Test
     void returnRetryAfterAndTriggerNewBundleGenerationBecauseOfBundleErrorStatus() {
         // GIVEN
-        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(Optional.of(applicationMetadata));
-        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED));
+        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED)));
         final Bundle bundle = mock(Bundle.class);
         when(bundle.getStatus()).thenReturn(BundleStatus.BUNDLE_ERROR);
         when(BUNDLE_SERVICE.getLatestBundle(any(), any(), any(), any())).thenReturn(Optional.of(bundle));
 
         // WHEN
         ResponseEntity<Object> response = RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
-                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID);
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
 
         // THEN
         verify(BUNDLE_SERVICE).triggerBundleGeneration(any());
@@ -156,18 +216,19 @@ class AppStoreBundleControllerTest {
     @Test
     void returnRetryAfterWithoutStartingBundleGeneration() {
         // GIVEN
-        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(Optional.of(applicationMetadata));
-        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED));
-        final Bundle bundle = mock(Bundle.class);
-        when(bundle.getStatus()).thenReturn(BundleStatus.GENERATION_REQUESTED);
+        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED)));
+        final Bundle bundle = Bundle.create(randomUUID(), ApplicationContext.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION),
+                BundleStatus.GENERATION_REQUESTED, X_REQUEST_ID, now(), ENCRYPTION_ENABLED);
         when(BUNDLE_SERVICE.getLatestBundle(any(), any(), any(), any())).thenReturn(Optional.of(bundle));
 
         // WHEN
         ResponseEntity<Object> response = RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
-                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID);
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
 
         // THEN
         verify(BUNDLE_SERVICE, never()).triggerBundleGeneration(any());
+        verify(ASMS_SERVICE, never()).getApplicationMetadataForMaintainerCode(any(), any());
         assertEquals(SC_ACCEPTED, response.getStatusCodeValue(), "Service should return ACCEPTED status code");
         assertNotNull(response.getHeaders().get(RETRY_AFTER), "Service should return ACCEPTED status code");
         assertEquals(
@@ -176,16 +237,117 @@ class AppStoreBundleControllerTest {
         );
     }
 
+    @Test
+    void returnRetryAfterWithoutRunningPipelineForRepeatedXRequestId() {
+        // GIVEN
+        final Bundle bundle = Bundle.create(randomUUID(), ApplicationContext.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION),
+                BundleStatus.GENERATION_REQUESTED, X_REQUEST_ID, now(), ENCRYPTION_ENABLED);
+        when(IDEMPOTENCY_SERVICE.findBundle(X_REQUEST_ID, bundle.getApplicationContext())).thenReturn(Optional.of(bundle));
+
+        // WHEN
+        ResponseEntity<Object> response = RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
+
+        // THEN
+        verifyNoInteractions(ASMS_SERVICE, BUNDLE_SERVICE);
+        assertEquals(SC_ACCEPTED, response.getStatusCodeValue(), "Service should return ACCEPTED status code");
+        assertEquals(X_REQUEST_ID, response.getHeaders().getFirst(CORRELATION_ID), "Service should return header 'x-request-id'");
+    }
+
+    @Test
+    void countFastPathHitsWhenHealthyBundleExists() {
+        // GIVEN
+        final Bundle bundle = Bundle.create(randomUUID(), ApplicationContext.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION),
+                BundleStatus.GENERATION_LAUNCHED, X_REQUEST_ID, now(), ENCRYPTION_ENABLED);
+        when(BUNDLE_SERVICE.getLatestBundle(any(), any(), any(), any())).thenReturn(Optional.of(bundle));
+        final double fastPathHitsBefore = METER_REGISTRY.counter("bundle.generation.requests", "fastPath", "true").count();
+
+        // WHEN
+        final ResponseEntity<Object> response = RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
+
+        // THEN
+        assertEquals(SC_ACCEPTED, response.getStatusCodeValue(), "Service should not wait for ASMS when a healthy bundle exists");
+        verifyNoInteractions(ASMS_SERVICE);
+        assertEquals(fastPathHitsBefore + 1, METER_REGISTRY.counter("bundle.generation.requests", "fastPath", "true").count());
+    }
+
+    @Test
+    void doNotCallAppstoreMetadataServiceWhenHealthyBundleExists() {
+        // GIVEN
+        final AppstoreMetadataServiceClient client = mock(AppstoreMetadataServiceClient.class);
+        final ApplicationMetadataCacheConfiguration cacheConfiguration = mock(ApplicationMetadataCacheConfiguration.class);
+        when(cacheConfiguration.getMaximumSize()).thenReturn(100L);
+        when(cacheConfiguration.getExpireAfterWrite()).thenReturn(Duration.ofMinutes(5));
+        when(cacheConfiguration.getNotFoundExpireAfterWrite()).thenReturn(Duration.ofSeconds(30));
+        when(cacheConfiguration.getRefreshAfterWrite()).thenReturn(Duration.ofMinutes(1));
+        when(cacheConfiguration.getLastKnownGoodMaximumSize()).thenReturn(100L);
+        when(cacheConfiguration.getLastKnownGoodExpireAfterWrite()).thenReturn(Duration.ofDays(1));
+        final AppStoreBundleController resource = new AppStoreBundleController(BATCH_ASMS_PARALLELISM,
+                new ApplicationMetadataService(client, cacheConfiguration, new SimpleMeterRegistry(), DIRECT_EXECUTOR), BUNDLE_SERVICE,
+                IDEMPOTENCY_SERVICE, new EncryptionHelper(ENCRYPTION_ENABLED, BUNDLE_SERVICE), BUNDLE_LOCATIONS, RETRY_AFTER_ESTIMATOR,
+                ADMISSION_CONTROL, METER_REGISTRY, DIRECT_EXECUTOR);
+        final Bundle bundle = Bundle.create(randomUUID(), ApplicationContext.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION),
+                BundleStatus.GENERATION_LAUNCHED, X_REQUEST_ID, now(), ENCRYPTION_ENABLED);
+        when(BUNDLE_SERVICE.getLatestBundle(any(), any(), any(), any())).thenReturn(Optional.of(bundle));
+
+        // WHEN
+        final ResponseEntity<Object> response = resource.startBundleGeneration(
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
+
+        // THEN
+        assertEquals(SC_ACCEPTED, response.getStatusCodeValue());
+        verifyNoInteractions(client);
+    }
+
+    @ParameterizedTest
+    @MethodSource("getCompletedBundles")
+    void returnSeeOtherWithBundleLocationWhenBundleIsCompleted(BundleStatus status, boolean encryptionEnabled) {
+        // GIVEN
+        final Bundle bundle = Bundle.create(randomUUID(), ApplicationContext.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION),
+                status, X_REQUEST_ID, now(), encryptionEnabled);
+        when(BUNDLE_SERVICE.getLatestBundle(any(), any(), any(), any())).thenReturn(Optional.of(bundle));
+
+        // WHEN
+        final ResponseEntity<Object> response = RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
+
+        // THEN
+        assertEquals(SC_SEE_OTHER, response.getStatusCodeValue(), "Service should redirect to a completed bundle");
+        assertEquals(BUNDLE_DOWNLOAD_BASE_URL + "/appId/applicationVersion/platformName/firmwareVersion/appId-applicationVersion-platformName-firmwareVersion.tar.gz",
+                String.valueOf(response.getHeaders().getLocation()));
+        assertNull(response.getHeaders().get(RETRY_AFTER));
+        verify(BUNDLE_SERVICE, never()).triggerBundleGeneration(any());
+    }
+
+    @Test
+    void recordStageTimingsForFullPath() {
+        // GIVEN
+        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED)));
+        when(BUNDLE_SERVICE.getLatestBundle(any(), any(), any(), any())).thenReturn(Optional.empty());
+        final List<String> stages = List.of("idempotency", "latestBundle", "applicationMetadata", "maintainerMetadata", "trigger");
+        final List<Long> countsBefore = stages.stream().map(AppStoreBundleControllerTest::stageCount).collect(toList());
+
+        // WHEN
+        RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
+
+        // THEN
+        for (int i = 0; i < stages.size(); i++) {
+            assertEquals(countsBefore.get(i) + 1, stageCount(stages.get(i)), "Stage '" + stages.get(i) + "' should be timed");
+        }
+    }
+
     @Test
     void returnRetryAfterWithEncryptionEnabled() {
         // GIVEN
-        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(Optional.of(applicationMetadata));
-        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED));
+        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED)));
         when(BUNDLE_SERVICE.getLatestBundle(any(), any(), any(), any())).thenReturn(Optional.empty());
 
         // WHEN
         ResponseEntity<Object> response = RESOURCE_ENCRYPTION_ENABLED.startBundleGeneration(
-                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID);
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
 
         // THEN
         ArgumentCaptor<BundleContext> argumentCaptor = ArgumentCaptor.forClass(BundleContext.class);
@@ -206,13 +368,13 @@ class AppStoreBundleControllerTest {
     void returnRetryAfterWithEncryptionDisabled(ApplicationMetadataForMaintainer applicationMetadataForMaintainer,
                                                 AppStoreBundleController appStoreBundleController) {
         // GIVEN
-        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(Optional.of(applicationMetadata));
-        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(Optional.of(applicationMetadataForMaintainer));
+        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(applicationMetadataForMaintainer)));
         when(BUNDLE_SERVICE.getLatestBundle(any(), any(), any(), any())).thenReturn(Optional.empty());
 
         // WHEN
         ResponseEntity<Object> response = appStoreBundleController.startBundleGeneration(
-                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID);
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
 
         // THEN
         ArgumentCaptor<BundleContext> argumentCaptor = ArgumentCaptor.forClass(BundleContext.class);
@@ -228,6 +390,120 @@ class AppStoreBundleControllerTest {
         );
     }
 
+    @Test
+    void returnStatusPerItemAndTriggerOnlyMissingBundlesInOneCall() {
+        // GIVEN
+        final Bundle healthyBundle = Bundle.create(randomUUID(), ApplicationContext.create("healthyAppId", APP_VER, PLATFORM_NAME, FIRMWARE_VERSION),
+                BundleStatus.GENERATION_COMPLETED, "healthyXRequestId", now(), ENCRYPTION_ENABLED);
+        when(BUNDLE_SERVICE.getLatestBundles(any())).thenReturn(List.of(healthyBundle));
+        when(ASMS_SERVICE.getApplicationMetadata(any())).thenAnswer(invocation -> completedFuture(
+                "missingAppId".equals(invocation.<ApplicationParams>getArgument(0).getApplicationId()) ? Optional.empty() : Optional.of(applicationMetadata)));
+        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED)));
+        when(BUNDLE_SERVICE.triggerBundleGenerations(any())).thenAnswer(invocation -> invocation.<List<BundleContext>>getArgument(0).stream()
+                .map(BundleContext::getBundle)
+                .collect(toList()));
+        final BatchBundleRequest request = new BatchBundleRequest().items(List.of(
+                batchItem("healthyAppId"), batchItem(APP_ID), batchItem("missingAppId"), batchItem(APP_ID)));
+
+        // WHEN
+        final BatchBundleResponse response = RESOURCE_ENCRYPTION_ENABLED.startBundleGenerations(request, X_REQUEST_ID).join();
+
+        // THEN
+        final List<BatchBundleResponseItem> items = response.getItems();
+        assertEquals(List.of(SC_ACCEPTED, SC_ACCEPTED, SC_NOT_FOUND, SC_ACCEPTED),
+                items.stream().map(BatchBundleResponseItem::getHttpStatusCode).collect(toList()));
+        assertEquals(healthyBundle.getId(), items.get(0).getBundleId());
+        assertEquals(X_REQUEST_ID + "-1", items.get(1).getxRequestId());
+        assertEquals(items.get(1).getBundleId(), items.get(3).getBundleId());
+        final ArgumentCaptor<List<BundleContext>> bundleContextsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(BUNDLE_SERVICE).getLatestBundles(any());
+        verify(BUNDLE_SERVICE).triggerBundleGenerations(bundleContextsCaptor.capture());
+        assertEquals(1, bundleContextsCaptor.getValue().size());
+        verify(BUNDLE_SERVICE, never()).triggerBundleGeneration(any());
+    }
+
+    @Test
+    void returnServerErrorForItemWhoseGenerationMessageWasNotSent() {
+        // GIVEN
+        when(BUNDLE_SERVICE.getLatestBundles(any())).thenReturn(List.of());
+        when(ASMS_SERVICE.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(applicationMetadata)));
+        when(ASMS_SERVICE.getApplicationMetadataForMaintainerCode(any(), any())).thenReturn(completedFuture(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_ENABLED)));
+        when(BUNDLE_SERVICE.triggerBundleGenerations(any())).thenAnswer(invocation -> invocation.<List<BundleContext>>getArgument(0).stream()
+                .map(BundleContext::getBundle)
+                .map(bundle -> Bundle.create(bundle.getId(), bundle.getApplicationContext(), BundleStatus.BUNDLE_ERROR, bundle.getXRequestId(),
+                        bundle.getMessageTimestamp(), bundle.isEncryptionEnabled()))
+                .collect(toList()));
+
+        // WHEN
+        final BatchBundleResponse response = RESOURCE_ENCRYPTION_ENABLED.startBundleGenerations(
+                new BatchBundleRequest().items(List.of(batchItem(APP_ID))), X_REQUEST_ID).join();
+
+        // THEN
+        assertEquals(SC_INTERNAL_SERVER_ERROR, response.getItems().get(0).getHttpStatusCode());
+        assertNotNull(response.getItems().get(0).getMessage());
+    }
+
+    @Test
+    void returnBundleLocationInBodyWhenNoDownloadBaseUrlIsConfigured() {
+        // GIVEN
+        final BundleLocations relativeBundleLocations = new BundleLocations("", new EncryptionMessageFactory(Environment.DEV, "tar.gz"));
+        final AppStoreBundleController resource = new AppStoreBundleController(BATCH_ASMS_PARALLELISM, ASMS_SERVICE, BUNDLE_SERVICE,
+                IDEMPOTENCY_SERVICE, new EncryptionHelper(ENCRYPTION_ENABLED, BUNDLE_SERVICE), relativeBundleLocations, RETRY_AFTER_ESTIMATOR,
+                ADMISSION_CONTROL, METER_REGISTRY, DIRECT_EXECUTOR);
+        final Bundle bundle = Bundle.create(randomUUID(), ApplicationContext.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION),
+                BundleStatus.ENCRYPTION_COMPLETED, X_REQUEST_ID, now(), ENCRYPTION_ENABLED);
+        when(BUNDLE_SERVICE.getLatestBundle(any(), any(), any(), any())).thenReturn(Optional.of(bundle));
+        when(BUNDLE_SERVICE.getLatestBundles(any())).thenReturn(List.of(bundle));
+
+        // WHEN
+        final ResponseEntity<Object> response = resource.startBundleGeneration(
+                APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION, BUNDLE_NAME, X_REQUEST_ID).join();
+        final BatchBundleResponse batchResponse = resource.startBundleGenerations(
+                new BatchBundleRequest().items(List.of(batchItem(APP_ID))), X_REQUEST_ID).join();
+
+        // THEN
+        final String location = "/appId/applicationVersion/platformName/firmwareVersion/appId-applicationVersion-platformName-firmwareVersion.tar.gz";
+        assertEquals(SC_OK, response.getStatusCodeValue(), "Service should not redirect to a location it does not serve");
+        assertNull(response.getHeaders().getLocation());
+        assertEquals(new BundleLocationResponse().id(bundle.getId()).location(location), response.getBody());
+        assertEquals(SC_OK, batchResponse.getItems().get(0).getHttpStatusCode());
+        assertEquals(location, batchResponse.getItems().get(0).getLocation());
+    }
+
+    @Test
+    void returnSeeOtherWithBundleLocationForCompletedBatchItem() {
+        // GIVEN
+        final Bundle completedBundle = Bundle.create(randomUUID(), ApplicationContext.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VERSION),
+                BundleStatus.ENCRYPTION_COMPLETED, X_REQUEST_ID, now(), ENCRYPTION_ENABLED);
+        when(BUNDLE_SERVICE.getLatestBundles(any())).thenReturn(List.of(completedBundle));
+
+        // WHEN
+        final BatchBundleResponse response = RESOURCE_ENCRYPTION_ENABLED.startBundleGenerations(
+                new BatchBundleRequest().items(List.of(batchItem(APP_ID))), X_REQUEST_ID).join();
+
+        // THEN
+        final BatchBundleResponseItem item = response.getItems().get(0);
+        assertEquals(SC_SEE_OTHER, item.getHttpStatusCode());
+        assertEquals(BUNDLE_LOCATIONS.of(completedBundle).toString(), item.getLocation());
+        verifyNoInteractions(ASMS_SERVICE);
+    }
+
+    private static BatchBundleRequestItem batchItem(String appId) {
+        return new BatchBundleRequestItem()
+                .appId(appId)
+                .appVersion(APP_VER)
+                .platformName(PLATFORM_NAME)
+                .firmwareVersion(FIRMWARE_VERSION)
+                .appBundleName(BUNDLE_NAME);
+    }
+
+    private static List<Arguments> getCompletedBundles() {
+        return List.of(
+                Arguments.of(BundleStatus.ENCRYPTION_COMPLETED, ENCRYPTION_ENABLED),
+                Arguments.of(BundleStatus.GENERATION_COMPLETED, ENCRYPTION_DISABLED)
+        );
+    }
+
     private static List<Arguments> getCasesWhenEncryptedDisabled() {
         return List.of(
                 Arguments.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_DISABLED, RESOURCE_ENCRYPTION_ENABLED),
@@ -235,4 +511,8 @@ class AppStoreBundleControllerTest {
                 Arguments.of(APPLICATION_METADATA_FOR_MAINTAINER_ENCRYPTION_DISABLED, RESOURCE_ENCRYPTION_DISABLED)
         );
     }
-}
\ No newline at end of file
+
+    private static long stageCount(String stage) {
+        return METER_REGISTRY.timer("bundle.generation.stage", "stage", stage).count();
+    }
+}
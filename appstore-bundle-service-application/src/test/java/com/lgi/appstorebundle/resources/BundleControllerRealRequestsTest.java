@@ -0,0 +1,378 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.resources;
+
+import com.jayway.jsonpath.JsonPath;
+import com.lgi.appstorebundle.api.model.ApplicationContext;
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleFilter;
+import com.lgi.appstorebundle.api.model.BundlePage;
+import com.lgi.appstorebundle.api.model.BundlePosition;
+import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.api.model.BundleStatusCount;
+import com.lgi.appstorebundle.service.BundleService;
+import com.lgi.appstorebundle.service.BundleStatusSubscriptions;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_LAUNCHED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_QUEUED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(BundleController.class)
+@Import(BundleStatusSubscriptions.class)
+class BundleControllerRealRequestsTest {
+
+    private static final String GET_BUNDLE_PATH = "/bundles/{id}";
+    private static final String GET_BUNDLE_EVENTS_PATH = "/bundles/{id}/events";
+    private static final String SEARCH_PATH = "/bundles";
+    private static final String COUNTS_PATH = "/bundles/counts";
+    private static final String EXPORT_PATH = "/bundles/export";
+    private static final String GET_LATEST_BUNDLE_PATH = "/bundles/{appId}/{appVersion}/{platformName}/{firmwareVersion}";
+    private static final String APP_ID = "applicationId";
+    private static final String APP_VER = "applicationVersion";
+    private static final String PLATFORM_NAME = "platformName";
+    private static final String FIRMWARE_VER = "firmwareVersion";
+    private static final String X_REQUEST_ID = "0293e324-0558-4f23-b924-25a8b3f59583";
+    private static final UUID ID = UUID.randomUUID();
+    private static final DateTime MESSAGE_TIMESTAMP = new DateTime(2023, 1, 1, 0, 0, DateTimeZone.UTC);
+    private static final ApplicationContext APPLICATION_CONTEXT = ApplicationContext.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BundleStatusSubscriptions bundleStatusSubscriptions;
+
+    @MockBean
+    private BundleService bundleServiceMock;
+
+    @Test
+    void givenExistingBundleWhenGetThenStatusWithETag() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getBundle(ID)).thenReturn(Optional.of(bundle(GENERATION_LAUNCHED, true)));
+
+        // WHEN THEN
+        mockMvc.perform(get(GET_BUNDLE_PATH, ID))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.id").value(ID.toString()),
+                        jsonPath("$.status").value(GENERATION_LAUNCHED.name()),
+                        jsonPath("$.xRequestId").value(X_REQUEST_ID),
+                        header().string(HttpHeaders.ETAG, "\"" + ID + "-GENERATION_LAUNCHED-" + MESSAGE_TIMESTAMP.getMillis() + "\""),
+                        header().string(HttpHeaders.CACHE_CONTROL, "no-cache")
+                );
+    }
+
+    @Test
+    void givenMatchingETagWhenGetThenNotModified() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getBundle(ID)).thenReturn(Optional.of(bundle(GENERATION_LAUNCHED, true)));
+        final String eTag = mockMvc.perform(get(GET_BUNDLE_PATH, ID)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // WHEN THEN
+        mockMvc.perform(get(GET_BUNDLE_PATH, ID).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpectAll(
+                        status().isNotModified(),
+                        content().string("")
+                );
+    }
+
+    @Test
+    void givenStaleETagWhenGetThenNewStatus() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getBundle(ID)).thenReturn(Optional.of(bundle(GENERATION_LAUNCHED, true)));
+        final String eTag = mockMvc.perform(get(GET_BUNDLE_PATH, ID)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        when(bundleServiceMock.getBundle(ID)).thenReturn(Optional.of(bundle(GENERATION_COMPLETED, true)));
+
+        // WHEN THEN
+        mockMvc.perform(get(GET_BUNDLE_PATH, ID).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.status").value(GENERATION_COMPLETED.name())
+                );
+    }
+
+    @Test
+    void givenCompletedBundleWhenGetLatestThenLongCacheLifetime() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getLatestBundle(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER)).thenReturn(Optional.of(bundle(ENCRYPTION_COMPLETED, true)));
+
+        // WHEN THEN
+        mockMvc.perform(get(GET_LATEST_BUNDLE_PATH, APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.id").value(ID.toString()),
+                        header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=86400"))
+                );
+    }
+
+    @Test
+    void givenNotExistingBundleWhenGetThenNotFound() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getBundle(ID)).thenReturn(Optional.empty());
+
+        // WHEN THEN
+        mockMvc.perform(get(GET_BUNDLE_PATH, ID))
+                .andExpectAll(
+                        status().is(HttpStatus.NOT_FOUND.value()),
+                        header().doesNotExist(HttpHeaders.ETAG)
+                );
+    }
+
+    @Test
+    void givenBundleInFlightWhenSubscribedThenCurrentStatusAndChangesStreamedUntilCompleted() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getBundle(ID)).thenReturn(Optional.of(bundle(GENERATION_LAUNCHED, false)));
+        final MvcResult mvcResult = mockMvc.perform(get(GET_BUNDLE_EVENTS_PATH, ID))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // WHEN
+        bundleStatusSubscriptions.publish(ID, GENERATION_COMPLETED);
+
+        // THEN
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string("event:status\ndata:GENERATION_LAUNCHED\n\nevent:status\ndata:GENERATION_COMPLETED\n\n")
+                );
+    }
+
+    @Test
+    void givenRequestedBundleWhenQueuedAndClaimedThenEveryTransitionStreamed() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getBundle(ID)).thenReturn(Optional.of(bundle(GENERATION_REQUESTED, false)));
+        final MvcResult mvcResult = mockMvc.perform(get(GET_BUNDLE_EVENTS_PATH, ID))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // WHEN
+        bundleStatusSubscriptions.publish(ID, GENERATION_QUEUED);
+        bundleStatusSubscriptions.publish(ID, GENERATION_REQUESTED);
+        bundleStatusSubscriptions.publish(ID, GENERATION_QUEUED);
+        bundleStatusSubscriptions.publish(ID, GENERATION_LAUNCHED);
+        bundleStatusSubscriptions.publish(ID, GENERATION_COMPLETED);
+
+        // THEN
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string("event:status\ndata:GENERATION_REQUESTED\n\n"
+                                + "event:status\ndata:GENERATION_QUEUED\n\n"
+                                + "event:status\ndata:GENERATION_REQUESTED\n\n"
+                                + "event:status\ndata:GENERATION_QUEUED\n\n"
+                                + "event:status\ndata:GENERATION_LAUNCHED\n\n"
+                                + "event:status\ndata:GENERATION_COMPLETED\n\n")
+                );
+    }
+
+    @Test
+    void givenChangeNotifiedBeforeBundleReadWhenSubscribedThenOnlyNewerStatusStreamed() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getBundle(ID)).thenAnswer(invocation -> {
+            bundleStatusSubscriptions.publish(ID, GENERATION_COMPLETED);
+            return Optional.of(bundle(GENERATION_LAUNCHED, false));
+        });
+
+        // WHEN
+        final MvcResult mvcResult = mockMvc.perform(get(GET_BUNDLE_EVENTS_PATH, ID))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // THEN
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpectAll(
+                        status().isOk(),
+                        content().string("event:status\ndata:GENERATION_COMPLETED\n\n")
+                );
+    }
+
+    @Test
+    void givenNotExistingBundleWhenSubscribedThenNotFound() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getBundle(ID)).thenReturn(Optional.empty());
+
+        // WHEN THEN
+        mockMvc.perform(get(GET_BUNDLE_EVENTS_PATH, ID))
+                .andExpect(status().is(HttpStatus.NOT_FOUND.value()));
+    }
+
+    @Test
+    void givenMoreBundlesThanPageWhenSearchThenPageWithNextCursorFollowedBySecondPage() throws Exception {
+        // GIVEN
+        final BundleFilter filter = BundleFilter.create(Set.of(GENERATION_COMPLETED), Optional.of(APP_ID), Optional.of(PLATFORM_NAME),
+                Optional.empty(), Optional.empty(), Optional.empty());
+        final BundlePosition position = BundlePosition.create(Instant.parse("2023-01-01T00:00:00.123456Z"), ID);
+        when(bundleServiceMock.searchBundles(filter, Optional.empty(), 1))
+                .thenReturn(BundlePage.create(List.of(bundle(GENERATION_COMPLETED, false)), Optional.of(position)));
+        when(bundleServiceMock.searchBundles(filter, Optional.of(position), 1))
+                .thenReturn(BundlePage.create(List.of(), Optional.empty()));
+
+        // WHEN
+        final String firstPage = mockMvc.perform(get(SEARCH_PATH)
+                        .param("appId", APP_ID)
+                        .param("platformName", PLATFORM_NAME)
+                        .param("status", GENERATION_COMPLETED.name())
+                        .param("limit", "1"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.items.length()").value(1),
+                        jsonPath("$.items[0].id").value(ID.toString()),
+                        jsonPath("$.next").isString()
+                )
+                .andReturn().getResponse().getContentAsString();
+
+        // THEN
+        mockMvc.perform(get(SEARCH_PATH)
+                        .param("appId", APP_ID)
+                        .param("platformName", PLATFORM_NAME)
+                        .param("status", GENERATION_COMPLETED.name())
+                        .param("limit", "1")
+                        .param("after", JsonPath.<String>read(firstPage, "$.next")))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.items.length()").value(0),
+                        jsonPath("$.next").doesNotExist()
+                );
+    }
+
+    @Test
+    void givenLimitAboveMaximumWhenSearchThenLimitCapped() throws Exception {
+        // GIVEN
+        final BundleFilter filter = BundleFilter.create(Set.of(), Optional.empty(), Optional.empty(), Optional.empty(),
+                Optional.empty(), Optional.empty());
+        when(bundleServiceMock.searchBundles(filter, Optional.empty(), 1000))
+                .thenReturn(BundlePage.create(List.of(), Optional.empty()));
+
+        // WHEN
+        mockMvc.perform(get(SEARCH_PATH).param("limit", "5000"))
+                .andExpect(status().isOk());
+
+        // THEN
+        verify(bundleServiceMock).searchBundles(filter, Optional.empty(), 1000);
+    }
+
+    @Test
+    void givenMalformedCursorWhenSearchThenBadRequest() throws Exception {
+        // WHEN
+        mockMvc.perform(get(SEARCH_PATH).param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+
+        // THEN
+        verify(bundleServiceMock, never()).searchBundles(any(), any(), anyInt());
+    }
+
+    @Test
+    void givenBundleStatusCountsWhenGetCountsThenCountsPerPlatformAndStatus() throws Exception {
+        // GIVEN
+        when(bundleServiceMock.getBundleStatusCounts()).thenReturn(List.of(
+                BundleStatusCount.create(PLATFORM_NAME, GENERATION_COMPLETED, 42),
+                BundleStatusCount.create(PLATFORM_NAME, GENERATION_LAUNCHED, 3)));
+
+        // WHEN THEN
+        mockMvc.perform(get(COUNTS_PATH))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.items.length()").value(2),
+                        jsonPath("$.items[0].platformName").value(PLATFORM_NAME),
+                        jsonPath("$.items[0].status").value(GENERATION_COMPLETED.name()),
+                        jsonPath("$.items[0].count").value(42),
+                        jsonPath("$.items[1].status").value(GENERATION_LAUNCHED.name())
+                );
+    }
+
+    @Test
+    void givenFiltersWhenExportThenMatchingBundlesStreamedAsNdjson() throws Exception {
+        // GIVEN
+        final BundleFilter filter = BundleFilter.create(Set.of(ENCRYPTION_COMPLETED, GENERATION_COMPLETED), Optional.empty(),
+                Optional.of(PLATFORM_NAME), Optional.empty(), Optional.of(MESSAGE_TIMESTAMP), Optional.empty());
+        doAnswer(invocation -> {
+            final Consumer<Bundle> consumer = invocation.getArgument(1);
+            consumer.accept(bundle(ENCRYPTION_COMPLETED, true));
+            consumer.accept(bundle(GENERATION_COMPLETED, false));
+            return null;
+        }).when(bundleServiceMock).exportBundles(eq(filter), any());
+
+        // WHEN
+        final String content = mockMvc.perform(get(EXPORT_PATH)
+                        .param("status", ENCRYPTION_COMPLETED.name(), GENERATION_COMPLETED.name())
+                        .param("platformName", PLATFORM_NAME)
+                        .param("createdFrom", "2023-01-01T01:00:00+01:00"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType(MediaType.APPLICATION_NDJSON)
+                )
+                .andReturn().getResponse().getContentAsString();
+
+        // THEN
+        final String[] lines = content.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"status\":\"ENCRYPTION_COMPLETED\""));
+        assertTrue(lines[1].contains("\"status\":\"GENERATION_COMPLETED\""));
+        assertTrue(content.endsWith("\n"));
+    }
+
+    @Test
+    void givenUnknownStatusWhenExportThenBadRequest() throws Exception {
+        // WHEN THEN
+        mockMvc.perform(get(EXPORT_PATH).param("status", "UNKNOWN"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static Bundle bundle(BundleStatus status, boolean encryptionEnabled) {
+        return Bundle.create(ID, APPLICATION_CONTEXT, status, X_REQUEST_ID, MESSAGE_TIMESTAMP, encryptionEnabled);
+    }
+}
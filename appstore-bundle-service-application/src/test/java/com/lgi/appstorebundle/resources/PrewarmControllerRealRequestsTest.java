@@ -0,0 +1,130 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.resources;
+
+import com.lgi.appstorebundle.api.ApplicationParams;
+import com.lgi.appstorebundle.api.model.ApplicationContext;
+import com.lgi.appstorebundle.error.exception.InvalidPrewarmRequestException;
+import com.lgi.appstorebundle.service.AdmissionControl;
+import com.lgi.appstorebundle.service.PrewarmJob;
+import com.lgi.appstorebundle.service.PrewarmService;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(PrewarmController.class)
+class PrewarmControllerRealRequestsTest {
+
+    private static final String PREWARM_PATH = "/prewarm";
+    private static final String PREWARM_JOB_PATH = "/prewarm/{id}";
+    private static final String APP_ID = "applicationId";
+    private static final String APP_VER = "applicationVersion";
+    private static final String PLATFORM_NAME = "platformName";
+    private static final String FIRMWARE_VER = "firmwareVersion";
+    private static final UUID ID = UUID.randomUUID();
+    private static final PrewarmJob JOB = new PrewarmJob(ID, PLATFORM_NAME, FIRMWARE_VER,
+            List.of(ApplicationContext.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER)), new DateTime(2023, 1, 1, 0, 0, DateTimeZone.UTC));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PrewarmService prewarmServiceMock;
+
+    @MockBean
+    private AdmissionControl admissionControlMock;
+
+    @Test
+    void givenApplicationsWhenPostThenJobAcceptedWithLocation() throws Exception {
+        // GIVEN
+        final ApplicationParams applicationParams = ApplicationParams.create(APP_ID, APP_VER, PLATFORM_NAME, FIRMWARE_VER, APP_ID);
+        when(prewarmServiceMock.start(PLATFORM_NAME, FIRMWARE_VER, List.of(applicationParams))).thenReturn(JOB);
+
+        // WHEN THEN
+        mockMvc.perform(post(PREWARM_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"platformName\":\"" + PLATFORM_NAME + "\",\"firmwareVersion\":\"" + FIRMWARE_VER
+                                + "\",\"applications\":[{\"appId\":\"" + APP_ID + "\",\"appVersion\":\"" + APP_VER + "\"}]}"))
+                .andExpectAll(
+                        status().isAccepted(),
+                        header().string(HttpHeaders.LOCATION, endsWith(PREWARM_PATH + "/" + ID)),
+                        jsonPath("$.id").value(ID.toString()),
+                        jsonPath("$.state").value("RUNNING"),
+                        jsonPath("$.total").value(1),
+                        jsonPath("$.queued").value(0)
+                );
+    }
+
+    @Test
+    void givenNoApplicationsAndNoCatalogWhenPostThenBadRequest() throws Exception {
+        // GIVEN
+        when(prewarmServiceMock.start(eq(PLATFORM_NAME), eq(FIRMWARE_VER), anyList())).thenThrow(InvalidPrewarmRequestException.noApplications());
+
+        // WHEN THEN
+        mockMvc.perform(post(PREWARM_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"platformName\":\"" + PLATFORM_NAME + "\",\"firmwareVersion\":\"" + FIRMWARE_VER + "\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenExistingJobWhenGetThenProgressWithCompletedCount() throws Exception {
+        // GIVEN
+        when(prewarmServiceMock.getJob(ID)).thenReturn(Optional.of(JOB));
+        when(prewarmServiceMock.countCompleted(JOB)).thenReturn(1L);
+
+        // WHEN THEN
+        mockMvc.perform(get(PREWARM_JOB_PATH, ID))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.id").value(ID.toString()),
+                        jsonPath("$.completed").value(1)
+                );
+    }
+
+    @Test
+    void givenUnknownJobWhenGetThenNotFound() throws Exception {
+        // GIVEN
+        when(prewarmServiceMock.getJob(ID)).thenReturn(Optional.empty());
+
+        // WHEN THEN
+        mockMvc.perform(get(PREWARM_JOB_PATH, ID))
+                .andExpect(status().isNotFound());
+    }
+}
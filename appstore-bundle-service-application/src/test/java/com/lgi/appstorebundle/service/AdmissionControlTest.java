@@ -0,0 +1,139 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.common.r4j.AdaptiveLimiter;
+import com.lgi.appstorebundle.common.r4j.AsmsClientInvoker;
+import com.lgi.appstorebundle.error.exception.ServiceOverloadedException;
+import com.lgi.appstorebundle.external.ManagedRabbitMQ;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.lgi.appstorebundle.service.AdmissionControl.ASMS_BULKHEAD_SATURATED;
+import static com.lgi.appstorebundle.service.AdmissionControl.DATABASE_POOL_EXHAUSTED;
+import static com.lgi.appstorebundle.service.AdmissionControl.RABBITMQ_BLOCKED;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdmissionControlTest {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(10);
+    private static final int MAX_THREADS_AWAITING_CONNECTION = 5;
+
+    private final HikariDataSource readDataSource = mock(HikariDataSource.class);
+    private final HikariDataSource writeDataSource = mock(HikariDataSource.class);
+    private final HikariPoolMXBean writePool = mock(HikariPoolMXBean.class);
+    private final ManagedRabbitMQ managedRabbitMQ = mock(ManagedRabbitMQ.class);
+    private final Bulkhead bulkhead = Bulkhead.of("asms", BulkheadConfig.custom().maxConcurrentCalls(2).build());
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AdmissionControl admissionControl;
+
+    @BeforeEach
+    void setUp() {
+        when(writeDataSource.getHikariPoolMXBean()).thenReturn(writePool);
+        admissionControl = admissionControl(true);
+    }
+
+    @Test
+    void admitWhenNoDependencyIsSaturated() {
+        // GIVEN
+        when(writePool.getThreadsAwaitingConnection()).thenReturn(MAX_THREADS_AWAITING_CONNECTION);
+        bulkhead.acquirePermission();
+
+        // WHEN THEN
+        assertEquals(Optional.empty(), admissionControl.rejectionReason());
+        assertDoesNotThrow(admissionControl::admit);
+    }
+
+    @Test
+    void rejectWhenRabbitMQConnectionIsBlocked() {
+        // GIVEN
+        when(managedRabbitMQ.isBlocked()).thenReturn(true);
+
+        // WHEN
+        final ServiceOverloadedException exception = assertThrows(ServiceOverloadedException.class, admissionControl::admit);
+
+        // THEN
+        assertEquals(RETRY_AFTER, exception.getRetryAfter());
+        assertEquals(1, meterRegistry.counter("bundle.admission.rejected", "reason", RABBITMQ_BLOCKED).count());
+    }
+
+    @Test
+    void rejectWhenTooManyThreadsAwaitDatabaseConnection() {
+        // GIVEN
+        when(writePool.getThreadsAwaitingConnection()).thenReturn(MAX_THREADS_AWAITING_CONNECTION + 1);
+
+        // WHEN THEN
+        assertEquals(Optional.of(DATABASE_POOL_EXHAUSTED), admissionControl.rejectionReason());
+    }
+
+    @Test
+    void rejectWhenAsmsBulkheadIsSaturated() {
+        // GIVEN
+        bulkhead.acquirePermission();
+        bulkhead.acquirePermission();
+
+        // WHEN THEN
+        assertEquals(Optional.of(ASMS_BULKHEAD_SATURATED), admissionControl.rejectionReason());
+    }
+
+    @Test
+    void rejectWhenAsmsAdaptiveLimitIsSaturated() {
+        // GIVEN
+        final AdaptiveLimiter adaptiveLimiter = mock(AdaptiveLimiter.class);
+        when(adaptiveLimiter.getLimit()).thenReturn(10);
+        when(adaptiveLimiter.getInFlight()).thenReturn(9);
+        final AsmsClientInvoker asmsClientInvoker = mock(AsmsClientInvoker.class);
+        when(asmsClientInvoker.getBulkhead()).thenReturn(Optional.of(bulkhead));
+        when(asmsClientInvoker.getAdaptiveLimiter()).thenReturn(Optional.of(adaptiveLimiter));
+        admissionControl = new AdmissionControl(true, RETRY_AFTER, MAX_THREADS_AWAITING_CONNECTION, 0.9, readDataSource, writeDataSource,
+                asmsClientInvoker, managedRabbitMQ, meterRegistry);
+
+        // WHEN THEN
+        assertEquals(Optional.of(ASMS_BULKHEAD_SATURATED), admissionControl.rejectionReason());
+    }
+
+    @Test
+    void admitEverythingWhenDisabled() {
+        // GIVEN
+        when(managedRabbitMQ.isBlocked()).thenReturn(true);
+
+        // WHEN THEN
+        assertDoesNotThrow(admissionControl(false)::admit);
+    }
+
+    private AdmissionControl admissionControl(boolean enabled) {
+        final AsmsClientInvoker asmsClientInvoker = new AsmsClientInvoker(CircuitBreaker.ofDefaults("asms"), bulkhead);
+        return new AdmissionControl(enabled, RETRY_AFTER, MAX_THREADS_AWAITING_CONNECTION, 0.9, readDataSource, writeDataSource,
+                asmsClientInvoker, managedRabbitMQ, meterRegistry);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lgi.appstorebundle.api.ApplicationParams;
+import com.lgi.appstorebundle.common.r4j.AdaptiveLimiter;
+import com.lgi.appstorebundle.common.r4j.AsmsClientInvoker;
+import com.lgi.appstorebundle.common.r4j.configuration.AdaptiveLimitConfiguration;
+import com.lgi.appstorebundle.configuration.ApplicationMetadataCacheConfiguration;
+import com.lgi.appstorebundle.external.asms.AppstoreMetadataServiceClient;
+import com.lgi.appstorebundle.external.asms.model.ApplicationMetadata;
+import com.lgi.appstorebundle.external.asms.model.ApplicationMetadataForMaintainer;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.lgi.appstorebundle.service.ApplicationMetadataService.APPLICATION_METADATA_CACHE_NAME;
+import static com.lgi.appstorebundle.service.ApplicationMetadataService.MAINTAINER_APPLICATION_METADATA_CACHE_NAME;
+import static com.lgi.appstorebundle.service.LastKnownGoodStore.STALE_RESPONSES_METRIC;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ApplicationMetadataServiceTest {
+
+    private static final ApplicationParams APP = ApplicationParams.create("appId", "appVersion", "platformName", "firmwareVersion", "appBundleName");
+    private static final ApplicationParams OTHER_APP = ApplicationParams.create("otherAppId", "appVersion", "platformName", "firmwareVersion", "appBundleName");
+    private static final String MAINTAINER_CODE = "maintainerCode";
+    private static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(5);
+    private static final Duration NOT_FOUND_EXPIRE_AFTER_WRITE = Duration.ofSeconds(30);
+    private static final Duration LAST_KNOWN_GOOD_EXPIRE_AFTER_WRITE = Duration.ofDays(1);
+
+    private final AppstoreMetadataServiceClient client = mock(AppstoreMetadataServiceClient.class);
+    private final ApplicationMetadataCacheConfiguration cacheConfiguration = mock(ApplicationMetadataCacheConfiguration.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong nanoTime = new AtomicLong();
+    private ApplicationMetadataService service;
+
+    @BeforeEach
+    void setUp() {
+        when(cacheConfiguration.getMaximumSize()).thenReturn(100L);
+        when(cacheConfiguration.getExpireAfterWrite()).thenReturn(EXPIRE_AFTER_WRITE);
+        when(cacheConfiguration.getNotFoundExpireAfterWrite()).thenReturn(NOT_FOUND_EXPIRE_AFTER_WRITE);
+        when(cacheConfiguration.getRefreshAfterWrite()).thenReturn(EXPIRE_AFTER_WRITE);
+        when(cacheConfiguration.getLastKnownGoodMaximumSize()).thenReturn(100L);
+        when(cacheConfiguration.getLastKnownGoodExpireAfterWrite()).thenReturn(LAST_KNOWN_GOOD_EXPIRE_AFTER_WRITE);
+        service = new ApplicationMetadataService(client, cacheConfiguration, meterRegistry, Runnable::run, nanoTime::get);
+    }
+
+    @Test
+    void getApplicationMetadata_servedFromCacheOnSecondCall() {
+        // GIVEN
+        final ApplicationMetadata metadata = mock(ApplicationMetadata.class);
+        when(client.getApplicationByAppIdAsync(eq(APP), any())).thenReturn(completedFuture(Optional.of(metadata)));
+
+        // WHEN
+        service.getApplicationMetadata(APP).join();
+        final Optional<ApplicationMetadata> result = service.getApplicationMetadata(APP).join();
+
+        // THEN
+        assertEquals(Optional.of(metadata), result);
+        verify(client, times(1)).getApplicationByAppIdAsync(eq(APP), any());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", APPLICATION_METADATA_CACHE_NAME).tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", APPLICATION_METADATA_CACHE_NAME).tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void getApplicationMetadata_notFoundExpiresBeforeFound() {
+        // GIVEN
+        when(client.getApplicationByAppIdAsync(eq(APP), any())).thenReturn(completedFuture(Optional.of(mock(ApplicationMetadata.class))));
+        when(client.getApplicationByAppIdAsync(eq(OTHER_APP), any())).thenReturn(completedFuture(Optional.empty()));
+        service.getApplicationMetadata(APP).join();
+        service.getApplicationMetadata(OTHER_APP).join();
+
+        // WHEN
+        nanoTime.addAndGet(NOT_FOUND_EXPIRE_AFTER_WRITE.plusSeconds(1).toNanos());
+        service.getApplicationMetadata(APP).join();
+        final Optional<ApplicationMetadata> result = service.getApplicationMetadata(OTHER_APP).join();
+
+        // THEN
+        assertTrue(result.isEmpty());
+        verify(client, times(1)).getApplicationByAppIdAsync(eq(APP), any());
+        verify(client, times(2)).getApplicationByAppIdAsync(eq(OTHER_APP), any());
+    }
+
+    @Test
+    void getApplicationMetadataForMaintainerCode_cachedPerMaintainerCode() {
+        // GIVEN
+        final ApplicationMetadataForMaintainer metadata = mock(ApplicationMetadataForMaintainer.class);
+        when(client.getApplicationByIdAndMaintainerCodeAsync(eq(APP), eq(MAINTAINER_CODE), any())).thenReturn(completedFuture(Optional.of(metadata)));
+        when(client.getApplicationByIdAndMaintainerCodeAsync(eq(APP), eq("otherMaintainerCode"), any())).thenReturn(completedFuture(Optional.empty()));
+
+        // WHEN
+        service.getApplicationMetadataForMaintainerCode(APP, MAINTAINER_CODE).join();
+        final Optional<ApplicationMetadataForMaintainer> result = service.getApplicationMetadataForMaintainerCode(APP, MAINTAINER_CODE).join();
+        final Optional<ApplicationMetadataForMaintainer> otherResult = service.getApplicationMetadataForMaintainerCode(APP, "otherMaintainerCode").join();
+
+        // THEN
+        assertEquals(Optional.of(metadata), result);
+        assertTrue(otherResult.isEmpty());
+        verify(client, times(1)).getApplicationByIdAndMaintainerCodeAsync(eq(APP), eq(MAINTAINER_CODE), any());
+        verify(client, times(1)).getApplicationByIdAndMaintainerCodeAsync(eq(APP), eq("otherMaintainerCode"), any());
+    }
+
+    @Test
+    void getApplicationMetadata_servesLastKnownWhenAsmsFails() {
+        // GIVEN
+        final ApplicationMetadata metadata = mock(ApplicationMetadata.class);
+        when(client.getApplicationByAppIdAsync(eq(APP), any()))
+                .thenReturn(completedFuture(Optional.of(metadata)))
+                .thenReturn(failedFuture(new IllegalStateException("CircuitBreaker is OPEN")));
+        service.getApplicationMetadata(APP).join();
+
+        // WHEN
+        nanoTime.addAndGet(EXPIRE_AFTER_WRITE.plusSeconds(1).toNanos());
+        final Optional<ApplicationMetadata> result = service.getApplicationMetadata(APP).join();
+
+        // THEN
+        assertEquals(Optional.of(metadata), result);
+        verify(client, times(2)).getApplicationByAppIdAsync(eq(APP), any());
+        assertEquals(1.0, meterRegistry.get(STALE_RESPONSES_METRIC).tag("cache", APPLICATION_METADATA_CACHE_NAME).counter().count());
+    }
+
+    @Test
+    void getApplicationMetadata_servesLastKnownWhenAdaptiveLimiterRejectsCall() {
+        // GIVEN
+        final ApplicationMetadata metadata = mock(ApplicationMetadata.class);
+        final RestTemplate restTemplate = mock(RestTemplate.class);
+        when(restTemplate.<ApplicationMetadata>execute(any(URI.class), eq(HttpMethod.GET), any(RequestCallback.class), any())).thenReturn(metadata);
+        final AsmsClientInvoker clientInvoker = new AsmsClientInvoker(CircuitBreaker.ofDefaults("asms"),
+                new AdaptiveLimiter(Bulkhead.of("asms", BulkheadConfig.custom().maxConcurrentCalls(1).build()), singleCallLimit()), null);
+        final MeterRegistry limitedMeterRegistry = new SimpleMeterRegistry();
+        final ApplicationMetadataService limitedService = new ApplicationMetadataService(
+                new AppstoreMetadataServiceClient(restTemplate, clientInvoker, new ObjectMapper(), "http://asms"),
+                cacheConfiguration, limitedMeterRegistry, Runnable::run, nanoTime::get);
+        limitedService.getApplicationMetadata(APP).join();
+        clientInvoker.invokeCompletionStage(CompletableFuture::new);
+
+        // WHEN
+        nanoTime.addAndGet(EXPIRE_AFTER_WRITE.plusSeconds(1).toNanos());
+        final Optional<ApplicationMetadata> result = limitedService.getApplicationMetadata(APP).join();
+
+        // THEN
+        assertEquals(Optional.of(metadata), result);
+        verify(restTemplate, times(1)).execute(any(URI.class), eq(HttpMethod.GET), any(RequestCallback.class), any());
+        assertEquals(1.0, limitedMeterRegistry.get(STALE_RESPONSES_METRIC).tag("cache", APPLICATION_METADATA_CACHE_NAME).counter().count());
+    }
+
+    @Test
+    void getApplicationMetadata_failsWhenLastKnownExpired() {
+        // GIVEN
+        when(client.getApplicationByAppIdAsync(eq(APP), any()))
+                .thenReturn(completedFuture(Optional.of(mock(ApplicationMetadata.class))))
+                .thenReturn(failedFuture(new IllegalStateException("CircuitBreaker is OPEN")));
+        service.getApplicationMetadata(APP).join();
+
+        // WHEN
+        nanoTime.addAndGet(LAST_KNOWN_GOOD_EXPIRE_AFTER_WRITE.plusSeconds(1).toNanos());
+
+        // THEN
+        assertThrows(CompletionException.class, () -> service.getApplicationMetadata(APP).join());
+        assertEquals(0.0, meterRegistry.get(STALE_RESPONSES_METRIC).tag("cache", APPLICATION_METADATA_CACHE_NAME).counter().count());
+    }
+
+    @Test
+    void getApplicationMetadataForMaintainerCode_forgetsLastKnownWhenNotFound() {
+        // GIVEN
+        when(client.getApplicationByIdAndMaintainerCodeAsync(eq(APP), eq(MAINTAINER_CODE), any()))
+                .thenReturn(completedFuture(Optional.of(mock(ApplicationMetadataForMaintainer.class))))
+                .thenReturn(completedFuture(Optional.empty()))
+                .thenReturn(failedFuture(new IllegalStateException("CircuitBreaker is OPEN")));
+        service.getApplicationMetadataForMaintainerCode(APP, MAINTAINER_CODE).join();
+        nanoTime.addAndGet(EXPIRE_AFTER_WRITE.plusSeconds(1).toNanos());
+        service.getApplicationMetadataForMaintainerCode(APP, MAINTAINER_CODE).join();
+
+        // WHEN
+        nanoTime.addAndGet(NOT_FOUND_EXPIRE_AFTER_WRITE.plusSeconds(1).toNanos());
+
+        // THEN
+        assertThrows(CompletionException.class, () -> service.getApplicationMetadataForMaintainerCode(APP, MAINTAINER_CODE).join());
+        assertEquals(0.0, meterRegistry.get(STALE_RESPONSES_METRIC).tag("cache", MAINTAINER_APPLICATION_METADATA_CACHE_NAME).counter().count());
+    }
+
+    private static AdaptiveLimitConfiguration singleCallLimit() {
+        final AdaptiveLimitConfiguration configuration = mock(AdaptiveLimitConfiguration.class);
+        when(configuration.isEnabled()).thenReturn(true);
+        when(configuration.getMinLimit()).thenReturn(1);
+        when(configuration.getMaxLimit()).thenReturn(1);
+        when(configuration.getLatencyThreshold()).thenReturn(Duration.ofMinutes(1));
+        when(configuration.getBackoffRatio()).thenReturn(0.5);
+        return configuration;
+    }
+}
@@ -22,11 +22,13 @@ import com.lgi.appstorebundle.api.model.ApplicationContext;
 import com.lgi.appstorebundle.api.model.Bundle;
 import com.lgi.appstorebundle.api.model.BundleContext;
 import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.api.model.BundleStatusTransition;
 import com.lgi.appstorebundle.exception.RabbitMQException;
 import com.lgi.appstorebundle.external.OptionalException;
 import com.lgi.appstorebundle.external.RabbitMQService;
 import com.lgi.appstorebundle.model.EncryptionMessageFactory;
 import com.lgi.appstorebundle.storage.persistent.BundleDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.junit.jupiter.api.BeforeEach;
@@ -38,20 +40,26 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.MockitoAnnotations;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_LAUNCHED;
 import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
 import static java.util.UUID.randomUUID;
 import static org.joda.time.DateTime.now;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.atMostOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -65,15 +73,19 @@ class BundleServiceTest {
     public static final String FIRMWARE_VERSION = "firmwareVersion";
     public static final String OCI_IMAGE_URL = "ociImageUrl";
     public static final String X_REQUEST_ID = "xRequestId";
+    public static final String MAINTAINER_CODE = "maintainerCode";
 
     private final BundleDao dao = mock(BundleDao.class);
     private final RabbitMQService rabbitMQ = mock(RabbitMQService.class);
     private final EncryptionMessageFactory encryptionMessageFactory = mock(EncryptionMessageFactory.class);
-    private final BundleService service = new BundleService(dao, rabbitMQ, encryptionMessageFactory);
+    private final RetryAfterEstimator retryAfterEstimator = mock(RetryAfterEstimator.class);
+    private final GenerationDispatcher generationDispatcher = spy(new GenerationDispatcher(
+            100, Duration.ofMinutes(30), Duration.ofSeconds(10), false, "", 0.1, rabbitMQ, dao, new SimpleMeterRegistry()));
+    private final BundleService service = new BundleService(dao, rabbitMQ, encryptionMessageFactory, retryAfterEstimator, generationDispatcher);
     private final DateTime messageTimestamp = now(DateTimeZone.UTC);
     private final ApplicationContext applicationContext = ApplicationContext.create(APP_ID, APP_VERSION, PLATFORM_NAME, FIRMWARE_VERSION);
     private final Bundle bundle = Bundle.create(ID, applicationContext, GENERATION_REQUESTED, X_REQUEST_ID, messageTimestamp, true);
-    private final BundleContext bundleContext = BundleContext.create(bundle, OCI_IMAGE_URL, true);
+    private final BundleContext bundleContext = BundleContext.create(bundle, OCI_IMAGE_URL, true, MAINTAINER_CODE);
 
     @Captor
     private ArgumentCaptor<BundleStatus> bundleStatusCaptor;
@@ -81,26 +93,44 @@ class BundleServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
-        reset(dao, rabbitMQ);
+        reset(dao, rabbitMQ, retryAfterEstimator);
     }
 
     @Test
     void triggerBundleGeneration_SavingToDBAndSendingMessageExecuted() {
         // GIVEN
+        when(dao.saveBundleWithStatus(bundle)).thenReturn(bundle);
         when(rabbitMQ.sendGenerationMessage(any())).thenReturn(OptionalException.empty());
 
         // WHEN
-        service.triggerBundleGeneration(bundleContext);
+        final Bundle result = service.triggerBundleGeneration(bundleContext);
 
         // THEN
+        assertEquals(bundle, result);
         verify(dao).saveBundleWithStatus(any());
         verify(rabbitMQ).sendGenerationMessage(any());
         verify(dao, never()).updateStatusForBundle(any(), any(), any());
     }
 
+    @Test
+    void triggerBundleGenerationWithBundleAlreadyInFlight_ExistingBundleReturnedAndNoMessageSent() {
+        // GIVEN
+        final Bundle inFlightBundle = Bundle.create(randomUUID(), applicationContext, GENERATION_REQUESTED, "otherXRequestId", messageTimestamp, true);
+        when(dao.saveBundleWithStatus(bundle)).thenReturn(inFlightBundle);
+
+        // WHEN
+        final Bundle result = service.triggerBundleGeneration(bundleContext);
+
+        // THEN
+        assertEquals(inFlightBundle, result);
+        verify(rabbitMQ, never()).sendGenerationMessage(any());
+        verify(dao, never()).updateStatusForBundle(any(), any(), any());
+    }
+
     @Test
     void triggerBundleGenerationWithException_SaveAndUpdateRowAndSendingMessageExecuted() {
         // GIVEN
+        when(dao.saveBundleWithStatus(bundle)).thenReturn(bundle);
         when(rabbitMQ.sendGenerationMessage(any())).thenReturn(OptionalException.of(RabbitMQException.createDefault(X_REQUEST_ID, "error")));
 
         // WHEN, THEN
@@ -112,6 +142,62 @@ class BundleServiceTest {
         verify(dao).updateStatusForBundle(any(), any(), any());
     }
 
+    @Test
+    void triggerBundleGenerations_SavedInOneCallAndMessagesSentForNewBundlesOnly() {
+        // GIVEN
+        final ApplicationContext otherApplicationContext = ApplicationContext.create("otherAppId", APP_VERSION, PLATFORM_NAME, FIRMWARE_VERSION);
+        final Bundle otherBundle = Bundle.create(randomUUID(), otherApplicationContext, GENERATION_REQUESTED, "otherXRequestId", messageTimestamp, true);
+        final Bundle inFlightBundle = Bundle.create(randomUUID(), otherApplicationContext, GENERATION_REQUESTED, "inFlightXRequestId", messageTimestamp, true);
+        when(dao.saveBundlesWithStatus(List.of(bundle, otherBundle))).thenReturn(List.of(inFlightBundle, bundle));
+        when(rabbitMQ.sendGenerationMessage(any())).thenReturn(OptionalException.empty());
+
+        // WHEN
+        final List<Bundle> result = service.triggerBundleGenerations(List.of(bundleContext, BundleContext.create(otherBundle, OCI_IMAGE_URL, true, MAINTAINER_CODE)));
+
+        // THEN
+        assertEquals(List.of(bundle, inFlightBundle), result);
+        verify(rabbitMQ).sendGenerationMessage(bundleContext);
+        verify(dao, never()).saveBundleWithStatus(any());
+        verify(dao, never()).updateStatusForBundle(any(), any(), any());
+    }
+
+    @Test
+    void triggerBackgroundBundleGenerations_NewBundlesQueuedAtBackgroundPriority() {
+        // GIVEN
+        final ApplicationContext otherApplicationContext = ApplicationContext.create("otherAppId", APP_VERSION, PLATFORM_NAME, FIRMWARE_VERSION);
+        final Bundle otherBundle = Bundle.create(randomUUID(), otherApplicationContext, GENERATION_REQUESTED, "otherXRequestId", messageTimestamp, true);
+        final Bundle inFlightBundle = Bundle.create(randomUUID(), otherApplicationContext, GENERATION_REQUESTED, "inFlightXRequestId", messageTimestamp, true);
+        final BundleContext otherBundleContext = BundleContext.create(otherBundle, OCI_IMAGE_URL, true, MAINTAINER_CODE);
+        when(dao.saveBundlesWithStatus(List.of(bundle, otherBundle))).thenReturn(List.of(inFlightBundle, bundle));
+        when(dao.queueBundleGenerations(anyList())).thenReturn(List.of(ID));
+        when(dao.claimQueuedGeneration(ID)).thenReturn(true);
+        when(rabbitMQ.sendGenerationMessage(any())).thenReturn(OptionalException.empty());
+
+        // WHEN
+        final List<Bundle> result = service.triggerBackgroundBundleGenerations(List.of(bundleContext, otherBundleContext));
+
+        // THEN
+        assertEquals(List.of(bundle, inFlightBundle), result);
+        verify(generationDispatcher).submitBackground(bundleContext);
+        verify(generationDispatcher, never()).submitBackground(otherBundleContext);
+        verify(rabbitMQ, timeout(1000)).sendGenerationMessage(bundleContext);
+    }
+
+    @Test
+    void triggerBundleGenerationsWithException_BundleReturnedWithErrorStatus() {
+        // GIVEN
+        when(dao.saveBundlesWithStatus(List.of(bundle))).thenReturn(List.of(bundle));
+        when(rabbitMQ.sendGenerationMessage(any())).thenReturn(OptionalException.of(RabbitMQException.createDefault(X_REQUEST_ID, "error")));
+
+        // WHEN
+        final List<Bundle> result = service.triggerBundleGenerations(List.of(bundleContext));
+
+        // THEN
+        assertEquals(1, result.size());
+        assertEquals(BundleStatus.BUNDLE_ERROR, result.get(0).getStatus());
+        verify(dao).updateStatusForBundle(ID, BundleStatus.BUNDLE_ERROR, messageTimestamp);
+    }
+
     @Test
     void triggerBundleEncryptionWithNotExistingBundle_skipTriggeringEncryption() {
         // GIVEN
@@ -154,6 +240,34 @@ class BundleServiceTest {
         assertEquals(BundleStatus.BUNDLE_ERROR, bundleStatusCaptor.getValue());
     }
 
+    @Test
+    void updateBundleStatusIfNewer_TransitionRecordedForRetryAfterEstimation() {
+        // GIVEN
+        final DateTime completedTimestamp = messageTimestamp.plusMinutes(2);
+        final BundleStatusTransition transition = BundleStatusTransition.create(ID, PLATFORM_NAME, GENERATION_LAUNCHED, messageTimestamp, GENERATION_COMPLETED, completedTimestamp);
+        when(dao.updateBundleStatusIfNewer(ID, GENERATION_COMPLETED, completedTimestamp)).thenReturn(Optional.of(transition));
+
+        // WHEN
+        service.updateBundleStatusIfNewer(ID, GENERATION_COMPLETED, completedTimestamp);
+
+        // THEN
+        verify(retryAfterEstimator).record(transition);
+        verify(generationDispatcher).complete(ID);
+    }
+
+    @Test
+    void updateBundleStatusIfNewerWithStaleMessage_NothingRecorded() {
+        // GIVEN
+        when(dao.updateBundleStatusIfNewer(any(), any(), any())).thenReturn(Optional.empty());
+
+        // WHEN
+        service.updateBundleStatusIfNewer(ID, GENERATION_COMPLETED, messageTimestamp);
+
+        // THEN
+        verify(retryAfterEstimator, never()).record(any());
+        verify(generationDispatcher, never()).complete(any());
+    }
+
     @ParameterizedTest
     @MethodSource
     void testEncryption(Boolean dbValue, boolean expectedValue) {
@@ -0,0 +1,87 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.api.model.BundleStatusCount;
+import com.lgi.appstorebundle.storage.persistent.BundleDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BundleStatusGaugesTest {
+
+    private static final String PLATFORM = "platform";
+
+    private final BundleDao dao = mock(BundleDao.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BundleStatusGauges gauges = new BundleStatusGauges(Duration.ofSeconds(30), dao, meterRegistry);
+
+    @Test
+    void gaugesFollowCountsOnRefresh() {
+        // GIVEN
+        when(dao.getBundleStatusCounts())
+                .thenReturn(List.of(
+                        BundleStatusCount.create(PLATFORM, GENERATION_REQUESTED, 3),
+                        BundleStatusCount.create(PLATFORM, GENERATION_COMPLETED, 7)))
+                .thenReturn(List.of(BundleStatusCount.create(PLATFORM, GENERATION_COMPLETED, 10)));
+
+        // WHEN
+        gauges.refresh();
+
+        // THEN
+        assertEquals(3, gauge(GENERATION_REQUESTED.name()));
+        assertEquals(7, gauge(GENERATION_COMPLETED.name()));
+
+        // WHEN
+        gauges.refresh();
+
+        // THEN
+        assertNull(meterRegistry.find("bundle.status.count").tags("platform", PLATFORM, "status", GENERATION_REQUESTED.name()).gauge());
+        assertEquals(10, gauge(GENERATION_COMPLETED.name()));
+    }
+
+    @Test
+    void lastCountsKeptWhenRefreshFails() {
+        // GIVEN
+        when(dao.getBundleStatusCounts())
+                .thenReturn(List.of(BundleStatusCount.create(PLATFORM, GENERATION_COMPLETED, 7)))
+                .thenThrow(new IllegalStateException("database unavailable"));
+        gauges.refresh();
+
+        // WHEN
+        gauges.refresh();
+
+        // THEN
+        assertEquals(7, gauge(GENERATION_COMPLETED.name()));
+    }
+
+    private double gauge(String status) {
+        return meterRegistry.get("bundle.status.count").tags("platform", PLATFORM, "status", status).gauge().value();
+    }
+}
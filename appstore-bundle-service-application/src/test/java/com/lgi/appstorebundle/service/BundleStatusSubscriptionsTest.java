@@ -0,0 +1,69 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.api.model.BundleStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_LAUNCHED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BundleStatusSubscriptionsTest {
+
+    private static final UUID ID = UUID.randomUUID();
+
+    private final BundleStatusSubscriptions subscriptions = new BundleStatusSubscriptions();
+
+    @Test
+    void publish_deliveredToSubscribersOfSameBundleOnly() {
+        // GIVEN
+        final List<BundleStatus> received = new ArrayList<>();
+        final List<BundleStatus> receivedForOtherBundle = new ArrayList<>();
+        subscriptions.subscribe(ID, received::add);
+        subscriptions.subscribe(UUID.randomUUID(), receivedForOtherBundle::add);
+
+        // WHEN
+        subscriptions.publish(ID, GENERATION_LAUNCHED);
+        subscriptions.publish(ID, GENERATION_COMPLETED);
+
+        // THEN
+        assertEquals(List.of(GENERATION_LAUNCHED, GENERATION_COMPLETED), received);
+        assertEquals(List.of(), receivedForOtherBundle);
+    }
+
+    @Test
+    void unsubscribe_noMoreDeliveriesAndSubscriberReleased() {
+        // GIVEN
+        final List<BundleStatus> received = new ArrayList<>();
+        final Runnable unsubscribe = subscriptions.subscribe(ID, received::add);
+
+        // WHEN
+        unsubscribe.run();
+        subscriptions.publish(ID, GENERATION_LAUNCHED);
+
+        // THEN
+        assertEquals(List.of(), received);
+        assertEquals(0, subscriptions.subscriberCount(ID));
+    }
+}
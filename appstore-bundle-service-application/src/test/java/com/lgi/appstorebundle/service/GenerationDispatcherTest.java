@@ -0,0 +1,322 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.api.model.ApplicationContext;
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleContext;
+import com.lgi.appstorebundle.api.model.QueuedGeneration;
+import com.lgi.appstorebundle.exception.RabbitMQException;
+import com.lgi.appstorebundle.external.OptionalException;
+import com.lgi.appstorebundle.external.RabbitMQService;
+import com.lgi.appstorebundle.storage.persistent.BundleDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.lgi.appstorebundle.api.model.BundleStatus.BUNDLE_ERROR;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GenerationDispatcherTest {
+
+    private static final Duration IN_FLIGHT_TIMEOUT = Duration.ofMinutes(30);
+    private static final Duration RECOVERY_INTERVAL = Duration.ofMinutes(1);
+    private static final String BULK_MAINTAINER = "bulk";
+    private static final String INTERACTIVE_MAINTAINER = "interactive";
+
+    private final RabbitMQService rabbitMQ = mock(RabbitMQService.class);
+    private final BundleDao dao = mock(BundleDao.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DateTime messageTimestamp = DateTime.now(DateTimeZone.UTC);
+    private GenerationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        when(rabbitMQ.sendGenerationMessage(any())).thenReturn(OptionalException.empty());
+        when(dao.queueBundleGenerations(anyList())).thenAnswer(invocation -> invocation.<List<QueuedGeneration>>getArgument(0).stream()
+                .map(queuedGeneration -> queuedGeneration.getBundleContext().getBundle().getId())
+                .collect(toList()));
+        when(dao.claimQueuedGeneration(any())).thenReturn(true);
+        dispatcher = new GenerationDispatcher(1, IN_FLIGHT_TIMEOUT, RECOVERY_INTERVAL, false, BULK_MAINTAINER + "=1", 0.1, rabbitMQ, dao, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.stop();
+    }
+
+    @Test
+    void publishImmediatelyWhenThereIsCapacity() {
+        // GIVEN
+        final BundleContext context = bundleContext(BULK_MAINTAINER);
+
+        // WHEN
+        final OptionalException result = dispatcher.submit(context);
+
+        // THEN
+        assertFalse(result.isPresent());
+        verify(rabbitMQ).sendGenerationMessage(context);
+        assertEquals(1, dispatcher.inFlight());
+        assertEquals(0, dispatcher.queued());
+    }
+
+    @Test
+    void returnFailureOfImmediatePublicationAndReleaseCapacity() {
+        // GIVEN
+        final BundleContext context = bundleContext(BULK_MAINTAINER);
+        when(rabbitMQ.sendGenerationMessage(context)).thenReturn(OptionalException.of(new RabbitMQException("unreachable")));
+
+        // WHEN
+        final OptionalException result = dispatcher.submit(context);
+
+        // THEN
+        assertTrue(result.isPresent());
+        assertEquals(0, dispatcher.inFlight());
+    }
+
+    @Test
+    void queueBeyondCapacityAndServeMaintainersFairlyOnCompletion() {
+        // GIVEN
+        final BundleContext running = bundleContext(BULK_MAINTAINER);
+        final BundleContext bulk1 = bundleContext(BULK_MAINTAINER);
+        final BundleContext bulk2 = bundleContext(BULK_MAINTAINER);
+        final BundleContext interactive = bundleContext(INTERACTIVE_MAINTAINER);
+        dispatcher.submit(running);
+
+        // WHEN
+        dispatcher.submit(bulk1);
+        dispatcher.submit(bulk2);
+        dispatcher.submit(interactive);
+
+        // THEN
+        verify(rabbitMQ, never()).sendGenerationMessage(bulk1);
+        verify(dao).queueBundleGenerations(argThat(queued -> queued.size() == 1 && queued.get(0).getBundleContext().equals(bulk1)));
+        assertEquals(3, dispatcher.queued());
+
+        // WHEN
+        dispatcher.complete(running.getBundle().getId());
+
+        // THEN
+        verify(rabbitMQ, timeout(1000)).sendGenerationMessage(bulk1);
+        verify(rabbitMQ, never()).sendGenerationMessage(interactive);
+
+        // WHEN
+        dispatcher.complete(bulk1.getBundle().getId());
+
+        // THEN
+        verify(rabbitMQ, timeout(1000)).sendGenerationMessage(interactive);
+        verify(rabbitMQ, never()).sendGenerationMessage(bulk2);
+        final InOrder inOrder = inOrder(rabbitMQ);
+        inOrder.verify(rabbitMQ).sendGenerationMessage(running);
+        inOrder.verify(rabbitMQ).sendGenerationMessage(bulk1);
+        inOrder.verify(rabbitMQ).sendGenerationMessage(interactive);
+    }
+
+    @Test
+    void serveBackgroundGenerationsAfterQueuedMaintainerRequests() {
+        // GIVEN
+        final BundleContext running = bundleContext(BULK_MAINTAINER);
+        final BundleContext background = bundleContext(BULK_MAINTAINER);
+        final BundleContext interactive = bundleContext(INTERACTIVE_MAINTAINER);
+        dispatcher.submit(running);
+        dispatcher.submitBackground(background);
+        dispatcher.submit(interactive);
+
+        // WHEN
+        dispatcher.complete(running.getBundle().getId());
+
+        // THEN
+        verify(rabbitMQ, timeout(1000)).sendGenerationMessage(interactive);
+        verify(rabbitMQ, never()).sendGenerationMessage(background);
+        assertEquals(1, dispatcher.queued());
+    }
+
+    @Test
+    void publishBackgroundGenerationWhenThereIsCapacity() {
+        // GIVEN
+        final BundleContext background = bundleContext(BULK_MAINTAINER);
+
+        // WHEN
+        dispatcher.submitBackground(background);
+
+        // THEN
+        verify(rabbitMQ, timeout(1000)).sendGenerationMessage(background);
+    }
+
+    @Test
+    void markBundleAsFailedWhenQueuedPublicationFails() {
+        // GIVEN
+        final BundleContext running = bundleContext(BULK_MAINTAINER);
+        final BundleContext queued = bundleContext(INTERACTIVE_MAINTAINER);
+        dispatcher.submit(running);
+        dispatcher.submit(queued);
+        when(rabbitMQ.sendGenerationMessage(queued)).thenReturn(OptionalException.of(new RabbitMQException("unreachable")));
+
+        // WHEN
+        dispatcher.complete(running.getBundle().getId());
+
+        // THEN
+        verify(dao, timeout(1000)).updateStatusForBundle(queued.getBundle().getId(), BUNDLE_ERROR, messageTimestamp);
+    }
+
+    @Test
+    void releaseCapacityOfGenerationsWhoseCompletionIsNotReported() {
+        // GIVEN
+        dispatcher = new GenerationDispatcher(1, Duration.ZERO, RECOVERY_INTERVAL, false, "", 0.1, rabbitMQ, dao, meterRegistry);
+        final BundleContext lost = bundleContext(BULK_MAINTAINER);
+        final BundleContext next = bundleContext(INTERACTIVE_MAINTAINER);
+        dispatcher.submit(lost);
+
+        // WHEN
+        final OptionalException result = dispatcher.submit(next);
+
+        // THEN
+        assertFalse(result.isPresent());
+        verify(rabbitMQ).sendGenerationMessage(next);
+        assertEquals(0, dispatcher.queued());
+    }
+
+    @Test
+    void skipQueuedGenerationClaimedByAnotherInstance() {
+        // GIVEN
+        final BundleContext running = bundleContext(BULK_MAINTAINER);
+        final BundleContext queued = bundleContext(INTERACTIVE_MAINTAINER);
+        dispatcher.submit(running);
+        dispatcher.submit(queued);
+        when(dao.claimQueuedGeneration(queued.getBundle().getId())).thenReturn(false);
+
+        // WHEN
+        dispatcher.complete(running.getBundle().getId());
+
+        // THEN
+        verify(dao, timeout(1000)).claimQueuedGeneration(queued.getBundle().getId());
+        verify(rabbitMQ, never()).sendGenerationMessage(queued);
+        assertEquals(0, dispatcher.queued());
+        assertEquals(0, dispatcher.inFlight());
+    }
+
+    @Test
+    void publishGenerationsQueuedBeforeRestartOnStartup() {
+        // GIVEN
+        final BundleContext queued = bundleContext(INTERACTIVE_MAINTAINER);
+        when(dao.getQueuedGenerations(1)).thenReturn(List.of(QueuedGeneration.create(queued, INTERACTIVE_MAINTAINER, messageTimestamp)));
+
+        // WHEN
+        dispatcher.start();
+
+        // THEN
+        verify(rabbitMQ, timeout(1000)).sendGenerationMessage(queued);
+        verify(dao).claimQueuedGeneration(queued.getBundle().getId());
+    }
+
+    @Test
+    void recoverQueuedGenerationOnlyOnce() {
+        // GIVEN
+        dispatcher.stop();
+        dispatcher = new GenerationDispatcher(3, IN_FLIGHT_TIMEOUT, RECOVERY_INTERVAL, false, BULK_MAINTAINER + "=1", 0.1, rabbitMQ, dao, meterRegistry);
+        final BundleContext queued = bundleContext(INTERACTIVE_MAINTAINER);
+        when(dao.getQueuedGenerations(anyInt())).thenReturn(List.of(QueuedGeneration.create(queued, INTERACTIVE_MAINTAINER, messageTimestamp)));
+        dispatcher.recover();
+
+        // WHEN
+        dispatcher.recover();
+
+        // THEN
+        verify(rabbitMQ).sendGenerationMessage(queued);
+        assertEquals(1, dispatcher.inFlight());
+        assertEquals(0, dispatcher.queued());
+    }
+
+    @Test
+    void recoverNoMoreQueuedGenerationsPerTenantThanFreeCapacity() {
+        // GIVEN
+        dispatcher.stop();
+        dispatcher = new GenerationDispatcher(3, IN_FLIGHT_TIMEOUT, RECOVERY_INTERVAL, false, BULK_MAINTAINER + "=1", 0.1, rabbitMQ, dao, meterRegistry);
+        dispatcher.submit(bundleContext(BULK_MAINTAINER));
+
+        // WHEN
+        dispatcher.recover();
+
+        // THEN
+        verify(dao).getQueuedGenerations(2);
+    }
+
+    @Test
+    void doNotLoadQueuedGenerationsWithoutFreeCapacity() {
+        // GIVEN
+        dispatcher.submit(bundleContext(BULK_MAINTAINER));
+
+        // WHEN
+        dispatcher.recover();
+
+        // THEN
+        verify(dao, never()).getQueuedGenerations(anyInt());
+    }
+
+    @Test
+    void releaseCapacityOfGenerationsCompletedOnAnotherInstance() {
+        // GIVEN
+        final BundleContext running = bundleContext(BULK_MAINTAINER);
+        final BundleContext queued = bundleContext(INTERACTIVE_MAINTAINER);
+        dispatcher.submit(running);
+        dispatcher.submit(queued);
+        final UUID runningId = running.getBundle().getId();
+        when(dao.getBundleStatuses(any())).thenReturn(Map.of(runningId, GENERATION_COMPLETED));
+
+        // WHEN
+        dispatcher.recover();
+
+        // THEN
+        verify(rabbitMQ).sendGenerationMessage(queued);
+        assertEquals(1, dispatcher.inFlight());
+        assertEquals(0, dispatcher.queued());
+    }
+
+    private BundleContext bundleContext(String maintainerCode) {
+        final ApplicationContext applicationContext = ApplicationContext.create("appId", "appVersion", "platformName", "firmwareVersion");
+        final Bundle bundle = Bundle.create(randomUUID(), applicationContext, GENERATION_REQUESTED, "xRequestId", messageTimestamp, false);
+        return BundleContext.create(bundle, "ociImageUrl", false, maintainerCode);
+    }
+}
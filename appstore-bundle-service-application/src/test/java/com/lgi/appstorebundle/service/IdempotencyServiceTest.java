@@ -0,0 +1,126 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.api.model.ApplicationContext;
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.error.exception.XRequestIdConflictException;
+import com.lgi.appstorebundle.storage.persistent.BundleDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.lgi.appstorebundle.api.model.BundleStatus.BUNDLE_ERROR;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
+import static java.util.UUID.randomUUID;
+import static org.joda.time.DateTime.now;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private static final String X_REQUEST_ID = "xRequestId";
+    private static final UUID BUNDLE_ID = randomUUID();
+    private static final ApplicationContext APPLICATION_CONTEXT = ApplicationContext.create("appId", "appVersion", "platformName", "firmwareVersion");
+
+    private final BundleDao dao = mock(BundleDao.class);
+    private final IdempotencyService service = new IdempotencyService(dao, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+    private final Bundle bundle = bundle(GENERATION_REQUESTED);
+
+    @Test
+    void findBundle_rememberedBundleReadAgainById() {
+        // GIVEN
+        final Bundle completedBundle = bundle(GENERATION_COMPLETED);
+        service.remember(X_REQUEST_ID, bundle);
+        when(dao.getBundle(bundle.getId())).thenReturn(Optional.of(completedBundle));
+
+        // WHEN
+        final Optional<Bundle> result = service.findBundle(X_REQUEST_ID, APPLICATION_CONTEXT);
+
+        // THEN
+        assertEquals(Optional.of(completedBundle), result);
+        verify(dao, never()).getBundleByXRequestId(any());
+    }
+
+    @Test
+    void findBundle_storedBundleLookedUpByXRequestIdOnce() {
+        // GIVEN
+        when(dao.getBundleByXRequestId(X_REQUEST_ID)).thenReturn(Optional.of(bundle));
+        when(dao.getBundle(bundle.getId())).thenReturn(Optional.of(bundle));
+
+        // WHEN
+        service.findBundle(X_REQUEST_ID, APPLICATION_CONTEXT);
+        final Optional<Bundle> result = service.findBundle(X_REQUEST_ID, APPLICATION_CONTEXT);
+
+        // THEN
+        assertEquals(Optional.of(bundle), result);
+        verify(dao).getBundleByXRequestId(X_REQUEST_ID);
+        verify(dao).getBundle(bundle.getId());
+    }
+
+    @Test
+    void findBundle_unknownXRequestIdNotCached() {
+        // GIVEN
+        when(dao.getBundleByXRequestId(X_REQUEST_ID)).thenReturn(Optional.empty());
+
+        // WHEN
+        service.findBundle(X_REQUEST_ID, APPLICATION_CONTEXT);
+        final Optional<Bundle> result = service.findBundle(X_REQUEST_ID, APPLICATION_CONTEXT);
+
+        // THEN
+        assertTrue(result.isEmpty());
+        verify(dao, times(2)).getBundleByXRequestId(X_REQUEST_ID);
+    }
+
+    @Test
+    void findBundle_failedBundleRejected() {
+        // GIVEN
+        when(dao.getBundleByXRequestId(X_REQUEST_ID)).thenReturn(Optional.of(bundle(BUNDLE_ERROR)));
+
+        // WHEN THEN
+        assertThrows(XRequestIdConflictException.class, () -> service.findBundle(X_REQUEST_ID, APPLICATION_CONTEXT));
+    }
+
+    @Test
+    void findBundle_bundleOfAnotherApplicationContextRejected() {
+        // GIVEN
+        final ApplicationContext otherApplicationContext = ApplicationContext.create("appId", "appVersion", "otherPlatformName", "firmwareVersion");
+        when(dao.getBundleByXRequestId(X_REQUEST_ID)).thenReturn(Optional.of(bundle));
+
+        // WHEN THEN
+        assertThrows(XRequestIdConflictException.class, () -> service.findBundle(X_REQUEST_ID, otherApplicationContext));
+    }
+
+    private static Bundle bundle(BundleStatus status) {
+        return Bundle.create(BUNDLE_ID, APPLICATION_CONTEXT, status, X_REQUEST_ID, now(DateTimeZone.UTC), true);
+    }
+}
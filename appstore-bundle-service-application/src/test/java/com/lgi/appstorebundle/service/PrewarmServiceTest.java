@@ -0,0 +1,262 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.api.ApplicationParams;
+import com.lgi.appstorebundle.api.model.ApplicationContext;
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleContext;
+import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.api.model.PrewarmJobState;
+import com.lgi.appstorebundle.error.exception.InvalidPrewarmRequestException;
+import com.lgi.appstorebundle.external.asms.model.ApplicationMetadata;
+import com.lgi.appstorebundle.external.asms.model.ApplicationMetadataForMaintainer;
+import com.lgi.appstorebundle.external.asms.model.Header;
+import com.lgi.appstorebundle.external.asms.model.HeaderForMaintainer;
+import com.lgi.appstorebundle.external.asms.model.Maintainer;
+import com.lgi.appstorebundle.service.PrewarmJob.Outcome;
+import com.lgi.appstorebundle.storage.persistent.PrewarmJobDao;
+import com.lgi.appstorebundle.util.EncryptionHelper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+
+import static com.lgi.appstorebundle.api.model.BundleStatus.BUNDLE_ERROR;
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_LAUNCHED;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrewarmServiceTest {
+
+    private static final String PLATFORM_NAME = "platformName";
+    private static final String FIRMWARE_VERSION = "firmwareVersion";
+    private static final String MAINTAINER_CODE = "maintainerCode";
+    private static final String OCI_IMAGE_URL = "ociImageUrl";
+    private static final Executor DIRECT_EXECUTOR = Runnable::run;
+    private static final ApplicationMetadata APPLICATION_METADATA = ApplicationMetadata.create(
+            Header.create("appId", "appName", "appVersion", "url"), Maintainer.create(MAINTAINER_CODE));
+    private static final ApplicationMetadataForMaintainer APPLICATION_METADATA_FOR_MAINTAINER = ApplicationMetadataForMaintainer.create(
+            HeaderForMaintainer.create("appId", "appName", "appVersion", "url", true, OCI_IMAGE_URL));
+
+    private final ApplicationMetadataService applicationMetadataService = mock(ApplicationMetadataService.class);
+    private final BundleService bundleService = mock(BundleService.class);
+    private final EncryptionHelper encryptionHelper = mock(EncryptionHelper.class);
+    private final PrewarmJobDao prewarmJobDao = mock(PrewarmJobDao.class);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void skipHealthyApplicationsAndQueueTheOthers() {
+        // GIVEN
+        final ApplicationParams healthy = application("healthy");
+        final ApplicationParams failed = application("failed");
+        final ApplicationParams missing = application("missing");
+        final ApplicationParams unknown = application("unknown");
+        when(bundleService.getLatestBundles(anyCollection())).thenReturn(List.of(bundle(healthy, GENERATION_LAUNCHED), bundle(failed, BUNDLE_ERROR)));
+        when(applicationMetadataService.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(APPLICATION_METADATA)));
+        when(applicationMetadataService.getApplicationMetadata(unknown)).thenReturn(completedFuture(Optional.empty()));
+        when(applicationMetadataService.getApplicationMetadataForMaintainerCode(any(), eq(MAINTAINER_CODE)))
+                .thenReturn(completedFuture(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER)));
+        when(encryptionHelper.isEncryptionEnabled(APPLICATION_METADATA_FOR_MAINTAINER)).thenReturn(true);
+        when(bundleService.triggerBackgroundBundleGenerations(any())).thenAnswer(invocation -> invocation.<List<BundleContext>>getArgument(0).stream()
+                .map(BundleContext::getBundle)
+                .collect(toList()));
+
+        // WHEN
+        final PrewarmJob job = prewarmService("").start(PLATFORM_NAME, FIRMWARE_VERSION, List.of(healthy, failed, missing, unknown, missing));
+
+        // THEN
+        assertTrue(job.isFinished());
+        assertEquals(4, job.getTotal());
+        assertEquals(1, job.getCount(Outcome.SKIPPED));
+        assertEquals(2, job.getCount(Outcome.QUEUED));
+        assertEquals(1, job.getCount(Outcome.NOT_FOUND));
+        assertEquals(0, job.getCount(Outcome.FAILED));
+        @SuppressWarnings("unchecked") final ArgumentCaptor<List<BundleContext>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bundleService).triggerBackgroundBundleGenerations(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        final BundleContext bundleContext = captor.getValue().get(0);
+        assertEquals(MAINTAINER_CODE, bundleContext.getMaintainerCode());
+        assertEquals(OCI_IMAGE_URL, bundleContext.getOciImageUrl());
+        assertEquals("prewarm-" + job.getId() + "-" + bundleContext.getBundle().getId(), bundleContext.getBundle().getXRequestId());
+        verify(prewarmJobDao).savePrewarmJob(argThat(state -> state.getId().equals(job.getId()) && state.getFinishedAt().isEmpty()));
+        verify(prewarmJobDao).updatePrewarmJob(argThat(state -> state.getQueued() == 2 && state.getFinishedAt().isPresent()));
+    }
+
+    @Test
+    void countAlreadyInFlightBundleAsSkipped() {
+        // GIVEN
+        final ApplicationParams application = application("inFlight");
+        final Bundle inFlight = bundle(application, GENERATION_LAUNCHED);
+        when(bundleService.getLatestBundles(anyCollection())).thenReturn(List.of());
+        when(applicationMetadataService.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(APPLICATION_METADATA)));
+        when(applicationMetadataService.getApplicationMetadataForMaintainerCode(any(), any()))
+                .thenReturn(completedFuture(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER)));
+        when(bundleService.triggerBackgroundBundleGenerations(any())).thenReturn(List.of(inFlight));
+
+        // WHEN
+        final PrewarmJob job = prewarmService("").start(PLATFORM_NAME, FIRMWARE_VERSION, List.of(application));
+
+        // THEN
+        assertEquals(1, job.getCount(Outcome.SKIPPED));
+        assertEquals(0, job.getCount(Outcome.QUEUED));
+    }
+
+    @Test
+    void queueGenerationsInChunks() {
+        // GIVEN
+        final List<ApplicationParams> applications = IntStream.range(0, 101)
+                .mapToObj(index -> application("app" + index))
+                .collect(toList());
+        when(bundleService.getLatestBundles(anyCollection())).thenReturn(List.of());
+        when(applicationMetadataService.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.of(APPLICATION_METADATA)));
+        when(applicationMetadataService.getApplicationMetadataForMaintainerCode(any(), any()))
+                .thenReturn(completedFuture(Optional.of(APPLICATION_METADATA_FOR_MAINTAINER)));
+        when(bundleService.triggerBackgroundBundleGenerations(any())).thenAnswer(invocation -> invocation.<List<BundleContext>>getArgument(0).stream()
+                .map(BundleContext::getBundle)
+                .collect(toList()));
+
+        // WHEN
+        final PrewarmJob job = prewarmService("").start(PLATFORM_NAME, FIRMWARE_VERSION, applications);
+
+        // THEN
+        assertEquals(101, job.getCount(Outcome.QUEUED));
+        @SuppressWarnings("unchecked") final ArgumentCaptor<List<BundleContext>> captor = ArgumentCaptor.forClass(List.class);
+        verify(bundleService, times(2)).triggerBackgroundBundleGenerations(captor.capture());
+        assertEquals(List.of(100, 1), captor.getAllValues().stream().map(List::size).collect(toList()));
+    }
+
+    @Test
+    void readCatalogFileWhenNoApplicationsAreGiven() throws Exception {
+        // GIVEN
+        final Path catalog = Files.writeString(tempDir.resolve("catalog.txt"), "# apps\nfirst:1.0\n\nsecond:2.0\ninvalid\n");
+        when(bundleService.getLatestBundles(anyCollection())).thenReturn(List.of());
+        when(applicationMetadataService.getApplicationMetadata(any())).thenReturn(completedFuture(Optional.empty()));
+
+        // WHEN
+        final PrewarmJob job = prewarmService(catalog.toString()).start(PLATFORM_NAME, FIRMWARE_VERSION, List.of());
+
+        // THEN
+        assertEquals(List.of(ApplicationContext.create("first", "1.0", PLATFORM_NAME, FIRMWARE_VERSION),
+                ApplicationContext.create("second", "2.0", PLATFORM_NAME, FIRMWARE_VERSION)), job.getApplicationContexts());
+        assertEquals(2, job.getCount(Outcome.NOT_FOUND));
+        verify(bundleService, never()).triggerBackgroundBundleGenerations(any());
+    }
+
+    @Test
+    void rejectJobWithoutApplicationsWhenNoCatalogIsConfigured() {
+        // WHEN THEN
+        assertThrows(InvalidPrewarmRequestException.class, () -> prewarmService("").start(PLATFORM_NAME, FIRMWARE_VERSION, List.of()));
+    }
+
+    @Test
+    void countApplicationsWithCompletedLatestBundle() {
+        // GIVEN
+        final ApplicationParams completed = application("completed");
+        final ApplicationParams running = application("running");
+        final PrewarmJob job = new PrewarmJob(randomUUID(), PLATFORM_NAME, FIRMWARE_VERSION,
+                List.of(toApplicationContext(completed), toApplicationContext(running)), DateTime.now(DateTimeZone.UTC));
+        when(bundleService.getLatestBundles(job.getApplicationContexts()))
+                .thenReturn(List.of(bundle(completed, ENCRYPTION_COMPLETED), bundle(running, GENERATION_LAUNCHED)));
+
+        // WHEN
+        final long count = prewarmService("").countCompleted(job);
+
+        // THEN
+        assertEquals(1, count);
+    }
+
+    @Test
+    void readJobOfAnotherInstanceFromDatabase() {
+        // GIVEN
+        final PrewarmJobState state = PrewarmJobState.create(randomUUID(), PLATFORM_NAME, FIRMWARE_VERSION,
+                List.of(toApplicationContext(application("app"))), 0, 1, 0, 0, DateTime.now(DateTimeZone.UTC), Optional.empty());
+        when(prewarmJobDao.getPrewarmJob(state.getId())).thenReturn(Optional.of(state));
+
+        // WHEN
+        final Optional<PrewarmJob> job = prewarmService("").getJob(state.getId());
+
+        // THEN
+        assertTrue(job.isPresent());
+        assertEquals(1, job.get().getCount(Outcome.QUEUED));
+        assertFalse(job.get().isFinished());
+    }
+
+    @Test
+    void runAbandonedJobAgain() {
+        // GIVEN
+        final ApplicationParams application = application("abandoned");
+        final PrewarmJobState abandoned = PrewarmJobState.create(randomUUID(), PLATFORM_NAME, FIRMWARE_VERSION,
+                List.of(toApplicationContext(application)), 0, 0, 0, 0, DateTime.now(DateTimeZone.UTC), Optional.empty());
+        when(prewarmJobDao.claimAbandonedPrewarmJob(any())).thenReturn(Optional.of(abandoned));
+        when(bundleService.getLatestBundles(anyCollection())).thenReturn(List.of(bundle(application, BundleStatus.GENERATION_QUEUED)));
+
+        // WHEN
+        prewarmService("").heartbeat();
+
+        // THEN
+        verify(prewarmJobDao).updatePrewarmJob(argThat(state -> state.getId().equals(abandoned.getId())
+                && state.getSkipped() == 1 && state.getFinishedAt().isPresent()));
+        verify(prewarmJobDao).deletePrewarmJobsFinishedBefore(any());
+    }
+
+    private PrewarmService prewarmService(String catalogFile) {
+        return new PrewarmService(2, catalogFile, Duration.ofDays(1), Duration.ofSeconds(10), Duration.ofMinutes(2), applicationMetadataService,
+                bundleService, encryptionHelper, new SimpleMeterRegistry(), prewarmJobDao, DIRECT_EXECUTOR);
+    }
+
+    private static ApplicationParams application(String appId) {
+        return ApplicationParams.create(appId, "appVersion", PLATFORM_NAME, FIRMWARE_VERSION, appId);
+    }
+
+    private static ApplicationContext toApplicationContext(ApplicationParams applicationParams) {
+        return ApplicationContext.create(applicationParams.getApplicationId(), applicationParams.getAppVersion(), PLATFORM_NAME, FIRMWARE_VERSION);
+    }
+
+    private static Bundle bundle(ApplicationParams applicationParams, BundleStatus status) {
+        return Bundle.create(randomUUID(), toApplicationContext(applicationParams), status, "xRequestId", DateTime.now(DateTimeZone.UTC), true);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.service;
+
+import com.lgi.appstorebundle.api.model.ApplicationContext;
+import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.api.model.BundleStatusTransition;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_LAUNCHED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_REQUESTED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_COMPLETED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_LAUNCHED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
+import static java.util.UUID.randomUUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryAfterEstimatorTest {
+
+    private static final String PLATFORM_NAME = "platformName";
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(30);
+    private static final Duration MIN_RETRY_AFTER = Duration.ofSeconds(5);
+    private static final Duration MAX_RETRY_AFTER = Duration.ofMinutes(5);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RetryAfterEstimator estimator = new RetryAfterEstimator(DEFAULT_RETRY_AFTER, MIN_RETRY_AFTER, MAX_RETRY_AFTER, 0, meterRegistry);
+    private final DateTime now = DateTime.now();
+
+    @Test
+    void retryAfterWithoutObservedPhases_DefaultReturned() {
+        // WHEN
+        final Duration result = estimator.retryAfter(bundle(GENERATION_REQUESTED, now, false));
+
+        // THEN
+        assertEquals(DEFAULT_RETRY_AFTER, result);
+    }
+
+    @Test
+    void retryAfterWithObservedPhases_SumOfRemainingPhasesReturned() {
+        // GIVEN
+        recordPhase(GENERATION_REQUESTED, GENERATION_LAUNCHED, Duration.ofSeconds(20));
+        recordPhase(GENERATION_LAUNCHED, GENERATION_COMPLETED, Duration.ofSeconds(60));
+        recordPhase(ENCRYPTION_REQUESTED, ENCRYPTION_LAUNCHED, Duration.ofSeconds(10));
+        recordPhase(ENCRYPTION_LAUNCHED, ENCRYPTION_COMPLETED, Duration.ofSeconds(40));
+
+        // WHEN
+        final Duration withoutEncryption = estimator.retryAfter(bundle(GENERATION_REQUESTED, now, false));
+        final Duration withEncryption = estimator.retryAfter(bundle(GENERATION_LAUNCHED, now, true));
+
+        // THEN
+        assertEquals(80, withoutEncryption.toSeconds());
+        assertEquals(110, withEncryption.toSeconds());
+        assertEquals(4, meterRegistry.find("bundle.phase.duration").tag("platform", PLATFORM_NAME).timers().size());
+    }
+
+    @Test
+    void retryAfterWithRepeatedObservations_MovingAverageUsed() {
+        // GIVEN
+        recordPhase(GENERATION_LAUNCHED, GENERATION_COMPLETED, Duration.ofSeconds(60));
+        recordPhase(GENERATION_LAUNCHED, GENERATION_COMPLETED, Duration.ofSeconds(110));
+
+        // WHEN
+        final Duration result = estimator.retryAfter(bundle(GENERATION_LAUNCHED, now, false));
+
+        // THEN
+        assertEquals(70, result.toSeconds());
+        assertEquals(2, meterRegistry.get("bundle.phase.duration").tag("platform", PLATFORM_NAME).tag("phase", "GENERATION").timer().count());
+    }
+
+    @Test
+    void retryAfterWithElapsedTimeAndLongPhases_ClampedToBounds() {
+        // GIVEN
+        recordPhase(GENERATION_LAUNCHED, GENERATION_COMPLETED, Duration.ofSeconds(60));
+        recordPhase(ENCRYPTION_REQUESTED, ENCRYPTION_LAUNCHED, Duration.ofHours(1));
+        recordPhase(ENCRYPTION_LAUNCHED, ENCRYPTION_COMPLETED, Duration.ofSeconds(1));
+
+        // WHEN
+        final Duration almostGenerated = estimator.retryAfter(bundle(GENERATION_LAUNCHED, now.minusSeconds(58), false));
+        final Duration waitingForEncryption = estimator.retryAfter(bundle(GENERATION_LAUNCHED, now, true));
+        final Duration completed = estimator.retryAfter(bundle(GENERATION_COMPLETED, now, false));
+
+        // THEN
+        assertEquals(MIN_RETRY_AFTER, almostGenerated);
+        assertEquals(MAX_RETRY_AFTER, waitingForEncryption);
+        assertEquals(MIN_RETRY_AFTER, completed);
+    }
+
+    @Test
+    void recordWithSkippedStatus_TransitionIgnored() {
+        // GIVEN
+        recordPhase(GENERATION_REQUESTED, GENERATION_COMPLETED, Duration.ofSeconds(60));
+
+        // WHEN
+        final Duration result = estimator.retryAfter(bundle(GENERATION_REQUESTED, now, false));
+
+        // THEN
+        assertEquals(DEFAULT_RETRY_AFTER, result);
+    }
+
+    @Test
+    void retryAfterWithJitter_SpreadWithinJitterBounds() {
+        // GIVEN
+        final RetryAfterEstimator jitteredEstimator = new RetryAfterEstimator(DEFAULT_RETRY_AFTER, MIN_RETRY_AFTER, MAX_RETRY_AFTER, 0.2, meterRegistry);
+
+        // WHEN THEN
+        for (int i = 0; i < 100; i++) {
+            final Duration result = jitteredEstimator.retryAfter(bundle(GENERATION_REQUESTED, now, false));
+            assertTrue(result.compareTo(Duration.ofSeconds(24)) >= 0 && result.compareTo(Duration.ofSeconds(36)) <= 0, result.toString());
+        }
+    }
+
+    private void recordPhase(BundleStatus from, BundleStatus to, Duration duration) {
+        estimator.record(BundleStatusTransition.create(randomUUID(), PLATFORM_NAME, from, now, to, now.plus(duration.toMillis())));
+    }
+
+    private static Bundle bundle(BundleStatus status, DateTime messageTimestamp, boolean encryptionEnabled) {
+        final UUID id = randomUUID();
+        return Bundle.create(id, ApplicationContext.create("appId", "appVersion", PLATFORM_NAME, "firmwareVersion"), status, id.toString(), messageTimestamp, encryptionEnabled);
+    }
+}
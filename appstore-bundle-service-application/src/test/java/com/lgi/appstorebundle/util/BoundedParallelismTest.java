@@ -0,0 +1,96 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoundedParallelismTest {
+
+    @Test
+    void moreItemsThanParallelism_nextTaskStartedWhenOneCompletes() {
+        //GIVEN
+        final List<CompletableFuture<Integer>> started = new ArrayList<>();
+
+        //WHEN
+        final CompletableFuture<List<Integer>> results = BoundedParallelism.map(List.of(1, 2, 3), 2, item -> {
+            final CompletableFuture<Integer> task = new CompletableFuture<>();
+            started.add(task);
+            return task;
+        });
+
+        //THEN
+        assertEquals(2, started.size());
+        started.get(1).complete(20);
+        assertEquals(3, started.size());
+        started.get(0).complete(10);
+        started.get(2).complete(30);
+        assertEquals(List.of(10, 20, 30), results.join());
+    }
+
+    @Test
+    void completedTasks_resultsInItemOrder() {
+        //WHEN
+        final List<Integer> results = BoundedParallelism.map(List.of(1, 2, 3, 4, 5), 2, item -> completedFuture(item * 10)).join();
+
+        //THEN
+        assertEquals(List.of(10, 20, 30, 40, 50), results);
+    }
+
+    @Test
+    void failingTask_remainingTasksStillRunAndFailureReported() {
+        //GIVEN
+        final IllegalStateException exception = new IllegalStateException("failure");
+        final List<Integer> executed = new ArrayList<>();
+
+        //WHEN
+        final CompletableFuture<List<Integer>> results = BoundedParallelism.map(List.of(1, 2, 3), 1, item -> {
+            executed.add(item);
+            if (item == 1) {
+                throw exception;
+            }
+            return completedFuture(item);
+        });
+
+        //THEN
+        assertEquals(List.of(1, 2, 3), executed);
+        final CompletionException thrown = assertThrows(CompletionException.class, results::join);
+        assertSame(exception, thrown.getCause());
+    }
+
+    @Test
+    void noItems_emptyResult() {
+        //WHEN
+        final CompletableFuture<List<Integer>> results = BoundedParallelism.map(List.of(), 4, item -> completedFuture(1));
+
+        //THEN
+        assertFalse(results.isCompletedExceptionally());
+        assertEquals(List.of(), results.join());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitedTaskExecutorTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final ExecutorService delegate = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        delegate.shutdownNow();
+    }
+
+    @Test
+    void taskAboveLimit_rejectedWithoutBlocking() throws Exception {
+        //GIVEN
+        final ConcurrencyLimitedTaskExecutor executor = new ConcurrencyLimitedTaskExecutor(delegate, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Void> running = CompletableFuture.runAsync(() -> await(release), executor);
+
+        //WHEN THEN
+        assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(TaskRejectedException.class, () -> executor.execute(() -> { })));
+        release.countDown();
+        running.get();
+        awaitAvailablePermits(executor, 1);
+        assertEquals("done", supplyAsync(() -> "done", executor).get());
+    }
+
+    @Test
+    void nextStepSubmittedFromRunningStep_takesItsOwnPermit() {
+        //GIVEN
+        final ConcurrencyLimitedTaskExecutor executor = new ConcurrencyLimitedTaskExecutor(delegate, 2);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        //WHEN
+        final CompletableFuture<String> result = supplyAsync(() -> {
+            await(release);
+            return "first";
+        }, executor)
+                .thenCompose(first -> supplyAsync(() -> first + " second", executor))
+                .thenCompose(second -> supplyAsync(() -> second + " third", executor));
+        release.countDown();
+
+        //THEN
+        assertEquals("first second third", assertTimeoutPreemptively(TIMEOUT, () -> result.join()));
+        awaitAvailablePermits(executor, 2);
+    }
+
+    @Test
+    void taskSubmittedFromRunningTaskAboveLimit_rejected() {
+        //GIVEN
+        final ConcurrencyLimitedTaskExecutor executor = new ConcurrencyLimitedTaskExecutor(delegate, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        //WHEN
+        final CompletableFuture<String> result = supplyAsync(() -> {
+            await(release);
+            return "first";
+        }, executor)
+                .thenCompose(first -> supplyAsync(() -> first + " second", executor));
+        release.countDown();
+
+        //THEN
+        final CompletionException exception = assertThrows(CompletionException.class, () -> assertTimeoutPreemptively(TIMEOUT, () -> result.join()));
+        assertTrue(exception.getCause() instanceof TaskRejectedException);
+        awaitAvailablePermits(executor, 1);
+    }
+
+    @Test
+    void failingDelegate_permitReturned() {
+        //GIVEN
+        final ConcurrencyLimitedTaskExecutor executor = new ConcurrencyLimitedTaskExecutor(task -> {
+            throw new TaskRejectedException("delegate rejected");
+        }, 1);
+
+        //WHEN
+        assertThrows(TaskRejectedException.class, () -> executor.execute(() -> { }));
+
+        //THEN
+        assertEquals(1, executor.getAvailablePermits());
+    }
+
+    private static void awaitAvailablePermits(ConcurrencyLimitedTaskExecutor executor, int permits) {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            while (executor.getAvailablePermits() != permits) {
+                Thread.onSpinWait();
+            }
+        });
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
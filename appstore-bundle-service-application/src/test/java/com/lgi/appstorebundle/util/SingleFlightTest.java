@@ -0,0 +1,106 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    private static final String KEY = "key";
+
+    private final SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    void concurrentCallsForSameKey_taskExecutedOnce() {
+        //GIVEN
+        final CompletableFuture<Integer> leaderTask = new CompletableFuture<>();
+
+        //WHEN
+        final CompletableFuture<Integer> leader = singleFlight.execute(KEY, () -> {
+            executions.incrementAndGet();
+            return leaderTask;
+        });
+        final CompletableFuture<Integer> follower = singleFlight.execute(KEY, () -> completedFuture(executions.incrementAndGet()));
+        assertFalse(follower.isDone());
+        leaderTask.complete(42);
+
+        //THEN
+        assertEquals(42, leader.join());
+        assertEquals(42, follower.join());
+        assertEquals(1, executions.get());
+        assertNull(singleFlight.inFlightCall(KEY));
+    }
+
+    @Test
+    void sequentialCallsForSameKey_taskExecutedEachTime() {
+        //WHEN
+        singleFlight.execute(KEY, () -> completedFuture(executions.incrementAndGet())).join();
+        final Integer result = singleFlight.execute(KEY, () -> completedFuture(executions.incrementAndGet())).join();
+
+        //THEN
+        assertEquals(2, result);
+        assertNull(singleFlight.inFlightCall(KEY));
+    }
+
+    @Test
+    void failingTask_exceptionSharedAndKeyReleased() {
+        //GIVEN
+        final IllegalStateException exception = new IllegalStateException("failure");
+        final CompletableFuture<Integer> leaderTask = new CompletableFuture<>();
+
+        //WHEN
+        final CompletableFuture<Integer> leader = singleFlight.execute(KEY, () -> leaderTask);
+        final CompletableFuture<Integer> follower = singleFlight.execute(KEY, () -> completedFuture(executions.incrementAndGet()));
+        leaderTask.completeExceptionally(exception);
+
+        //THEN
+        assertSame(exception, assertThrows(CompletionException.class, leader::join).getCause());
+        assertSame(exception, assertThrows(CompletionException.class, follower::join).getCause());
+        assertNull(singleFlight.inFlightCall(KEY));
+        assertEquals(1, singleFlight.execute(KEY, () -> completedFuture(1)).join());
+    }
+
+    @Test
+    void cancelledFollower_leaderNotAffected() {
+        //GIVEN
+        final CompletableFuture<Integer> leaderTask = new CompletableFuture<>();
+        final CompletableFuture<Integer> leader = singleFlight.execute(KEY, () -> leaderTask);
+        final CompletableFuture<Integer> follower = singleFlight.execute(KEY, () -> completedFuture(executions.incrementAndGet()));
+
+        //WHEN
+        follower.cancel(true);
+        leaderTask.complete(42);
+
+        //THEN
+        assertEquals(42, leader.join());
+        assertEquals(0, executions.get());
+    }
+}
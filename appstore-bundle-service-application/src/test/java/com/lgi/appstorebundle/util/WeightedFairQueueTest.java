@@ -0,0 +1,103 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeightedFairQueueTest {
+
+    private static final String HEAVY = "heavy";
+    private static final String LIGHT = "light";
+
+    private final WeightedFairQueue<String, String> queue = new WeightedFairQueue<>(Map.of(HEAVY, 2d, LIGHT, 1d)::get);
+
+    @Test
+    void tenantsAreServedInProportionToTheirWeights() {
+        //GIVEN
+        for (int i = 0; i < 6; i++) {
+            queue.add(HEAVY, HEAVY + i);
+            queue.add(LIGHT, LIGHT + i);
+        }
+
+        //WHEN
+        final List<String> served = poll(6);
+
+        //THEN
+        assertEquals(4, served.stream().filter(item -> item.startsWith(HEAVY)).count());
+        assertEquals(2, served.stream().filter(item -> item.startsWith(LIGHT)).count());
+    }
+
+    @Test
+    void itemsOfOneTenantAreServedInArrivalOrder() {
+        //GIVEN
+        queue.add(LIGHT, "first");
+        queue.add(LIGHT, "second");
+        queue.add(LIGHT, "third");
+
+        //WHEN THEN
+        assertEquals(List.of("first", "second", "third"), poll(3));
+        assertTrue(queue.isEmpty());
+        assertEquals(Optional.empty(), queue.poll());
+    }
+
+    @Test
+    void idleTenantDoesNotCatchUpOnUnusedService() {
+        //GIVEN
+        for (int i = 0; i < 4; i++) {
+            queue.add(LIGHT, LIGHT + i);
+        }
+        poll(3);
+
+        //WHEN
+        queue.add(HEAVY, HEAVY + 0);
+        queue.add(HEAVY, HEAVY + 1);
+        queue.add(HEAVY, HEAVY + 2);
+
+        //THEN
+        assertEquals(List.of(HEAVY + 0, LIGHT + 3, HEAVY + 1, HEAVY + 2), poll(4));
+        assertEquals(0, queue.size(HEAVY));
+        assertEquals(0, queue.size(LIGHT));
+    }
+
+    @Test
+    void nonPositiveWeightIsRejected() {
+        //GIVEN
+        final WeightedFairQueue<String, String> zeroWeightQueue = new WeightedFairQueue<>(tenant -> 0);
+
+        //WHEN THEN
+        assertThrows(IllegalArgumentException.class, () -> zeroWeightQueue.add(LIGHT, "item"));
+    }
+
+    private List<String> poll(int count) {
+        final List<String> served = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            served.add(queue.poll().orElseThrow());
+        }
+        return served;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.benchmarks;
+
+import com.lgi.appstorebundle.api.ApplicationParams;
+import com.lgi.appstorebundle.external.asms.AppstoreMetadataServiceClient;
+import com.lgi.appstorebundle.external.asms.AsmsUriTemplates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriTemplateHandler;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building the AppStore Metadata Service request URIs per call, as the client used to, with expanding the
+ * precompiled {@link AsmsUriTemplates}. Run with {@code -prof gc} to see the allocations per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsmsRequestUriBenchmark {
+
+    private static final String ENDPOINT_URL = "http://appstore-metadata-service:8080";
+    private static final String MAINTAINER_CODE = "lgi";
+    private static final ApplicationParams APPLICATION_PARAMS =
+            ApplicationParams.create("com.lgi.app", "1.2.3", "rpi4", "0.0.1", "com.lgi.app_1.2.3_rpi4_0.0.1");
+
+    private UriTemplateHandler uriTemplateHandler;
+    private AsmsUriTemplates uriTemplates;
+
+    @Setup
+    public void setUp() {
+        // mirrors AsmsRestTemplateConfiguration#restTemplate
+        uriTemplateHandler = new DefaultUriBuilderFactory(ENDPOINT_URL);
+        uriTemplates = new AsmsUriTemplates(ENDPOINT_URL);
+    }
+
+    @Benchmark
+    public URI applicationByAppIdPerCall() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("applicationId", APPLICATION_PARAMS.getFullyQualifiedApplicationName());
+        String urlTemplate = UriComponentsBuilder.fromUriString(AppstoreMetadataServiceClient.GET_APPLICATION_BY_APP_ID_PATH)
+                .queryParam("platformName", APPLICATION_PARAMS.getPlatformName())
+                .queryParam("firmwareVer", APPLICATION_PARAMS.getFirmwareVersion())
+                .encode()
+                .toUriString();
+        return uriTemplateHandler.expand(urlTemplate, parameters);
+    }
+
+    @Benchmark
+    public URI applicationByAppIdPrecompiled() {
+        return uriTemplates.applicationByAppId(APPLICATION_PARAMS);
+    }
+
+    @Benchmark
+    public URI applicationByAppIdAndMaintainerCodePerCall() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("maintainerCode", MAINTAINER_CODE);
+        parameters.put("applicationId", APPLICATION_PARAMS.getFullyQualifiedApplicationName());
+        String urlTemplate = UriComponentsBuilder.fromUriString(AppstoreMetadataServiceClient.GET_APPLICATION_BY_APP_ID_AND_MAINTAINER_CODE_PATH)
+                .queryParam("platformName", APPLICATION_PARAMS.getPlatformName())
+                .queryParam("firmwareVer", APPLICATION_PARAMS.getFirmwareVersion())
+                .encode()
+                .toUriString();
+        return uriTemplateHandler.expand(urlTemplate, parameters);
+    }
+
+    @Benchmark
+    public URI applicationByAppIdAndMaintainerCodePrecompiled() {
+        return uriTemplates.applicationByAppIdAndMaintainerCode(APPLICATION_PARAMS, MAINTAINER_CODE);
+    }
+}
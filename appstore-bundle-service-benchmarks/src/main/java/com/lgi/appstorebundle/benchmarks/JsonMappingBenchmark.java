@@ -0,0 +1,147 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.lgi.appstorebundle.external.asms.model.ApplicationMetadataForMaintainer;
+import com.lgi.appstorebundle.model.EncryptionMessage;
+import com.lgi.appstorebundle.model.FeedbackMessage;
+import com.lgi.appstorebundle.model.GenerationMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares per call {@link ObjectMapper} lookups with prebuilt readers and writers for the messages exchanged with
+ * RabbitMQ and the metadata read from the appstore metadata service, with and without the Blackbird module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonMappingBenchmark {
+
+    private static final byte[] FEEDBACK_MESSAGE = ("{\"id\":\"" + UUID.randomUUID() + "\",\"phaseCode\":\"GENERATION_COMPLETED\","
+            + "\"messageTimestamp\":\"2023-03-14T10:15:30.123Z\",\"error\":{\"message\":\"none\",\"code\":\"0\"}}")
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] APPLICATION_METADATA = ("{\"header\":{\"id\":\"com.lgi.app\",\"name\":\"App\",\"version\":\"1.2.3\","
+            + "\"url\":\"https://apps.example.com/com.lgi.app\",\"encryption\":true,\"ociImageUrl\":\"registry.example.com/com.lgi.app:1.2.3\","
+            + "\"description\":\"ignored\",\"icon\":\"ignored\"},\"maintainer\":{\"code\":\"lgi\"}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"reflection", "blackbird"})
+    public String mapper;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter generationMessageWriter;
+    private ObjectWriter encryptionMessageWriter;
+    private ObjectReader feedbackMessageReader;
+    private ObjectReader applicationMetadataReader;
+    private GenerationMessage generationMessage;
+    private EncryptionMessage encryptionMessage;
+
+    @Setup
+    public void setUp() {
+        // mirrors AppStoreBundleServiceConfiguration#objectMapper
+        objectMapper = new ObjectMapper()
+                .registerModule(new JodaModule())
+                .registerModule(new Jdk8Module())
+                .registerModule(new JavaTimeModule())
+                .registerModule(new ParameterNamesModule())
+                .setSerializationInclusion(JsonInclude.Include.NON_ABSENT)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        if ("blackbird".equals(mapper)) {
+            objectMapper.registerModule(new BlackbirdModule());
+        }
+        generationMessageWriter = objectMapper.writerFor(GenerationMessage.class);
+        encryptionMessageWriter = objectMapper.writerFor(EncryptionMessage.class);
+        feedbackMessageReader = objectMapper.readerFor(FeedbackMessage.class);
+        applicationMetadataReader = objectMapper.readerFor(ApplicationMetadataForMaintainer.class);
+        generationMessage = GenerationMessage.create(UUID.randomUUID(), "com.lgi.app", "1.2.3", "rpi4", "0.0.1",
+                "registry.example.com/com.lgi.app:1.2.3", true);
+        encryptionMessage = EncryptionMessage.create(UUID.randomUUID(), "com.lgi.app", "1.2.3", "rpi4", "0.0.1",
+                "https://bundles.example.com/com.lgi.app/1.2.3/rpi4/0.0.1.tar.gz", "prod");
+    }
+
+    @Benchmark
+    public byte[] writeGenerationMessageWithMapper() throws IOException {
+        return objectMapper.writeValueAsBytes(generationMessage);
+    }
+
+    @Benchmark
+    public byte[] writeGenerationMessageWithWriter() throws IOException {
+        return generationMessageWriter.writeValueAsBytes(generationMessage);
+    }
+
+    @Benchmark
+    public byte[] writeEncryptionMessageWithMapper() throws IOException {
+        return objectMapper.writeValueAsBytes(encryptionMessage);
+    }
+
+    @Benchmark
+    public byte[] writeEncryptionMessageWithWriter() throws IOException {
+        return encryptionMessageWriter.writeValueAsBytes(encryptionMessage);
+    }
+
+    @Benchmark
+    public FeedbackMessage readFeedbackMessageWithMapper() throws IOException {
+        return objectMapper.readValue(FEEDBACK_MESSAGE, FeedbackMessage.class);
+    }
+
+    @Benchmark
+    public FeedbackMessage readFeedbackMessageWithReader() throws IOException {
+        return feedbackMessageReader.readValue(FEEDBACK_MESSAGE);
+    }
+
+    @Benchmark
+    public ApplicationMetadataForMaintainer readApplicationMetadataWithMapper() throws IOException {
+        return objectMapper.readValue(APPLICATION_METADATA, ApplicationMetadataForMaintainer.class);
+    }
+
+    @Benchmark
+    public ApplicationMetadataForMaintainer readApplicationMetadataWithReader() throws IOException {
+        return applicationMetadataReader.readValue(APPLICATION_METADATA);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.lgi.appstorebundle.model.MessageTimestampDeserializer;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Joda module formatter with {@link MessageTimestampDeserializer} on a feedback message timestamp.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageTimestampBenchmark {
+
+    private static final byte[] MESSAGE_TIMESTAMP = "\"2023-03-14T10:15:30.123+01:00\"".getBytes(StandardCharsets.UTF_8);
+
+    private ObjectReader jodaReader;
+    private ObjectReader messageTimestampReader;
+
+    @Setup
+    public void setUp() {
+        jodaReader = new ObjectMapper()
+                .registerModule(new JodaModule())
+                .readerFor(DateTime.class);
+        messageTimestampReader = new ObjectMapper()
+                .registerModule(new JodaModule())
+                .registerModule(new SimpleModule().addDeserializer(DateTime.class, new MessageTimestampDeserializer()))
+                .readerFor(DateTime.class);
+    }
+
+    @Benchmark
+    public DateTime readWithJodaModule() throws IOException {
+        return jodaReader.readValue(MESSAGE_TIMESTAMP);
+    }
+
+    @Benchmark
+    public DateTime readWithMessageTimestampDeserializer() throws IOException {
+        return messageTimestampReader.readValue(MESSAGE_TIMESTAMP);
+    }
+}
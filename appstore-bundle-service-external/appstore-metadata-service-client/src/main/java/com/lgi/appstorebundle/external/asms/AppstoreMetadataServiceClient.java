@@ -18,6 +18,9 @@
  */
 package com.lgi.appstorebundle.external.asms;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.lgi.appstorebundle.api.ApplicationParams;
 import com.lgi.appstorebundle.common.r4j.AsmsClientInvoker;
 import com.lgi.appstorebundle.external.asms.exception.AppstoreMetadataServiceClientException;
@@ -25,17 +28,21 @@ import com.lgi.appstorebundle.external.asms.model.ApplicationMetadata;
 import com.lgi.appstorebundle.external.asms.model.ApplicationMetadataForMaintainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 @Service
@@ -50,83 +57,89 @@ public class AppstoreMetadataServiceClient {
     private static final String SUCCESSFUL_CALL_TO_ASMS_LOG_MESSAGE = "Successfully executed request to AppStore Metadata Service";
 
     private static final String APPLICATION_ID_PATH_PARAM = "applicationId";
-    private static final String PLATFORM_NAME_QUERY_PARAM = "platformName";
-    private static final String FIRMWARE_VER_QUERY_PARAM = "firmwareVer";
     private static final String MAINTAINER_CODE_PARAM = "maintainerCode";
     public static final String GET_APPLICATION_BY_APP_ID_PATH = "apps/{" + APPLICATION_ID_PATH_PARAM + "}";
     public static final String GET_APPLICATION_BY_APP_ID_AND_MAINTAINER_CODE_PATH =
             "maintainers/{" + MAINTAINER_CODE_PARAM + "}/apps/{" + APPLICATION_ID_PATH_PARAM + "}";
 
+    private static final RequestCallback ACCEPT_JSON = request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+
     private final RestTemplate asmsRestTemplate;
     private final  AsmsClientInvoker clientInvoker;
-
-    public AppstoreMetadataServiceClient(RestTemplate asmsRestTemplate, AsmsClientInvoker clientInvoker) {
+    private final AsmsUriTemplates uriTemplates;
+    private final ResponseExtractor<ApplicationMetadata> applicationMetadataExtractor;
+    private final ResponseExtractor<ApplicationMetadataForMaintainer> applicationMetadataForMaintainerExtractor;
+
+    /**
+     * Responses are read straight from the response stream with readers resolved once up front, instead of going
+     * through the message converter lookup of the rest template on every call. Request URIs are expanded from templates
+     * compiled once against the endpoint url.
+     */
+    public AppstoreMetadataServiceClient(RestTemplate asmsRestTemplate, AsmsClientInvoker clientInvoker, ObjectMapper objectMapper,
+                                         @Value("${asms.service.url}") String endpointUrl) {
         this.asmsRestTemplate = asmsRestTemplate;
         this.clientInvoker = clientInvoker;
+        this.uriTemplates = new AsmsUriTemplates(endpointUrl);
+        this.applicationMetadataExtractor = bodyExtractor(objectMapper.readerFor(ApplicationMetadata.class));
+        this.applicationMetadataForMaintainerExtractor = bodyExtractor(objectMapper.readerFor(ApplicationMetadataForMaintainer.class));
     }
 
     public Optional<ApplicationMetadata> getApplicationByAppId(ApplicationParams appParams) {
-        LOG.info(ABOUT_TO_GET_APPLICATION_METADATA_BY_APP_ID_MSG_FMT, appParams.getApplicationId(), appParams.getAppVersion());
+        LOG.debug(ABOUT_TO_GET_APPLICATION_METADATA_BY_APP_ID_MSG_FMT, appParams.getApplicationId(), appParams.getAppVersion());
         return clientInvoker.invoke(() -> getApplicationMetadataById(appParams));
     }
 
-    private Optional<ApplicationMetadata> getApplicationMetadataById(ApplicationParams appParams) {
-        ResponseEntity<ApplicationMetadata> response;
-
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(APPLICATION_ID_PATH_PARAM, appParams.getFullyQualifiedApplicationName());
-
-        String urlTemplate = UriComponentsBuilder.fromUriString(GET_APPLICATION_BY_APP_ID_PATH)
-                .queryParam(PLATFORM_NAME_QUERY_PARAM, appParams.getPlatformName())
-                .queryParam(FIRMWARE_VER_QUERY_PARAM, appParams.getFirmwareVersion())
-                .encode()
-                .toUriString();
-
-        URI uriToCall = asmsRestTemplate.getUriTemplateHandler().expand(urlTemplate, parameters);
+    public CompletableFuture<Optional<ApplicationMetadata>> getApplicationByAppIdAsync(ApplicationParams appParams, Executor executor) {
+        LOG.debug(ABOUT_TO_GET_APPLICATION_METADATA_BY_APP_ID_MSG_FMT, appParams.getApplicationId(), appParams.getAppVersion());
+        return clientInvoker.invokeCompletionStage(() -> CompletableFuture.supplyAsync(() -> getApplicationMetadataById(appParams), executor));
+    }
 
+    private Optional<ApplicationMetadata> getApplicationMetadataById(ApplicationParams appParams) {
+        ApplicationMetadata response;
+        URI uriToCall = uriTemplates.applicationByAppId(appParams);
         try {
-            response = asmsRestTemplate.getForEntity(
-                    uriToCall,
-                    ApplicationMetadata.class
-            );
+            response = asmsRestTemplate.execute(uriToCall, HttpMethod.GET, ACCEPT_JSON, applicationMetadataExtractor);
         } catch (HttpStatusCodeException e) {
             return handleException(e);
         }
-        LOG.info(SUCCESSFUL_CALL_TO_ASMS_LOG_MESSAGE);
-        return Optional.ofNullable(response.getBody());
+        LOG.debug(SUCCESSFUL_CALL_TO_ASMS_LOG_MESSAGE);
+        return Optional.ofNullable(response);
     }
 
     public Optional<ApplicationMetadataForMaintainer> getApplicationByIdAndMaintainerCode(ApplicationParams appParams, String maintainerCode) {
-        LOG.info(ABOUT_TO_GET_APPLICATION_METADATA_BY_MAINTAINER_CODE_MSG_FMT, appParams.getApplicationId(), appParams.getAppVersion(), maintainerCode);
+        LOG.debug(ABOUT_TO_GET_APPLICATION_METADATA_BY_MAINTAINER_CODE_MSG_FMT, appParams.getApplicationId(), appParams.getAppVersion(), maintainerCode);
         return clientInvoker.invoke(() -> getApplicationByMaintainerAndAppId(appParams, maintainerCode));
     }
 
+    public CompletableFuture<Optional<ApplicationMetadataForMaintainer>> getApplicationByIdAndMaintainerCodeAsync(ApplicationParams appParams,
+                                                                                                               String maintainerCode,
+                                                                                                               Executor executor) {
+        LOG.debug(ABOUT_TO_GET_APPLICATION_METADATA_BY_MAINTAINER_CODE_MSG_FMT, appParams.getApplicationId(), appParams.getAppVersion(), maintainerCode);
+        return clientInvoker.invokeCompletionStage(() -> CompletableFuture.supplyAsync(() -> getApplicationByMaintainerAndAppId(appParams, maintainerCode), executor));
+    }
+
     private Optional<ApplicationMetadataForMaintainer> getApplicationByMaintainerAndAppId(ApplicationParams applicationParams,
                                                                                           String maintainerCode) {
-        ResponseEntity<ApplicationMetadataForMaintainer> response;
-
-        Map<String, String> parameters = new HashMap<>();
-        parameters.put(MAINTAINER_CODE_PARAM, maintainerCode);
-        parameters.put(APPLICATION_ID_PATH_PARAM, applicationParams.getFullyQualifiedApplicationName());
-
-        String urlTemplate = UriComponentsBuilder.fromUriString(GET_APPLICATION_BY_APP_ID_AND_MAINTAINER_CODE_PATH)
-                .queryParam(PLATFORM_NAME_QUERY_PARAM, applicationParams.getPlatformName())
-                .queryParam(FIRMWARE_VER_QUERY_PARAM, applicationParams.getFirmwareVersion())
-                .encode()
-                .toUriString();
-
-        URI uriToCall = asmsRestTemplate.getUriTemplateHandler().expand(urlTemplate, parameters);
-
+        ApplicationMetadataForMaintainer response;
+        URI uriToCall = uriTemplates.applicationByAppIdAndMaintainerCode(applicationParams, maintainerCode);
         try {
-            response = asmsRestTemplate.getForEntity(
-                    uriToCall,
-                    ApplicationMetadataForMaintainer.class
-            );
+            response = asmsRestTemplate.execute(uriToCall, HttpMethod.GET, ACCEPT_JSON, applicationMetadataForMaintainerExtractor);
         } catch (HttpStatusCodeException e) {
             return handleException(e);
         }
-        LOG.info(SUCCESSFUL_CALL_TO_ASMS_LOG_MESSAGE);
-        return Optional.ofNullable(response.getBody());
+        LOG.debug(SUCCESSFUL_CALL_TO_ASMS_LOG_MESSAGE);
+        return Optional.ofNullable(response);
+    }
+
+    /**
+     * An empty body is read as {@code null}, as the message converters of the rest template do.
+     */
+    private static <T> ResponseExtractor<T> bodyExtractor(ObjectReader reader) {
+        return response -> {
+            try (JsonParser parser = reader.createParser(response.getBody())) {
+                return parser.nextToken() == null ? null : reader.readValue(parser);
+            }
+        };
     }
 
     private static <T> Optional<T> handleException(HttpStatusCodeException e,
@@ -0,0 +1,64 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.external.asms;
+
+import com.lgi.appstorebundle.api.ApplicationParams;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The AppStore Metadata Service routes, parsed and encoded once. Expanding a route only encodes the variables, which
+ * are encoded strictly, so reserved characters in a value cannot change the shape of the URI.
+ */
+public final class AsmsUriTemplates {
+
+    private static final String QUERY = "platformName={platformName}&firmwareVer={firmwareVer}";
+
+    private final UriComponents applicationByAppId;
+    private final UriComponents applicationByAppIdAndMaintainerCode;
+
+    public AsmsUriTemplates(String endpointUrl) {
+        requireNonNull(endpointUrl, "endpointUrl");
+        this.applicationByAppId = compile(endpointUrl, AppstoreMetadataServiceClient.GET_APPLICATION_BY_APP_ID_PATH);
+        this.applicationByAppIdAndMaintainerCode =
+                compile(endpointUrl, AppstoreMetadataServiceClient.GET_APPLICATION_BY_APP_ID_AND_MAINTAINER_CODE_PATH);
+    }
+
+    public URI applicationByAppId(ApplicationParams appParams) {
+        return applicationByAppId.expand(appParams.getFullyQualifiedApplicationName(), appParams.getPlatformName(),
+                appParams.getFirmwareVersion()).toUri();
+    }
+
+    public URI applicationByAppIdAndMaintainerCode(ApplicationParams appParams, String maintainerCode) {
+        return applicationByAppIdAndMaintainerCode.expand(maintainerCode, appParams.getFullyQualifiedApplicationName(),
+                appParams.getPlatformName(), appParams.getFirmwareVersion()).toUri();
+    }
+
+    private static UriComponents compile(String endpointUrl, String path) {
+        return UriComponentsBuilder.fromUriString(endpointUrl)
+                .path(path)
+                .query(QUERY)
+                .encode()
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.external.asms.configuration;
+
+import com.lgi.appstorebundle.common.r4j.configuration.AdaptiveLimitConfiguration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class AsmsAdaptiveLimitConfiguration implements AdaptiveLimitConfiguration {
+
+    @Value("${asms.r4j.bh.adaptive.enabled}")
+    private boolean enabled;
+
+    @Value("${asms.r4j.bh.adaptive.minLimit}")
+    private int minLimit;
+
+    @Value("${asms.r4j.bh.adaptive.maxLimit}")
+    private int maxLimit;
+
+    @Value("${asms.r4j.bh.adaptive.latencyThreshold}")
+    private Duration latencyThreshold;
+
+    @Value("${asms.r4j.bh.adaptive.backoffRatio}")
+    private double backoffRatio;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    @Override
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    @Override
+    public Duration getLatencyThreshold() {
+        return latencyThreshold;
+    }
+
+    @Override
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.external.asms.configuration;
+
+import com.lgi.appstorebundle.common.r4j.configuration.HedgingConfiguration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class AsmsHedgingConfiguration implements HedgingConfiguration {
+
+    @Value("${asms.hedging.enabled}")
+    private boolean enabled;
+
+    @Value("${asms.hedging.percentile}")
+    private double percentile;
+
+    @Value("${asms.hedging.minDelay}")
+    private Duration minDelay;
+
+    @Value("${asms.hedging.maxDelay}")
+    private Duration maxDelay;
+
+    @Value("${asms.hedging.budget}")
+    private double budget;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public double getPercentile() {
+        return percentile;
+    }
+
+    @Override
+    public Duration getMinDelay() {
+        return minDelay;
+    }
+
+    @Override
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    @Override
+    public double getBudget() {
+        return budget;
+    }
+}
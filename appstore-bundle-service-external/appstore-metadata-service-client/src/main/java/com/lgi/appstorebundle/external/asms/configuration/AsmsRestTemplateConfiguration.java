@@ -18,29 +18,86 @@
  */
 package com.lgi.appstorebundle.external.asms.configuration;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 
 import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class AsmsRestTemplateConfiguration {
 
+    private static final String POOL_NAME = "asms";
+
+    @Bean("asmsConnectionManager")
+    public PoolingHttpClientConnectionManager connectionManager(@Value("${asms.pool.maxConnections}") int maxConnections,
+                                                                @Value("${asms.pool.maxConnectionsPerRoute}") int maxConnectionsPerRoute) {
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        return connectionManager;
+    }
+
+    /**
+     * Keeps connections to the appstore metadata service alive between calls. A connection is closed once it has been
+     * idle for {@code asms.idle.timeout} or for the keep-alive period announced by the service, whichever is shorter.
+     * {@code asms.connect.timeout} bounds both opening a connection and waiting for a free one in the pool.
+     */
+    @Bean("asmsHttpClient")
+    public CloseableHttpClient httpClient(@Qualifier("asmsConnectionManager") PoolingHttpClientConnectionManager connectionManager,
+                                          @Value("${asms.connect.timeout}") Duration connectTimeout,
+                                          @Value("${asms.request.timeout}") Duration requestTimeout,
+                                          @Value("${asms.idle.timeout}") Duration idleTimeout) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(Math.toIntExact(connectTimeout.toMillis()))
+                        .setConnectionRequestTimeout(Math.toIntExact(connectTimeout.toMillis()))
+                        .setSocketTimeout(Math.toIntExact(requestTimeout.toMillis()))
+                        .build())
+                .setKeepAliveStrategy(keepAliveAtMost(idleTimeout))
+                .evictIdleConnections(idleTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .evictExpiredConnections()
+                .build();
+    }
+
+    @Bean("asmsConnectionPoolMetrics")
+    public MeterBinder connectionPoolMetrics(@Qualifier("asmsConnectionManager") PoolingHttpClientConnectionManager connectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, POOL_NAME);
+    }
+
     @Bean("asmsRestTemplate")
     public RestTemplate restTemplate(RestTemplateBuilder builder,
                                      @Value("${asms.service.url}") String endpointUrl,
-                                     @Value("${asms.request.timeout}") Duration requestTimeout,
-                                     @Value("${asms.idle.timeout}") Duration idleTimeout) {
+                                     @Qualifier("asmsHttpClient") HttpClient httpClient) {
         return builder
-                .setReadTimeout(idleTimeout)
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
                 .uriTemplateHandler(new DefaultUriBuilderFactory(endpointUrl))
                 .messageConverters(new MappingJackson2HttpMessageConverter())
-                .setReadTimeout(requestTimeout)
                 .build();
     }
+
+    private static ConnectionKeepAliveStrategy keepAliveAtMost(Duration idleTimeout) {
+        final long maxKeepAlive = idleTimeout.toMillis();
+        return (response, context) -> {
+            final long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive < 0 ? maxKeepAlive : Math.min(keepAlive, maxKeepAlive);
+        };
+    }
 }
@@ -25,6 +25,7 @@ import com.github.tomakehurst.wiremock.junit.WireMockClassRule;
 import com.github.tomakehurst.wiremock.matching.UrlPattern;
 import com.lgi.appstorebundle.api.ApplicationParams;
 import com.lgi.appstorebundle.common.r4j.AsmsClientInvoker;
+import com.lgi.appstorebundle.external.asms.configuration.AsmsRestTemplateConfiguration;
 import com.lgi.appstorebundle.external.asms.model.ApplicationMetadata;
 import com.lgi.appstorebundle.external.asms.model.ApplicationMetadataForMaintainer;
 import com.lgi.appstorebundle.external.asms.model.Header;
@@ -32,20 +33,25 @@ import com.lgi.appstorebundle.external.asms.model.HeaderForMaintainer;
 import com.lgi.appstorebundle.external.asms.model.Maintainer;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.MediaType;
-import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.DefaultUriBuilderFactory;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
@@ -71,6 +77,8 @@ class AppstoreMetadataServiceClientTest {
     private static final WireMockClassRule WIREMOCK = new WireMockClassRule(Options.DYNAMIC_PORT);
     private AppstoreMetadataServiceClient appstoreMetadataServiceClient;
     private CircuitBreaker circuitBreaker;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
     private static final String APP_NAME = "APP_NAME";
     private static final String APP_URL = "http://hostname/demo.id.appl/2.2/platformName/firmwareVer/demo.id.appl_2.2_platformName_firmwareVer.tar.gz";
     private static final String OCI_IMAGE_URL = "OCI_URL";
@@ -92,7 +100,12 @@ class AppstoreMetadataServiceClientTest {
     void beforeEach() {
         WIREMOCK.resetAll();
         circuitBreaker = createCircuitBreaker();
-        appstoreMetadataServiceClient = new AppstoreMetadataServiceClient(buildAsmsRestTemplate(), buildClientInvoker());
+        appstoreMetadataServiceClient = new AppstoreMetadataServiceClient(buildAsmsRestTemplate(), buildClientInvoker(), objectMapper, endpointUrl());
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        httpClient.close();
     }
 
     @Test
@@ -115,6 +128,49 @@ class AppstoreMetadataServiceClientTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void shouldExtractApplicationMetadataByAppIdAsynchronouslyOnSuccess() throws JsonProcessingException {
+        // GIVEN
+        ApplicationMetadata expected = ApplicationMetadata.create(Header.create(APP_ID, APP_NAME, APP_VER, APP_URL), Maintainer.create(MAINTAINER_CODE));
+
+        WIREMOCK.stubFor(get(new UrlPattern(containing("/apps/" + APP_ID + "%3A" + APP_VER), false))
+                .withQueryParam(PLATFORM_NAME_QUERY_PARAM, equalTo(PLATFORM_NAME))
+                .withQueryParam(FIRMWARE_VER_QUERY_PARAM, equalTo(FIRMWARE_VER))
+                .willReturn(aResponse()
+                        .withBody(objectMapper.writeValueAsString(expected))
+                        .withStatus(HttpStatus.SC_OK)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())));
+
+        // WHEN
+        ApplicationMetadata actual = appstoreMetadataServiceClient.getApplicationByAppIdAsync(VALID_APP_PARAMS, ForkJoinPool.commonPool())
+                .join()
+                .orElseThrow();
+
+        // THEN
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldEncodeReservedCharactersInQueryParameters() throws JsonProcessingException {
+        // GIVEN
+        ApplicationParams appParams = ApplicationParams.create(APP_ID, APP_VER, "platform+name", "1.0&beta=%20#1", APP_BUNDLE_NAME);
+        ApplicationMetadata expected = ApplicationMetadata.create(Header.create(APP_ID, APP_NAME, APP_VER, APP_URL), Maintainer.create(MAINTAINER_CODE));
+
+        WIREMOCK.stubFor(get(new UrlPattern(containing("/apps/" + APP_ID + "%3A" + APP_VER), false))
+                .withQueryParam(PLATFORM_NAME_QUERY_PARAM, equalTo("platform+name"))
+                .withQueryParam(FIRMWARE_VER_QUERY_PARAM, equalTo("1.0&beta=%20#1"))
+                .willReturn(aResponse()
+                        .withBody(objectMapper.writeValueAsString(expected))
+                        .withStatus(HttpStatus.SC_OK)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())));
+
+        // WHEN
+        ApplicationMetadata actual = appstoreMetadataServiceClient.getApplicationByAppId(appParams).orElseThrow();
+
+        // THEN
+        assertEquals(expected, actual);
+    }
+
     @Test
     void shouldReturnEmptyOptionalWhenApplicationWithAppIdNotFound() {
         // GIVEN
@@ -131,6 +187,23 @@ class AppstoreMetadataServiceClientTest {
         assertTrue(maybeApplicationMetadata.isEmpty());
     }
 
+    @Test
+    void shouldReturnEmptyOptionalWhenApplicationWithAppIdHasEmptyBody() {
+        // GIVEN
+        WIREMOCK.stubFor(get(anyUrl())
+                .withHeader(HttpHeaders.ACCEPT, equalTo(MediaType.APPLICATION_JSON_VALUE))
+                .willReturn(aResponse()
+                        .withBody("")
+                        .withStatus(HttpStatus.SC_OK)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())));
+
+        // WHEN
+        Optional<ApplicationMetadata> maybeApplicationMetadata = appstoreMetadataServiceClient.getApplicationByAppId(VALID_APP_PARAMS);
+
+        // THEN
+        assertTrue(maybeApplicationMetadata.isEmpty());
+    }
+
     @Test
     void shouldCloseCircuitWhenFailureThresholdPassedOnGetApplicationByAppId() {
         // GIVEN
@@ -190,6 +263,23 @@ class AppstoreMetadataServiceClientTest {
         assertTrue(maybeApplicationMetadata.isEmpty());
     }
 
+    @Test
+    void shouldReturnEmptyOptionalAsynchronouslyWhenApplicationWithMaintainerCodeNotFound() {
+        // GIVEN
+        WIREMOCK.stubFor(get(anyUrl())
+                .willReturn(aResponse()
+                        .withBody("")
+                        .withStatus(HttpStatus.SC_NOT_FOUND)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())));
+
+        // WHEN
+        Optional<ApplicationMetadataForMaintainer> maybeApplicationMetadata =
+                appstoreMetadataServiceClient.getApplicationByIdAndMaintainerCodeAsync(VALID_APP_PARAMS, MAINTAINER_CODE, ForkJoinPool.commonPool()).join();
+
+        // THEN
+        assertTrue(maybeApplicationMetadata.isEmpty());
+    }
+
     @Test
     void shouldCloseCircuitWhenFailureThresholdPassedOnGetApplicationByMaintainerCode() {
         // GIVEN
@@ -210,13 +300,47 @@ class AppstoreMetadataServiceClientTest {
         assertSame(CircuitBreaker.State.OPEN, circuitBreaker.getState());
     }
 
+    @Test
+    void shouldReuseKeepAliveConnectionAcrossEndpoints() throws JsonProcessingException {
+        // GIVEN
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        new AsmsRestTemplateConfiguration().connectionPoolMetrics(connectionManager).bindTo(meterRegistry);
+
+        WIREMOCK.stubFor(get(new UrlPattern(containing("/apps/" + APP_ID + "%3A" + APP_VER), false))
+                .willReturn(aResponse()
+                        .withBody(objectMapper.writeValueAsString(
+                                ApplicationMetadata.create(Header.create(APP_ID, APP_NAME, APP_VER, APP_URL), Maintainer.create(MAINTAINER_CODE))))
+                        .withStatus(HttpStatus.SC_OK)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())));
+        WIREMOCK.stubFor(get(new UrlPattern(containing("/maintainers/" + MAINTAINER_CODE + "/apps/" + APP_ID + "%3A" + APP_VER), false))
+                .willReturn(aResponse()
+                        .withBody(objectMapper.writeValueAsString(ApplicationMetadataForMaintainer.create(
+                                HeaderForMaintainer.create(APP_ID, APP_NAME, APP_VER, APP_URL, ENCRYPTION_ENABLED, OCI_IMAGE_URL))))
+                        .withStatus(HttpStatus.SC_OK)
+                        .withHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())));
+
+        // WHEN
+        for (int i = 0; i < 3; i++) {
+            appstoreMetadataServiceClient.getApplicationByAppId(VALID_APP_PARAMS);
+            appstoreMetadataServiceClient.getApplicationByIdAndMaintainerCode(VALID_APP_PARAMS, MAINTAINER_CODE);
+        }
+
+        // THEN
+        assertEquals(1, connectionManager.getTotalStats().getAvailable());
+        assertEquals(0, connectionManager.getTotalStats().getLeased());
+        assertEquals(1, meterRegistry.get("httpcomponents.httpclient.pool.total.connections")
+                .tags("httpclient", "asms", "state", "available").gauge().value());
+    }
+
     private RestTemplate buildAsmsRestTemplate() {
-        RestTemplateBuilder builder = new RestTemplateBuilder();
-        return builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory("http://localhost:" + WIREMOCK.port()))
-                .messageConverters(new MappingJackson2HttpMessageConverter())
-                .setReadTimeout(Duration.ofSeconds(2))
-                .build();
+        AsmsRestTemplateConfiguration configuration = new AsmsRestTemplateConfiguration();
+        connectionManager = configuration.connectionManager(10, 10);
+        httpClient = configuration.httpClient(connectionManager, Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(60));
+        return configuration.restTemplate(new RestTemplateBuilder(), endpointUrl(), httpClient);
+    }
+
+    private static String endpointUrl() {
+        return "http://localhost:" + WIREMOCK.port();
     }
 
     private AsmsClientInvoker buildClientInvoker() {
@@ -0,0 +1,167 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.common.r4j;
+
+import com.lgi.appstorebundle.common.r4j.configuration.AdaptiveLimitConfiguration;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Limits concurrent calls to a limit that follows the observed call latency (AIMD). A call that fails or takes longer
+ * than the latency threshold multiplies the limit by the backoff ratio, once per congestion event: calls that were
+ * already running when the limit was lowered do not lower it again. A call that succeeds in time while at least half
+ * of the limit is in use raises the limit by one. The limit always stays within the configured bounds.
+ * <p>
+ * The limit is enforced with an in-flight counter that rejects calls above it with a {@link BulkheadFullException},
+ * without waiting. Like the resilience4j decorators, the completion stage variant reports the rejection, and any
+ * exception thrown while starting the call, as a failed stage instead of throwing. The wrapped bulkhead is raised to the max limit once, up front, and never resized afterwards:
+ * lowering the limit of a semaphore bulkhead blocks until enough permits are returned, which cannot happen while the
+ * calls that hold them are the ones lowering it.
+ */
+public class AdaptiveLimiter {
+
+    private final Bulkhead bulkhead;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int currentLimit;
+    private double limit;
+    private long lastBackoffNanos;
+
+    public AdaptiveLimiter(Bulkhead bulkhead, AdaptiveLimitConfiguration configuration) {
+        this.bulkhead = requireNonNull(bulkhead, "bulkhead");
+        requireNonNull(configuration, "configuration");
+        checkArgument(configuration.getMinLimit() > 0 && configuration.getMinLimit() <= configuration.getMaxLimit(),
+                "minLimit must be between 1 and maxLimit");
+        checkArgument(configuration.getBackoffRatio() > 0 && configuration.getBackoffRatio() < 1, "backoffRatio must be between 0 and 1");
+        this.minLimit = configuration.getMinLimit();
+        this.maxLimit = configuration.getMaxLimit();
+        this.latencyThresholdNanos = configuration.getLatencyThreshold().toNanos();
+        this.backoffRatio = configuration.getBackoffRatio();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, bulkhead.getBulkheadConfig().getMaxConcurrentCalls()));
+        this.currentLimit = (int) limit;
+        this.lastBackoffNanos = System.nanoTime();
+        bulkhead.changeConfig(BulkheadConfig.from(bulkhead.getBulkheadConfig())
+                .maxConcurrentCalls(maxLimit)
+                .build());
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public int getLimit() {
+        return currentLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    <T> Supplier<T> decorateSupplier(Supplier<T> task) {
+        return () -> {
+            if (!tryAcquirePermission()) {
+                throw BulkheadFullException.createBulkheadFullException(bulkhead);
+            }
+            final long start = System.nanoTime();
+            try {
+                final T result = task.get();
+                onSample(start, false);
+                return result;
+            } catch (RuntimeException e) {
+                onSample(start, isDrop(e));
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+    }
+
+    <T> Supplier<CompletionStage<T>> decorateCompletionStage(Supplier<CompletionStage<T>> task) {
+        return () -> {
+            if (!tryAcquirePermission()) {
+                return CompletableFuture.failedFuture(BulkheadFullException.createBulkheadFullException(bulkhead));
+            }
+            final long start = System.nanoTime();
+            final CompletionStage<T> stage;
+            try {
+                stage = task.get();
+            } catch (RuntimeException e) {
+                onSample(start, isDrop(e));
+                inFlight.decrementAndGet();
+                return CompletableFuture.failedFuture(e);
+            }
+            return stage.whenComplete((result, throwable) -> {
+                onSample(start, throwable != null && isDrop(throwable));
+                inFlight.decrementAndGet();
+            });
+        };
+    }
+
+    Runnable decorateRunnable(Runnable task) {
+        final Supplier<Void> decorated = decorateSupplier(() -> {
+            task.run();
+            return null;
+        });
+        return decorated::get;
+    }
+
+    private boolean tryAcquirePermission() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= currentLimit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    synchronized void onSample(long startNanos, boolean dropped) {
+        final long now = System.nanoTime();
+        if (dropped || now - startNanos > latencyThresholdNanos) {
+            if (startNanos - lastBackoffNanos < 0) {
+                return;
+            }
+            limit = Math.max(minLimit, limit * backoffRatio);
+            lastBackoffNanos = now;
+        } else if (inFlight.get() * 2 >= currentLimit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        currentLimit = (int) limit;
+    }
+
+    private static boolean isDrop(Throwable throwable) {
+        final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        return !(cause instanceof CallNotPermittedException || cause instanceof BulkheadFullException);
+    }
+}
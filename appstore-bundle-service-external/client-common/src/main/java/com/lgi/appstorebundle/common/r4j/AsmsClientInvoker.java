@@ -26,6 +26,8 @@ import org.springframework.lang.Nullable;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -35,16 +37,45 @@ public class AsmsClientInvoker {
 
     private final CircuitBreaker circuitBreaker;
     private final Bulkhead bulkhead;
+    private final HedgingPolicy hedgingPolicy;
+    private final AdaptiveLimiter adaptiveLimiter;
 
     public AsmsClientInvoker(CircuitBreaker circuitBreaker, @Nullable Bulkhead bulkhead) {
+        this(circuitBreaker, bulkhead, null);
+    }
+
+    public AsmsClientInvoker(CircuitBreaker circuitBreaker, @Nullable Bulkhead bulkhead, @Nullable HedgingPolicy hedgingPolicy) {
+        this(circuitBreaker, bulkhead, hedgingPolicy, null);
+    }
+
+    /**
+     * Calls are admitted by the adaptive limiter, whose limit follows the observed call latency, before they go through
+     * its bulkhead.
+     */
+    public AsmsClientInvoker(CircuitBreaker circuitBreaker, AdaptiveLimiter adaptiveLimiter, @Nullable HedgingPolicy hedgingPolicy) {
+        this(circuitBreaker, requireNonNull(adaptiveLimiter, "adaptiveLimiter").getBulkhead(), hedgingPolicy, adaptiveLimiter);
+    }
+
+    private AsmsClientInvoker(CircuitBreaker circuitBreaker, @Nullable Bulkhead bulkhead, @Nullable HedgingPolicy hedgingPolicy,
+                              @Nullable AdaptiveLimiter adaptiveLimiter) {
         this.circuitBreaker = requireNonNull(circuitBreaker, "circuitBreaker");
         this.bulkhead = bulkhead;
+        this.hedgingPolicy = hedgingPolicy;
+        this.adaptiveLimiter = adaptiveLimiter;
     }
 
     public CircuitBreaker getCircuitBreaker() {
         return circuitBreaker;
     }
 
+    public Optional<Bulkhead> getBulkhead() {
+        return Optional.ofNullable(bulkhead);
+    }
+
+    public Optional<AdaptiveLimiter> getAdaptiveLimiter() {
+        return Optional.ofNullable(adaptiveLimiter);
+    }
+
     public <T> T invoke(Supplier<T> task) {
         return decorateSupplier(task).get();
     }
@@ -59,29 +90,87 @@ public class AsmsClientInvoker {
         decorateRunnable(task).run();
     }
 
+    /**
+     * With a {@link HedgingPolicy} the task is started a second time when it has not completed within the hedging
+     * delay, and the first successful attempt wins. Each attempt goes through the circuit breaker and the bulkhead on
+     * its own. A hedge is only sent while the circuit is closed and both the bulkhead and the adaptive limit have room,
+     * and the slower attempt is left to run to completion.
+     */
     public <T> CompletableFuture<T> invokeCompletionStage(Supplier<CompletionStage<T>> task) {
-        return decorateCompletionStage(task).get()
-                .toCompletableFuture();
+        if (hedgingPolicy == null) {
+            return decorateCompletionStage(task).get()
+                    .toCompletableFuture();
+        }
+        return invokeHedged(decorateCompletionStage(task));
+    }
+
+    private <T> CompletableFuture<T> invokeHedged(Supplier<CompletionStage<T>> decorated) {
+        hedgingPolicy.onCall();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final AtomicInteger outstanding = new AtomicInteger(1);
+        startAttempt(decorated, result, outstanding);
+        final ScheduledFuture<?> hedge = hedgingPolicy.schedule(() -> {
+            if (!result.isDone() && canHedge() && outstanding.getAndUpdate(n -> n == 0 ? 0 : n + 1) > 0) {
+                startAttempt(decorated, result, outstanding);
+            }
+        });
+        result.whenComplete((value, throwable) -> hedge.cancel(false));
+        return result;
+    }
+
+    private boolean canHedge() {
+        return circuitBreaker.getState() == CircuitBreaker.State.CLOSED
+                && (bulkhead == null || bulkhead.getMetrics().getAvailableConcurrentCalls() > 0)
+                && (adaptiveLimiter == null || adaptiveLimiter.getInFlight() < adaptiveLimiter.getLimit())
+                && hedgingPolicy.tryAcquireHedge();
+    }
+
+    private <T> void startAttempt(Supplier<CompletionStage<T>> decorated, CompletableFuture<T> result, AtomicInteger outstanding) {
+        final long start = System.nanoTime();
+        final CompletionStage<T> attempt;
+        try {
+            attempt = decorated.get();
+        } catch (RuntimeException e) {
+            completeIfLast(result, outstanding, e);
+            return;
+        }
+        attempt.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                hedgingPolicy.recordLatency(System.nanoTime() - start);
+                result.complete(value);
+            } else {
+                completeIfLast(result, outstanding, throwable);
+            }
+        });
+    }
+
+    private static <T> void completeIfLast(CompletableFuture<T> result, AtomicInteger outstanding, Throwable throwable) {
+        if (outstanding.decrementAndGet() == 0) {
+            result.completeExceptionally(throwable);
+        }
     }
 
     public <T> Supplier<T> decorateSupplier(Supplier<T> task) {
         Supplier<T> circuitBreakerDecorated = CircuitBreaker.decorateSupplier(circuitBreaker, task);
-        return Optional.ofNullable(bulkhead)
+        Supplier<T> bulkheadDecorated = Optional.ofNullable(bulkhead)
                 .map(bh -> Bulkhead.decorateSupplier(bh, circuitBreakerDecorated))
                 .orElse(circuitBreakerDecorated);
+        return adaptiveLimiter == null ? bulkheadDecorated : adaptiveLimiter.decorateSupplier(bulkheadDecorated);
     }
 
     public <T> Supplier<CompletionStage<T>> decorateCompletionStage(Supplier<CompletionStage<T>> task) {
         Supplier<CompletionStage<T>> circuitBreakerDecorated = CircuitBreaker.decorateCompletionStage(circuitBreaker, task);
-        return Optional.ofNullable(bulkhead)
+        Supplier<CompletionStage<T>> bulkheadDecorated = Optional.ofNullable(bulkhead)
                 .map(bh -> Bulkhead.decorateCompletionStage(bh, circuitBreakerDecorated))
                 .orElse(circuitBreakerDecorated);
+        return adaptiveLimiter == null ? bulkheadDecorated : adaptiveLimiter.decorateCompletionStage(bulkheadDecorated);
     }
 
     public Runnable decorateRunnable(Runnable task) {
         Runnable circuitBreakerDecorated = CircuitBreaker.decorateRunnable(circuitBreaker, task);
-        return Optional.ofNullable(bulkhead)
+        Runnable bulkheadDecorated = Optional.ofNullable(bulkhead)
                 .map(bh -> Bulkhead.decorateRunnable(bh, circuitBreakerDecorated))
                 .orElse(circuitBreakerDecorated);
+        return adaptiveLimiter == null ? bulkheadDecorated : adaptiveLimiter.decorateRunnable(bulkheadDecorated);
     }
 }
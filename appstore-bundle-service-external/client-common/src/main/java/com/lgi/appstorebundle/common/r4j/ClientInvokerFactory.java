@@ -18,8 +18,10 @@
  */
 package com.lgi.appstorebundle.common.r4j;
 
+import com.lgi.appstorebundle.common.r4j.configuration.AdaptiveLimitConfiguration;
 import com.lgi.appstorebundle.common.r4j.configuration.BulkheadConfiguration;
 import com.lgi.appstorebundle.common.r4j.configuration.CircuitBreakerConfiguration;
+import com.lgi.appstorebundle.common.r4j.configuration.HedgingConfiguration;
 import com.lgi.appstorebundle.common.r4j.exception.RecoverableException;
 import io.github.resilience4j.bulkhead.Bulkhead;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
@@ -44,6 +46,34 @@ public final class ClientInvokerFactory {
         return new AsmsClientInvoker(circuitBreaker, bulkhead);
     }
 
+    public static AsmsClientInvoker createClientInvoker(CircuitBreakerConfiguration circuitBreakerConfig,
+                                                        BulkheadConfiguration bulkheadConfiguration,
+                                                        HedgingConfiguration hedgingConfiguration, Class<?> clazz) {
+        CircuitBreaker circuitBreaker = createCircuitBreaker(circuitBreakerConfig, LoggerFactory.getLogger(clazz));
+        Bulkhead bulkhead = createBulkhead(bulkheadConfiguration, LoggerFactory.getLogger(clazz));
+        HedgingPolicy hedgingPolicy = hedgingConfiguration.isEnabled() ? new HedgingPolicy(hedgingConfiguration) : null;
+        return new AsmsClientInvoker(circuitBreaker, bulkhead, hedgingPolicy);
+    }
+
+    /**
+     * With the adaptive limit enabled calls are first admitted by an {@link AdaptiveLimiter}, whose limit starts at the
+     * bulkhead's configured max concurrent calls. The bulkhead itself is raised to the adaptive max limit once and not
+     * resized afterwards.
+     */
+    public static AsmsClientInvoker createClientInvoker(CircuitBreakerConfiguration circuitBreakerConfig,
+                                                        BulkheadConfiguration bulkheadConfiguration,
+                                                        AdaptiveLimitConfiguration adaptiveLimitConfiguration,
+                                                        HedgingConfiguration hedgingConfiguration, Class<?> clazz) {
+        if (!adaptiveLimitConfiguration.isEnabled()) {
+            return createClientInvoker(circuitBreakerConfig, bulkheadConfiguration, hedgingConfiguration, clazz);
+        }
+        CircuitBreaker circuitBreaker = createCircuitBreaker(circuitBreakerConfig, LoggerFactory.getLogger(clazz));
+        AdaptiveLimiter adaptiveLimiter = new AdaptiveLimiter(createBulkhead(bulkheadConfiguration, LoggerFactory.getLogger(clazz)),
+                adaptiveLimitConfiguration);
+        HedgingPolicy hedgingPolicy = hedgingConfiguration.isEnabled() ? new HedgingPolicy(hedgingConfiguration) : null;
+        return new AsmsClientInvoker(circuitBreaker, adaptiveLimiter, hedgingPolicy);
+    }
+
     private static Bulkhead createBulkhead(BulkheadConfiguration bulkheadConfiguration, Logger logger) {
         Bulkhead bulkhead = BulkheadFactory.create(bulkheadConfiguration);
         bulkhead.getEventPublisher()
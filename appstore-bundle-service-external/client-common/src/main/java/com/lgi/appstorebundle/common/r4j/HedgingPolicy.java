@@ -0,0 +1,102 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.common.r4j;
+
+import com.lgi.appstorebundle.common.r4j.configuration.HedgingConfiguration;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decides when a second, identical request is sent for a call that is taking long. The delay is the configured
+ * percentile of recently observed call latencies, clamped to the configured bounds; until enough calls have been
+ * observed the upper bound is used. Every call earns {@code budget} of a hedge, so hedges never exceed that fraction
+ * of the traffic apart from a small burst.
+ */
+public class HedgingPolicy {
+
+    private static final int SAMPLE_SIZE = 1000;
+    private static final int MIN_SAMPLES = 100;
+    private static final int RECOMPUTE_INTERVAL = 100;
+    private static final long TOKENS_PER_HEDGE = 1000;
+    private static final long MAX_TOKENS = 10 * TOKENS_PER_HEDGE;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long tokensPerCall;
+    private final AtomicLong tokens = new AtomicLong();
+    private final long[] samples = new long[SAMPLE_SIZE];
+    private final ScheduledThreadPoolExecutor timer;
+    private long sampleCount;
+    private volatile long delayNanos;
+
+    public HedgingPolicy(HedgingConfiguration configuration) {
+        requireNonNull(configuration, "configuration");
+        checkArgument(configuration.getPercentile() > 0 && configuration.getPercentile() < 1, "percentile must be between 0 and 1");
+        checkArgument(!configuration.getMinDelay().isNegative() && configuration.getMinDelay().compareTo(configuration.getMaxDelay()) <= 0,
+                "minDelay must be between 0 and maxDelay");
+        checkArgument(configuration.getBudget() >= 0 && configuration.getBudget() <= 1, "budget must be between 0 and 1");
+        this.percentile = configuration.getPercentile();
+        this.minDelayNanos = configuration.getMinDelay().toNanos();
+        this.maxDelayNanos = configuration.getMaxDelay().toNanos();
+        this.tokensPerCall = Math.round(configuration.getBudget() * TOKENS_PER_HEDGE);
+        this.delayNanos = maxDelayNanos;
+        this.timer = new ScheduledThreadPoolExecutor(1, task -> {
+            final Thread thread = new Thread(task, "hedging-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // most timers are cancelled because the call completes first, don't keep them queued until they expire
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public Duration getDelay() {
+        return Duration.ofNanos(delayNanos);
+    }
+
+    ScheduledFuture<?> schedule(Runnable hedge) {
+        return timer.schedule(hedge, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void onCall() {
+        tokens.getAndUpdate(available -> Math.min(MAX_TOKENS, available + tokensPerCall));
+    }
+
+    boolean tryAcquireHedge() {
+        return tokens.getAndUpdate(available -> available >= TOKENS_PER_HEDGE ? available - TOKENS_PER_HEDGE : available) >= TOKENS_PER_HEDGE;
+    }
+
+    synchronized void recordLatency(long nanos) {
+        samples[(int) (sampleCount++ % SAMPLE_SIZE)] = nanos;
+        if (sampleCount >= MIN_SAMPLES && sampleCount % RECOMPUTE_INTERVAL == 0) {
+            final long[] window = Arrays.copyOf(samples, (int) Math.min(sampleCount, SAMPLE_SIZE));
+            Arrays.sort(window);
+            final long latency = window[(int) Math.ceil(percentile * window.length) - 1];
+            delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, latency));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIf;
+import org.junit.jupiter.api.condition.EnabledIf;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualThreadsTest {
+
+    private static final String SUPPORTED = "com.lgi.appstorebundle.common.VirtualThreads#isSupported";
+
+    @Test
+    @DisabledIf(SUPPORTED)
+    void givenRuntimeOlderThanJava21WhenLookupThenFails() {
+        //GIVEN, WHEN, THEN
+        assertThrows(IllegalStateException.class, () -> VirtualThreads.threadFactory("test-"));
+        assertThrows(IllegalStateException.class, () -> VirtualThreads.newThreadPerTaskExecutor("test-"));
+    }
+
+    @Test
+    @EnabledIf(SUPPORTED)
+    void givenJava21RuntimeWhenExecutorCreatedThenRunsTasksOnNamedVirtualThreads() {
+        //GIVEN
+        final AtomicReference<String> threadName = new AtomicReference<>();
+        //WHEN
+        runAndAwait(VirtualThreads.newThreadPerTaskExecutor("test-"), () -> threadName.set(Thread.currentThread().getName()));
+        //THEN
+        assertEquals("test-0", threadName.get());
+    }
+
+    private static void runAndAwait(ExecutorService executor, Runnable task) {
+        executor.execute(task);
+        executor.shutdown();
+        try {
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
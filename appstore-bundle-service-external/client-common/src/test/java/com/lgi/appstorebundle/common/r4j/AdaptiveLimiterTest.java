@@ -0,0 +1,203 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.common.r4j;
+
+import com.lgi.appstorebundle.common.r4j.configuration.AdaptiveLimitConfiguration;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdaptiveLimiterTest {
+
+    private static final Duration LATENCY_THRESHOLD = Duration.ofMillis(100);
+
+    private Bulkhead bulkhead;
+    private AdaptiveLimiter adaptiveLimiter;
+
+    @BeforeEach
+    void setUp() {
+        bulkhead = Bulkhead.of("adaptive test bulkhead", BulkheadConfig.custom().maxConcurrentCalls(100).build());
+        adaptiveLimiter = new AdaptiveLimiter(bulkhead, adaptiveLimitConfiguration());
+    }
+
+    @Test
+    void droppedCallsBackOffOncePerCongestionEvent() {
+        //GIVEN
+        long startedBeforeBackoff = System.nanoTime();
+        //WHEN
+        adaptiveLimiter.onSample(startedBeforeBackoff, true);
+        adaptiveLimiter.onSample(startedBeforeBackoff, true);
+        //THEN
+        assertThat(adaptiveLimiter.getLimit()).isEqualTo(90);
+        //WHEN
+        adaptiveLimiter.onSample(System.nanoTime(), true);
+        //THEN
+        assertThat(adaptiveLimiter.getLimit()).isEqualTo(81);
+    }
+
+    @Test
+    void callSlowerThanThresholdLowersLimit() {
+        //GIVEN
+        Supplier<String> slowCall = adaptiveLimiter.decorateSupplier(() -> {
+            sleepUninterruptibly(LATENCY_THRESHOLD.multipliedBy(2));
+            return "result";
+        });
+        //WHEN
+        String result = slowCall.get();
+        //THEN
+        assertThat(result).isEqualTo("result");
+        assertThat(adaptiveLimiter.getLimit()).isEqualTo(90);
+    }
+
+    @Test
+    void fastCallsRaiseLimitOnlyWhileHalfOfItIsInUse() {
+        //GIVEN
+        adaptiveLimiter.decorateSupplier(() -> "result").get();
+        assertThat(adaptiveLimiter.getLimit()).isEqualTo(100);
+        holdCalls(49);
+        //WHEN
+        adaptiveLimiter.decorateSupplier(() -> "result").get();
+        //THEN
+        assertThat(adaptiveLimiter.getLimit()).isEqualTo(101);
+    }
+
+    @Test
+    void limitStaysWithinBounds() {
+        //WHEN
+        for (int i = 0; i < 100; i++) {
+            adaptiveLimiter.onSample(System.nanoTime(), true);
+        }
+        //THEN
+        assertThat(adaptiveLimiter.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void callsAboveLimitAreRejectedWithoutWaiting() {
+        //GIVEN
+        holdCalls(100);
+        //WHEN, THEN
+        assertThatExceptionOfType(BulkheadFullException.class)
+                .isThrownBy(() -> adaptiveLimiter.decorateSupplier(() -> "result").get());
+        assertThat(adaptiveLimiter.getInFlight()).isEqualTo(100);
+    }
+
+    @Test
+    void completionStageCallsAboveLimitFailWithoutThrowing() {
+        //GIVEN
+        holdCalls(100);
+        //WHEN
+        CompletionStage<String> rejected = adaptiveLimiter.<String>decorateCompletionStage(CompletableFuture::new).get();
+        //THEN
+        assertThat(rejected.toCompletableFuture())
+                .isCompletedExceptionally()
+                .failsWithin(Duration.ZERO)
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(BulkheadFullException.class);
+        assertThat(adaptiveLimiter.getInFlight()).isEqualTo(100);
+    }
+
+    @Test
+    void limitIsLoweredWhilePermitsAreHeld() {
+        //GIVEN
+        List<CompletableFuture<String>> heldCalls = holdCalls(100);
+        //WHEN
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> heldCalls.forEach(call -> call.completeExceptionally(new IllegalStateException("failed"))));
+        //THEN
+        assertThat(adaptiveLimiter.getLimit()).isEqualTo(90);
+        assertThat(adaptiveLimiter.getInFlight()).isZero();
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(200);
+    }
+
+    @Test
+    void slowCallsThroughFullInvokerDoNotBlockEachOther() throws Exception {
+        //GIVEN
+        AsmsClientInvoker invoker = new AsmsClientInvoker(CircuitBreaker.ofDefaults("adaptive test circuit breaker"), adaptiveLimiter, null);
+        ExecutorService executor = Executors.newFixedThreadPool(100);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            calls.add(executor.submit(() -> {
+                start.await();
+                return invoker.invoke(() -> {
+                    sleepUninterruptibly(LATENCY_THRESHOLD.multipliedBy(3));
+                    return "result";
+                });
+            }));
+        }
+        //WHEN
+        start.countDown();
+        //THEN
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                for (Future<String> call : calls) {
+                    assertThat(call.get()).isEqualTo("result");
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(adaptiveLimiter.getLimit()).isLessThan(100);
+        assertThat(adaptiveLimiter.getInFlight()).isZero();
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(200);
+    }
+
+    private List<CompletableFuture<String>> holdCalls(int count) {
+        List<CompletableFuture<String>> heldCalls = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            Supplier<CompletionStage<String>> decorated = adaptiveLimiter.decorateCompletionStage(() -> call);
+            decorated.get();
+            heldCalls.add(call);
+        }
+        return heldCalls;
+    }
+
+    static AdaptiveLimitConfiguration adaptiveLimitConfiguration() {
+        AdaptiveLimitConfiguration configuration = mock(AdaptiveLimitConfiguration.class);
+        when(configuration.isEnabled()).thenReturn(true);
+        when(configuration.getMinLimit()).thenReturn(10);
+        when(configuration.getMaxLimit()).thenReturn(200);
+        when(configuration.getLatencyThreshold()).thenReturn(LATENCY_THRESHOLD);
+        when(configuration.getBackoffRatio()).thenReturn(0.9);
+        return configuration;
+    }
+}
@@ -66,6 +66,18 @@ class ClientInvokerFactoryTest {
         assertNotNull(invoker);
     }
 
+    @Test
+    void givenAdaptiveLimitConfigWhenCreateInvokerThenBulkheadSizedToMaxLimit() {
+        //GIVEN, WHEN
+        AsmsClientInvoker invoker = ClientInvokerFactory.createClientInvoker(testCircuitBreaker(), testBulkhead(),
+                AdaptiveLimiterTest.adaptiveLimitConfiguration(), ClientInvokerTest.hedgingConfiguration(0), ClientInvokerFactoryTest.class);
+        //THEN
+        assertTrue(invoker.getAdaptiveLimiter().isPresent());
+        assertSame(invoker.getAdaptiveLimiter().get().getBulkhead(), invoker.getBulkhead().orElseThrow());
+        assertEquals(10, invoker.getAdaptiveLimiter().get().getLimit());
+        assertEquals(200, invoker.getBulkhead().orElseThrow().getMetrics().getMaxAllowedConcurrentCalls());
+    }
+
     private BulkheadConfiguration testBulkhead() {
         BulkheadConfiguration bulkheadConfigurationMock = mock(BulkheadConfiguration.class);
         when(bulkheadConfigurationMock.getName()).thenReturn("bh");
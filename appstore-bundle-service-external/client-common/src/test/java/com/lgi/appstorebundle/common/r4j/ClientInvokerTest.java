@@ -18,6 +18,7 @@
  */
 package com.lgi.appstorebundle.common.r4j;
 
+import com.lgi.appstorebundle.common.r4j.configuration.HedgingConfiguration;
 import com.lgi.appstorebundle.common.r4j.exception.RecoverableException;
 import io.github.resilience4j.bulkhead.Bulkhead;
 import io.github.resilience4j.bulkhead.BulkheadConfig;
@@ -30,6 +31,7 @@ import org.junit.jupiter.api.Test;
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -182,6 +184,50 @@ class ClientInvokerTest {
         assertDoesNotThrow(() -> clientInvoker.invoke(() -> {}));
     }
 
+    @Test
+    void hedgeWinsIfFirstAttemptIsSlowWhenInvokeCompletionStage() {
+        //GIVEN
+        clientInvoker = new AsmsClientInvoker(circuitBreaker, bulkhead, new HedgingPolicy(hedgingConfiguration(1)));
+        AtomicInteger attempts = new AtomicInteger();
+        //WHEN
+        CompletableFuture<String> result = clientInvoker.invokeCompletionStage(() -> attempts.incrementAndGet() == 1
+                ? new CompletableFuture<>()
+                : CompletableFuture.completedFuture("hedge"));
+        //THEN
+        assertThat(result).succeedsWithin(Duration.ofSeconds(1)).isEqualTo("hedge");
+        assertThat(attempts).hasValue(2);
+        assertThat(bulkhead.getMetrics().getAvailableConcurrentCalls()).isEqualTo(MAX_CONCURRENT_CALLS - 1);
+    }
+
+    @Test
+    void noHedgeIfBudgetExhaustedWhenInvokeCompletionStage() {
+        //GIVEN
+        clientInvoker = new AsmsClientInvoker(circuitBreaker, bulkhead, new HedgingPolicy(hedgingConfiguration(0)));
+        AtomicInteger attempts = new AtomicInteger();
+        //WHEN
+        CompletableFuture<String> result = clientInvoker.invokeCompletionStage(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> "first", CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+        });
+        //THEN
+        assertThat(result).succeedsWithin(Duration.ofSeconds(1)).isEqualTo("first");
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void failsIfAllAttemptsFailWhenInvokeCompletionStage() {
+        //GIVEN
+        clientInvoker = new AsmsClientInvoker(circuitBreaker, bulkhead, new HedgingPolicy(hedgingConfiguration(1)));
+        AtomicInteger attempts = new AtomicInteger();
+        //WHEN
+        CompletableFuture<String> result = clientInvoker.invokeCompletionStage(() -> attempts.incrementAndGet() == 1
+                ? CompletableFuture.supplyAsync(this::throwRuntimeException, CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS))
+                : CompletableFuture.failedFuture(new RuntimeException()));
+        //THEN
+        assertThat(result).failsWithin(Duration.ofSeconds(1));
+        assertThat(attempts).hasValue(2);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
 
     private void runDecoratedTask(Runnable task) {
         for (int i = 0; i < CIRCUIT_BREAKER_REQUEST_VOLUME_THRESHOLD; i++) {
@@ -209,6 +255,35 @@ class ClientInvokerTest {
         return CircuitBreaker.of("test circuit breaker name", circuitBreakerConfig);
     }
 
+    static HedgingConfiguration hedgingConfiguration(double budget) {
+        return new HedgingConfiguration() {
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public double getPercentile() {
+                return 0.9;
+            }
+
+            @Override
+            public Duration getMinDelay() {
+                return Duration.ofMillis(10);
+            }
+
+            @Override
+            public Duration getMaxDelay() {
+                return Duration.ofMillis(20);
+            }
+
+            @Override
+            public double getBudget() {
+                return budget;
+            }
+        };
+    }
+
     private Bulkhead createBulkhead(int maxConcurrentCalls, Duration maxWaitDuration) {
         BulkheadConfig bulkheadConfig = BulkheadConfig.custom()
                 .maxConcurrentCalls(maxConcurrentCalls)
@@ -0,0 +1,70 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.common.r4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static com.lgi.appstorebundle.common.r4j.ClientInvokerTest.hedgingConfiguration;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgingPolicyTest {
+
+    @Test
+    void delayFollowsPercentileOfObservedLatencies() {
+        //GIVEN
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(hedgingConfiguration(1));
+        assertThat(hedgingPolicy.getDelay()).isEqualTo(Duration.ofMillis(20));
+        //WHEN
+        for (int i = 1; i <= 100; i++) {
+            hedgingPolicy.recordLatency(Duration.ofMillis(i).toNanos() / 5);
+        }
+        //THEN
+        assertThat(hedgingPolicy.getDelay()).isEqualTo(Duration.ofMillis(18));
+    }
+
+    @Test
+    void delayIsClampedToMinDelay() {
+        //GIVEN
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(hedgingConfiguration(1));
+        //WHEN
+        for (int i = 0; i < 100; i++) {
+            hedgingPolicy.recordLatency(Duration.ofMillis(1).toNanos());
+        }
+        //THEN
+        assertThat(hedgingPolicy.getDelay()).isEqualTo(Duration.ofMillis(10));
+    }
+
+    @Test
+    void hedgesAreLimitedToBudget() {
+        //GIVEN
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(hedgingConfiguration(0.1));
+        //WHEN
+        int hedges = 0;
+        for (int i = 0; i < 100; i++) {
+            hedgingPolicy.onCall();
+            if (hedgingPolicy.tryAcquireHedge()) {
+                hedges++;
+            }
+        }
+        //THEN
+        assertThat(hedges).isEqualTo(10);
+    }
+}
@@ -19,7 +19,11 @@
 package com.lgi.appstorebundle.external;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.lgi.appstorebundle.common.VirtualThreads;
 import com.lgi.appstorebundle.exception.RabbitMQException;
+import com.lgi.appstorebundle.model.EncryptionMessage;
+import com.lgi.appstorebundle.model.GenerationMessage;
 import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
@@ -36,6 +40,7 @@ import java.net.URISyntaxException;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeoutException;
 
 import static com.lgi.appstorebundle.common.Headers.CORRELATION_ID;
@@ -52,13 +57,23 @@ public class ManagedRabbitMQ {
     private final String encryptionQueueName;
     private Channel channel;
     private Connection connection;
+    private ExecutorService consumerExecutor;
+    private volatile boolean blocked;
     private final RabbitMQConfiguration configuration;
-    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+    private final ObjectWriter generationMessageWriter;
+    private final ObjectWriter encryptionMessageWriter;
 
+    /**
+     * The writers of the generation and encryption messages are resolved once up front, so publishing does not look up
+     * the root serializer for every message.
+     */
     @Autowired
     public ManagedRabbitMQ(RabbitMQConfiguration configuration, ObjectMapper objectMapper) {
         this.configuration = requireNonNull(configuration);
-        this.objectMapper = requireNonNull(objectMapper);
+        this.objectWriter = requireNonNull(objectMapper).writer();
+        this.generationMessageWriter = objectMapper.writerFor(GenerationMessage.class);
+        this.encryptionMessageWriter = objectMapper.writerFor(EncryptionMessage.class);
         this.generationQueueName = requireNonNull(configuration.getGenerationQueueName());
         this.encryptionQueueName = requireNonNull(configuration.getEncryptionQueueName());
     }
@@ -68,7 +83,17 @@ public class ManagedRabbitMQ {
         LOG.info("RabbitMQ starting...");
         ConnectionFactory factory = new ConnectionFactory();
         factory.setUri(configuration.getUrl());
+        if (configuration.isVirtualThreadsEnabled()) {
+            useVirtualThreads(factory);
+        }
         connection = factory.newConnection();
+        connection.addBlockedListener(reason -> {
+            LOG.warn("RabbitMQ connection blocked by the broker: {}", reason);
+            blocked = true;
+        }, () -> {
+            LOG.info("RabbitMQ connection unblocked.");
+            blocked = false;
+        });
         channel = connection.createChannel();
         channel.basicQos(PREFETCH_COUNT);
         LOG.info("RabbitMQ started.");
@@ -85,22 +110,37 @@ public class ManagedRabbitMQ {
             LOG.info("RabbitMQ connection closed.");
         } catch (IOException | TimeoutException e) {
             LOG.warn("RabbitMQ error during closing", e);
+        } finally {
+            if (consumerExecutor != null) {
+                consumerExecutor.shutdown();
+            }
         }
     }
 
-    public <T> OptionalException sendGenerationMessage(T message, String xRequestId) {
-        return sendMessage(message, xRequestId, generationQueueName);
+    private void useVirtualThreads(ConnectionFactory factory) {
+        consumerExecutor = VirtualThreads.newThreadPerTaskExecutor("rabbitmq-consumer-");
+        factory.setSharedExecutor(consumerExecutor);
+        factory.setThreadFactory(VirtualThreads.threadFactory("rabbitmq-connection-"));
+        LOG.info("RabbitMQ uses virtual threads.");
+    }
+
+    public OptionalException sendGenerationMessage(GenerationMessage message, String xRequestId) {
+        return sendMessage(generationMessageWriter, message, xRequestId, generationQueueName);
     }
 
-    public <T> OptionalException sendEncryptionMessage(T message, String xRequestId) {
-        return sendMessage(message, xRequestId, encryptionQueueName);
+    public OptionalException sendEncryptionMessage(EncryptionMessage message, String xRequestId) {
+        return sendMessage(encryptionMessageWriter, message, xRequestId, encryptionQueueName);
     }
 
     public <T> OptionalException sendMessage(T message, String xRequestId, String queueName) {
+        return sendMessage(objectWriter, message, xRequestId, queueName);
+    }
+
+    private OptionalException sendMessage(ObjectWriter writer, Object message, String xRequestId, String queueName) {
         final AMQP.BasicProperties.Builder builder = new AMQP.BasicProperties.Builder();
         builder.headers(Map.of(CORRELATION_ID, xRequestId));
         try {
-            channel.basicPublish("", queueName, builder.build(), objectMapper.writeValueAsBytes(message));
+            channel.basicPublish("", queueName, builder.build(), writer.writeValueAsBytes(message));
             LOG.info("Message for 'x-request-id': '{}' was sent on queue: '{}'", xRequestId, queueName);
             return OptionalException.empty();
         } catch (Exception e) {
@@ -108,6 +148,13 @@ public class ManagedRabbitMQ {
         }
     }
 
+    /**
+     * Whether the broker currently blocks publishing on the connection, e.g. because it is running low on memory or disk.
+     */
+    public boolean isBlocked() {
+        return blocked;
+    }
+
     public Channel getChannel() {
         return channel;
     }
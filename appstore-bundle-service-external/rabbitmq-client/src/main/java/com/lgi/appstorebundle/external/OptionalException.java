@@ -43,6 +43,10 @@ public final class OptionalException {
         this.value = Objects.requireNonNull(value);
     }
 
+    public boolean isPresent() {
+        return value != null;
+    }
+
     public void ifPresent(Consumer<RuntimeException> action) {
         if (value != null) {
             action.accept(value);
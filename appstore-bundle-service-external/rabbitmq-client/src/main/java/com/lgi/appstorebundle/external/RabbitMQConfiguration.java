@@ -46,6 +46,9 @@ public class RabbitMQConfiguration {
     @NotNull
     private String url;
 
+    @Value("${virtual.threads.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
     public String getGenerationQueueName() {
         return generationQueueName;
     }
@@ -66,4 +69,8 @@ public class RabbitMQConfiguration {
         return url;
     }
 
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
 }
@@ -42,7 +42,7 @@ public class EncryptionMessageFactory {
                 appCtx.getPlatformName(), appCtx.getFirmwareVersion(), buildBundleUrl(appCtx), environment.toString());
     }
 
-    private String buildBundleUrl(ApplicationContext appCtx) {
+    public String buildBundleUrl(ApplicationContext appCtx) {
         requireNonNull(appCtx, "applicationContext");
 
         return String.format("/%s/%s/%s/%s/%s", appCtx.getApplicationId(), appCtx.getApplicationVersion(), appCtx.getPlatformName(), appCtx.getFirmwareVersion(),
@@ -19,6 +19,7 @@
 package com.lgi.appstorebundle.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.joda.ser.DateTimeSerializer;
 import com.google.auto.value.AutoValue;
@@ -41,7 +42,9 @@ public abstract class FeedbackMessage {
     public abstract ErrorMessage getError();
 
     @JsonCreator
-    public static FeedbackMessage create(UUID id, String phaseCode, DateTime messageTimestamp, ErrorMessage error) {
+    public static FeedbackMessage create(UUID id, String phaseCode,
+                                         @JsonDeserialize(using = MessageTimestampDeserializer.class) DateTime messageTimestamp,
+                                         ErrorMessage error) {
         return new AutoValue_FeedbackMessage(id, phaseCode, messageTimestamp, error);
     }
 }
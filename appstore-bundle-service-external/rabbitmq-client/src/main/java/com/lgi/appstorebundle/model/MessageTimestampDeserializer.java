@@ -0,0 +1,161 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.datatype.joda.deser.DateTimeDeserializer;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.io.IOException;
+
+/**
+ * Reads message timestamps in the canonical ISO-8601 form {@code yyyy-MM-ddTHH:mm:ss[.fraction](Z|+HH:mm|+HHmm)}
+ * straight from the parser buffer, without creating a string or going through a Joda formatter. Every other input is
+ * handed to the Joda module deserializer, so both paths produce the same value.
+ */
+public class MessageTimestampDeserializer extends StdScalarDeserializer<DateTime> {
+
+    private static final long UNPARSEABLE = Long.MIN_VALUE;
+    private static final int MIN_LENGTH = "yyyy-MM-ddTHH:mm:ssZ".length();
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private final DateTimeDeserializer fallback = new DateTimeDeserializer();
+
+    public MessageTimestampDeserializer() {
+        super(DateTime.class);
+    }
+
+    @Override
+    public DateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.hasToken(JsonToken.VALUE_STRING) && context.isEnabled(DeserializationFeature.ADJUST_DATES_TO_CONTEXT_TIME_ZONE)) {
+            final long millis = parseMillis(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            if (millis != UNPARSEABLE) {
+                return new DateTime(millis, DateTimeZone.forTimeZone(context.getTimeZone()));
+            }
+        }
+        return (DateTime) fallback.deserialize(parser, context);
+    }
+
+    static long parseMillis(char[] text, int offset, int length) {
+        if (length < MIN_LENGTH
+                || text[offset + 4] != '-' || text[offset + 7] != '-' || text[offset + 10] != 'T'
+                || text[offset + 13] != ':' || text[offset + 16] != ':') {
+            return UNPARSEABLE;
+        }
+        final int year = digits(text, offset, 4);
+        final int month = digits(text, offset + 5, 2);
+        final int day = digits(text, offset + 8, 2);
+        final int hour = digits(text, offset + 11, 2);
+        final int minute = digits(text, offset + 14, 2);
+        final int second = digits(text, offset + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return UNPARSEABLE;
+        }
+        final int end = offset + length;
+        int position = offset + 19;
+        int millis = 0;
+        if (text[position] == '.') {
+            final int fractionStart = ++position;
+            while (position < end && isDigit(text[position])) {
+                if (position - fractionStart < 3) {
+                    millis = millis * 10 + text[position] - '0';
+                }
+                position++;
+            }
+            final int fractionLength = position - fractionStart;
+            if (fractionLength == 0 || fractionLength > 9) {
+                return UNPARSEABLE;
+            }
+            for (int i = fractionLength; i < 3; i++) {
+                millis *= 10;
+            }
+        }
+        final int offsetSeconds = offsetSeconds(text, position, end);
+        if (offsetSeconds == Integer.MIN_VALUE) {
+            return UNPARSEABLE;
+        }
+        final long epochSeconds = epochDay(year, month, day) * 86_400L + hour * 3_600L + minute * 60L + second - offsetSeconds;
+        return epochSeconds * 1_000L + millis;
+    }
+
+    private static int offsetSeconds(char[] text, int position, int end) {
+        if (position == end - 1 && text[position] == 'Z') {
+            return 0;
+        }
+        final int length = end - position;
+        if ((length != 6 && length != 5) || (text[position] != '+' && text[position] != '-')) {
+            return Integer.MIN_VALUE;
+        }
+        final int hours = digits(text, position + 1, 2);
+        final int minutesStart = length == 6 ? position + 4 : position + 3;
+        if (length == 6 && text[position + 3] != ':') {
+            return Integer.MIN_VALUE;
+        }
+        final int minutes = digits(text, minutesStart, 2);
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+            return Integer.MIN_VALUE;
+        }
+        final int seconds = hours * 3_600 + minutes * 60;
+        return text[position] == '-' ? -seconds : seconds;
+    }
+
+    /**
+     * Returns the decimal value of the given number of digits, or -1 when one of them is not a digit.
+     */
+    private static int digits(char[] text, int position, int count) {
+        int value = 0;
+        for (int i = position; i < position + count; i++) {
+            if (!isDigit(text[i])) {
+                return -1;
+            }
+            value = value * 10 + text[i] - '0';
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return month == 2 && isLeapYear(year) ? 29 : DAYS_IN_MONTH[month - 1];
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar.
+     */
+    private static long epochDay(int year, int month, int day) {
+        final int shiftedYear = month <= 2 ? year - 1 : year;
+        final int era = Math.floorDiv(shiftedYear, 400);
+        final int yearOfEra = shiftedYear - era * 400;
+        final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468L;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MessageTimestampDeserializerTest {
+
+    private final ObjectReader jodaReader = new ObjectMapper()
+            .registerModule(new JodaModule())
+            .readerFor(DateTime.class);
+    private final ObjectReader fastReader = new ObjectMapper()
+            .registerModule(new SimpleModule().addDeserializer(DateTime.class, new MessageTimestampDeserializer()))
+            .readerFor(DateTime.class);
+
+    @Test
+    void canonicalTimestampsReadAsByJodaModule() throws Exception {
+        // GIVEN
+        final Random random = new Random(42);
+        final List<String> patterns = List.of("yyyy-MM-dd'T'HH:mm:ssXXX", "yyyy-MM-dd'T'HH:mm:ss.SSSXXX",
+                "yyyy-MM-dd'T'HH:mm:ss.SXX", "yyyy-MM-dd'T'HH:mm:ss.SSSSSSXXX", "yyyy-MM-dd'T'HH:mm:ss.SSSSSSSSSX");
+        final List<ZoneOffset> offsets = List.of(ZoneOffset.UTC, ZoneOffset.ofHours(2), ZoneOffset.ofHoursMinutes(-5, -30),
+                ZoneOffset.ofHours(14), ZoneOffset.ofHours(-12));
+
+        for (int i = 0; i < 10_000; i++) {
+            final Instant instant = Instant.ofEpochSecond(random.nextInt(Integer.MAX_VALUE) - (long) Integer.MAX_VALUE / 2,
+                    random.nextInt(1_000_000_000));
+            final String timestamp = DateTimeFormatter.ofPattern(patterns.get(i % patterns.size()))
+                    .format(instant.atOffset(offsets.get(random.nextInt(offsets.size()))));
+
+            // WHEN THEN
+            assertSameAsJoda(timestamp);
+        }
+    }
+
+    @Test
+    void nonCanonicalTimestampsReadAsByJodaModule() throws Exception {
+        // WHEN THEN
+        for (String json : List.of("\"2023-01-01T10:00:00\"", "\"2023-01-01\"", "\"2024-02-29T23:59:59.999-00:00\"",
+                "\"2023-01-01T10:00+01:00\"", "\"2023-01-01t10:00:00z\"", "1672531200000",
+                "null", "\"\"")) {
+            assertEquals(jodaReader.readValue(json), (Object) fastReader.readValue(json), json);
+        }
+    }
+
+    @Test
+    void invalidTimestampsRejectedAsByJodaModule() {
+        // WHEN THEN
+        for (String json : List.of("\"2023-02-29T10:00:00Z\"", "\"2023-13-01T10:00:00Z\"", "\"2023-01-01T25:00:00Z\"",
+                "\"2023-01-01T10:00:00Zulu\"", "\"2023-01-01T10:00:00.+01:00\"", "\"not a timestamp\"")) {
+            assertThrows(IllegalArgumentException.class, () -> jodaReader.readValue(json), json);
+            assertThrows(IllegalArgumentException.class, () -> fastReader.readValue(json), json);
+        }
+    }
+
+    private void assertSameAsJoda(String timestamp) throws Exception {
+        final String json = "\"" + timestamp + "\"";
+        final DateTime expected = jodaReader.readValue(json);
+        final DateTime actual = fastReader.readValue(json);
+        assertEquals(expected, actual, timestamp);
+    }
+}
@@ -18,25 +18,99 @@
  */
 package com.lgi.appstorebundle.storage.persistent;
 
+import com.lgi.appstorebundle.api.model.ApplicationContext;
 import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleFilter;
+import com.lgi.appstorebundle.api.model.BundlePage;
+import com.lgi.appstorebundle.api.model.BundlePosition;
 import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.api.model.BundleStatusCount;
+import com.lgi.appstorebundle.api.model.BundleStatusTransition;
+import com.lgi.appstorebundle.api.model.QueuedGeneration;
 import org.joda.time.DateTime;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface BundleDao {
 
     Optional<Bundle> getLatestBundle(String applicationId, String applicationVersion, String platformName, String firmwareVersion);
 
+    /**
+     * Returns the latest bundle of every given application context that has one, using a single query.
+     */
+    List<Bundle> getLatestBundles(Collection<ApplicationContext> applicationContexts);
+
     Optional<Bundle> getBundle(UUID id);
 
-    void saveBundleWithStatus(Bundle bundle);
+    Optional<Bundle> getBundleByXRequestId(String xRequestId);
+
+    /**
+     * Passes every bundle matching the filter to the consumer, in no particular order, reading from the read node with a
+     * server-side cursor so that memory use does not depend on the number of matching bundles.
+     */
+    void exportBundles(BundleFilter filter, Consumer<Bundle> consumer);
+
+    /**
+     * Returns up to {@code limit} bundles matching the filter in creation order, starting after the given position. Uses
+     * keyset pagination on the read node, so the cost of a page does not depend on how far the listing has progressed.
+     */
+    BundlePage searchBundles(BundleFilter filter, Optional<BundlePosition> after, int limit);
+
+    /**
+     * Returns the number of bundles per platform and status. The counts are maintained by the database on every insert
+     * and status change, so reading them does not scan the bundle table.
+     */
+    List<BundleStatusCount> getBundleStatusCounts();
+
+    /**
+     * Inserts the bundle unless another bundle for the same application context is still in flight (generation queued,
+     * or generation or encryption requested or launched), in which case that bundle is returned instead. A bundle already
+     * stored under the same x-request-id is returned as well.
+     */
+    Bundle saveBundleWithStatus(Bundle bundle);
+
+    /**
+     * Bulk variant of {@link #saveBundleWithStatus(Bundle)}, returning one stored bundle per given bundle in no particular
+     * order. The given bundles must belong to distinct application contexts.
+     */
+    List<Bundle> saveBundlesWithStatus(List<Bundle> bundles);
 
     void updateStatusForBundle(UUID id, BundleStatus status, DateTime messageTimestamp);
 
-    boolean updateBundleStatusIfNewer(UUID id, BundleStatus status, DateTime messageTimestamp);
+    /**
+     * Updates the status only when the given message timestamp is newer than the stored one, returning the transition
+     * from the previously stored status when the bundle was updated.
+     */
+    Optional<BundleStatusTransition> updateBundleStatusIfNewer(UUID id, BundleStatus status, DateTime messageTimestamp);
 
     Optional<Boolean> isEncryptionEnabled(UUID id);
 
+    /**
+     * Returns the status of every given bundle that exists.
+     */
+    Map<UUID, BundleStatus> getBundleStatuses(Collection<UUID> ids);
+
+    /**
+     * Moves the bundles from {@link BundleStatus#GENERATION_REQUESTED} to {@link BundleStatus#GENERATION_QUEUED} and
+     * stores what is needed to publish their generation later, so that queued generations survive a restart. Returns the
+     * ids of the bundles that were queued; bundles no longer in {@link BundleStatus#GENERATION_REQUESTED} are skipped.
+     */
+    List<UUID> queueBundleGenerations(List<QueuedGeneration> queuedGenerations);
+
+    /**
+     * Returns the oldest queued generations of every tenant, at most {@code limitPerTenant} each, oldest first.
+     */
+    List<QueuedGeneration> getQueuedGenerations(int limitPerTenant);
+
+    /**
+     * Moves a queued bundle back to {@link BundleStatus#GENERATION_REQUESTED} so that its generation can be published,
+     * returning false when it is no longer queued, e.g. because another instance claimed it first.
+     */
+    boolean claimQueuedGeneration(UUID id);
+
 }
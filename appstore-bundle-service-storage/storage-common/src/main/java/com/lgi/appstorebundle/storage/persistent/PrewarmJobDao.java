@@ -0,0 +1,51 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.storage.persistent;
+
+import com.lgi.appstorebundle.api.model.PrewarmJobState;
+import org.joda.time.DateTime;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface PrewarmJobDao {
+
+    void savePrewarmJob(PrewarmJobState prewarmJob);
+
+    /**
+     * Stores the progress of a running job, which also marks the job as alive for {@link #claimAbandonedPrewarmJob(Duration)}.
+     * Once a job is stored as finished its progress no longer changes.
+     */
+    void updatePrewarmJob(PrewarmJobState prewarmJob);
+
+    Optional<PrewarmJobState> getPrewarmJob(UUID id);
+
+    /**
+     * Takes over one unfinished job whose progress was not stored for longer than {@code abandonAfter}, e.g. because the
+     * instance running it stopped, and resets its progress so that it can be run again. Every job is taken over by one
+     * caller only.
+     */
+    Optional<PrewarmJobState> claimAbandonedPrewarmJob(Duration abandonAfter);
+
+    /**
+     * Deletes the jobs that finished before the given time, returning how many were deleted.
+     */
+    int deletePrewarmJobsFinishedBefore(DateTime finishedBefore);
+}
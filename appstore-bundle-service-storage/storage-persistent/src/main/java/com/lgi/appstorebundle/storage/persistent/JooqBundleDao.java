@@ -20,26 +20,86 @@ package com.lgi.appstorebundle.storage.persistent;
 
 import com.lgi.appstorebundle.api.model.ApplicationContext;
 import com.lgi.appstorebundle.api.model.Bundle;
+import com.lgi.appstorebundle.api.model.BundleContext;
+import com.lgi.appstorebundle.api.model.BundleFilter;
+import com.lgi.appstorebundle.api.model.BundlePage;
+import com.lgi.appstorebundle.api.model.BundlePosition;
 import com.lgi.appstorebundle.api.model.BundleStatus;
+import com.lgi.appstorebundle.api.model.BundleStatusCount;
+import com.lgi.appstorebundle.api.model.BundleStatusTransition;
+import com.lgi.appstorebundle.api.model.QueuedGeneration;
 import com.lgi.appstorebundle.jooq.generated.tables.records.BundleRecord;
 import org.joda.time.DateTime;
+import org.jooq.CommonTableExpression;
+import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
 import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.Record3;
+import org.jooq.Row4;
+import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_LAUNCHED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.ENCRYPTION_REQUESTED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_LAUNCHED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_QUEUED;
+import static com.lgi.appstorebundle.api.model.BundleStatus.GENERATION_REQUESTED;
 import static com.lgi.appstorebundle.jooq.generated.Tables.BUNDLE;
+import static com.lgi.appstorebundle.jooq.generated.Tables.BUNDLE_GENERATION_QUEUE;
+import static com.lgi.appstorebundle.jooq.generated.Tables.BUNDLE_STATUS_COUNT;
+import static com.lgi.appstorebundle.storage.persistent.PostgresBundleStatusListener.BUNDLE_STATUS_CHANNEL;
+import static java.time.ZoneOffset.UTC;
 import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.joda.time.DateTime.now;
+import static org.jooq.exception.SQLStateClass.C23_INTEGRITY_CONSTRAINT_VIOLATION;
 import static org.jooq.impl.DSL.coalesce;
+import static org.jooq.impl.DSL.name;
+import static org.jooq.impl.DSL.noCondition;
+import static org.jooq.impl.DSL.partitionBy;
+import static org.jooq.impl.DSL.row;
+import static org.jooq.impl.DSL.rowNumber;
+import static org.jooq.impl.DSL.select;
 
 @Component
 public class JooqBundleDao implements BundleDao {
 
+    private static final List<String> IN_FLIGHT_STATUSES = List.of(
+            GENERATION_QUEUED.name(), GENERATION_REQUESTED.name(), GENERATION_LAUNCHED.name(), ENCRYPTION_REQUESTED.name(), ENCRYPTION_LAUNCHED.name());
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    /**
+     * Creation time with its full microsecond precision, the converted {@code BUNDLE.CREATED_AT} is truncated to
+     * milliseconds and would skip or repeat bundles created within the same millisecond.
+     */
+    private static final Field<OffsetDateTime> CREATED_AT_POSITION = DSL.field(BUNDLE.CREATED_AT.getQualifiedName(), SQLDataType.TIMESTAMPWITHTIMEZONE(6));
+    private static final Field<OffsetDateTime> POSITION_CREATED_AT = CREATED_AT_POSITION.as("position_created_at");
+
+    private static final Field<Integer> TENANT_QUEUE_POSITION = rowNumber()
+            .over(partitionBy(BUNDLE_GENERATION_QUEUE.TENANT).orderBy(BUNDLE_GENERATION_QUEUE.QUEUED_AT))
+            .as("tenant_queue_position");
+
+    private static final Field<Long> BUNDLE_COUNT_SUM = DSL.sum(BUNDLE_STATUS_COUNT.BUNDLE_COUNT).cast(SQLDataType.BIGINT);
+
     private final DSLContext readDslContext;
 
     private final DSLContext writeDslContext;
@@ -57,11 +117,33 @@ public class JooqBundleDao implements BundleDao {
                 .and(BUNDLE.APPLICATION_VERSION.eq(applicationVersion))
                 .and(BUNDLE.PLATFORM_NAME.eq(platformName))
                 .and(BUNDLE.FIRMWARE_VERSION.eq(firmwareVersion))
-                .orderBy(coalesce(BUNDLE.UPDATED_AT, BUNDLE.CREATED_AT))
+                .orderBy(coalesce(BUNDLE.UPDATED_AT, BUNDLE.CREATED_AT).desc())
                 .limit(1)
                 .fetchOptional(JooqBundleDao::toBundle);
     }
 
+    @Override
+    public List<Bundle> getLatestBundles(Collection<ApplicationContext> applicationContexts) {
+        if (applicationContexts.isEmpty()) {
+            return List.of();
+        }
+        final List<Row4<String, String, String, String>> applicationRows = applicationContexts.stream()
+                .map(applicationContext -> row(
+                        applicationContext.getApplicationId(),
+                        applicationContext.getApplicationVersion(),
+                        applicationContext.getPlatformName(),
+                        applicationContext.getFirmwareVersion()))
+                .collect(toList());
+        return readDslContext.select(BUNDLE.fields())
+                .distinctOn(BUNDLE.APPLICATION_ID, BUNDLE.APPLICATION_VERSION, BUNDLE.PLATFORM_NAME, BUNDLE.FIRMWARE_VERSION)
+                .from(BUNDLE)
+                .where(row(BUNDLE.APPLICATION_ID, BUNDLE.APPLICATION_VERSION, BUNDLE.PLATFORM_NAME, BUNDLE.FIRMWARE_VERSION).in(applicationRows))
+                .orderBy(BUNDLE.APPLICATION_ID, BUNDLE.APPLICATION_VERSION, BUNDLE.PLATFORM_NAME, BUNDLE.FIRMWARE_VERSION,
+                        coalesce(BUNDLE.UPDATED_AT, BUNDLE.CREATED_AT).desc())
+                .fetchInto(BUNDLE)
+                .map(JooqBundleDao::toBundle);
+    }
+
     @Override
     public Optional<Bundle> getBundle(UUID id) {
         return readDslContext.selectFrom(BUNDLE)
@@ -70,58 +152,205 @@ public class JooqBundleDao implements BundleDao {
     }
 
     @Override
-    public void saveBundleWithStatus(Bundle bundle) {
-        writeDslContext.transaction(configuration ->
-                DSL.using(configuration).insertInto(BUNDLE,
-                                BUNDLE.ID,
-                                BUNDLE.APPLICATION_ID,
-                                BUNDLE.APPLICATION_VERSION,
-                                BUNDLE.PLATFORM_NAME,
-                                BUNDLE.FIRMWARE_VERSION,
-                                BUNDLE.STATUS,
-                                BUNDLE.X_REQUEST_ID,
-                                BUNDLE.CREATED_AT,
-                                BUNDLE.MESSAGE_TIMESTAMP,
-                                BUNDLE.ENCRYPTION
-                        ).values(
-                                bundle.getId(),
-                                bundle.getApplicationContext().getApplicationId(),
-                                bundle.getApplicationContext().getApplicationVersion(),
-                                bundle.getApplicationContext().getPlatformName(),
-                                bundle.getApplicationContext().getFirmwareVersion(),
-                                bundle.getStatus().name(),
-                                bundle.getXRequestId(),
-                                now(),
-                                bundle.getMessageTimestamp(),
-                                bundle.isEncryptionEnabled()
-                        )
-                        .execute());
+    public Optional<Bundle> getBundleByXRequestId(String xRequestId) {
+        return readDslContext.selectFrom(BUNDLE)
+                .where(BUNDLE.X_REQUEST_ID.eq(xRequestId))
+                .fetchOptional(JooqBundleDao::toBundle);
+    }
+
+    @Override
+    public Bundle saveBundleWithStatus(Bundle bundle) {
+        try {
+            return insertUnlessInFlight(bundle);
+        } catch (DataAccessException e) {
+            if (e.sqlStateClass() != C23_INTEGRITY_CONSTRAINT_VIOLATION) {
+                throw e;
+            }
+            return writeDslContext.selectFrom(BUNDLE)
+                    .where(BUNDLE.X_REQUEST_ID.eq(bundle.getXRequestId()))
+                    .fetchOptional(JooqBundleDao::toBundle)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    @Override
+    public List<Bundle> saveBundlesWithStatus(List<Bundle> bundles) {
+        if (bundles.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return writeDslContext.transactionResult(configuration -> insertUnlessInFlight(DSL.using(configuration), bundles));
+        } catch (DataAccessException e) {
+            if (e.sqlStateClass() != C23_INTEGRITY_CONSTRAINT_VIOLATION) {
+                throw e;
+            }
+            return bundles.stream()
+                    .map(this::saveBundleWithStatus)
+                    .collect(toList());
+        }
+    }
+
+    private Bundle insertUnlessInFlight(Bundle bundle) {
+        return writeDslContext.transactionResult(configuration -> insertUnlessInFlight(DSL.using(configuration), List.of(bundle)).get(0));
+    }
+
+    private static List<Bundle> insertUnlessInFlight(DSLContext dslContext, List<Bundle> bundles) {
+        var insert = dslContext.insertInto(BUNDLE,
+                BUNDLE.ID,
+                BUNDLE.APPLICATION_ID,
+                BUNDLE.APPLICATION_VERSION,
+                BUNDLE.PLATFORM_NAME,
+                BUNDLE.FIRMWARE_VERSION,
+                BUNDLE.STATUS,
+                BUNDLE.X_REQUEST_ID,
+                BUNDLE.CREATED_AT,
+                BUNDLE.MESSAGE_TIMESTAMP,
+                BUNDLE.ENCRYPTION
+        );
+        final DateTime createdAt = now();
+        for (Bundle bundle : bundles) {
+            insert = insert.values(
+                    bundle.getId(),
+                    bundle.getApplicationContext().getApplicationId(),
+                    bundle.getApplicationContext().getApplicationVersion(),
+                    bundle.getApplicationContext().getPlatformName(),
+                    bundle.getApplicationContext().getFirmwareVersion(),
+                    bundle.getStatus().name(),
+                    bundle.getXRequestId(),
+                    createdAt,
+                    bundle.getMessageTimestamp(),
+                    bundle.isEncryptionEnabled()
+            );
+        }
+        return insert.onConflict(BUNDLE.APPLICATION_ID, BUNDLE.APPLICATION_VERSION, BUNDLE.PLATFORM_NAME, BUNDLE.FIRMWARE_VERSION)
+                .where(BUNDLE.STATUS.in(IN_FLIGHT_STATUSES))
+                .doUpdate()
+                .set(BUNDLE.STATUS, BUNDLE.STATUS)
+                .returning()
+                .fetch(JooqBundleDao::toBundle);
+    }
+
+    /**
+     * Postgres only streams results through a cursor inside a transaction; otherwise the driver reads the whole result
+     * into memory regardless of the fetch size.
+     */
+    @Override
+    public void exportBundles(BundleFilter filter, Consumer<Bundle> consumer) {
+        readDslContext.transaction(configuration -> {
+            try (Cursor<BundleRecord> cursor = DSL.using(configuration)
+                    .selectFrom(BUNDLE)
+                    .where(toCondition(filter))
+                    .fetchSize(EXPORT_FETCH_SIZE)
+                    .fetchLazy()) {
+                cursor.forEach(bundleRecord -> consumer.accept(toBundle(bundleRecord)));
+            }
+        });
+    }
+
+    @Override
+    public BundlePage searchBundles(BundleFilter filter, Optional<BundlePosition> after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        final Condition afterCondition = after
+                .map(position -> row(CREATED_AT_POSITION, BUNDLE.ID).gt(position.getCreatedAt().atOffset(UTC), position.getId()))
+                .orElse(noCondition());
+        final List<Record> records = readDslContext.select(BUNDLE.fields())
+                .select(POSITION_CREATED_AT)
+                .from(BUNDLE)
+                .where(toCondition(filter))
+                .and(afterCondition)
+                .orderBy(CREATED_AT_POSITION, BUNDLE.ID)
+                .limit(limit + 1)
+                .fetch();
+        final List<Bundle> bundles = records.stream()
+                .limit(limit)
+                .map(bundleRecord -> toBundle(bundleRecord.into(BUNDLE)))
+                .collect(toList());
+        final Optional<BundlePosition> next = records.size() > limit
+                ? Optional.of(toPosition(records.get(limit - 1)))
+                : Optional.empty();
+        return BundlePage.create(bundles, next);
+    }
+
+    private static BundlePosition toPosition(Record record) {
+        return BundlePosition.create(record.get(POSITION_CREATED_AT).toInstant(), record.get(BUNDLE.ID));
+    }
+
+    private static Condition toCondition(BundleFilter filter) {
+        Condition condition = noCondition();
+        if (!filter.getStatuses().isEmpty()) {
+            condition = condition.and(BUNDLE.STATUS.in(filter.getStatuses().stream().map(BundleStatus::name).collect(toList())));
+        }
+        if (filter.getApplicationId().isPresent()) {
+            condition = condition.and(BUNDLE.APPLICATION_ID.eq(filter.getApplicationId().get()));
+        }
+        if (filter.getPlatformName().isPresent()) {
+            condition = condition.and(BUNDLE.PLATFORM_NAME.eq(filter.getPlatformName().get()));
+        }
+        if (filter.getFirmwareVersion().isPresent()) {
+            condition = condition.and(BUNDLE.FIRMWARE_VERSION.eq(filter.getFirmwareVersion().get()));
+        }
+        if (filter.getCreatedFrom().isPresent()) {
+            condition = condition.and(BUNDLE.CREATED_AT.greaterOrEqual(filter.getCreatedFrom().get()));
+        }
+        if (filter.getCreatedTo().isPresent()) {
+            condition = condition.and(BUNDLE.CREATED_AT.lessThan(filter.getCreatedTo().get()));
+        }
+        return condition;
     }
 
     @Override
     public void updateStatusForBundle(UUID id, BundleStatus status, DateTime messageTimestamp) {
-        writeDslContext.transaction(configuration ->
-                DSL.using(configuration)
-                        .update(BUNDLE)
-                        .set(BUNDLE.STATUS, status.toString())
-                        .set(BUNDLE.UPDATED_AT, now())
-                        .set(BUNDLE.MESSAGE_TIMESTAMP, messageTimestamp)
-                        .where(BUNDLE.ID.eq(id))
-                        .execute());
+        writeDslContext.transaction(configuration -> {
+            final int numberOfUpdatedRows = DSL.using(configuration)
+                    .update(BUNDLE)
+                    .set(BUNDLE.STATUS, status.toString())
+                    .set(BUNDLE.UPDATED_AT, now())
+                    .set(BUNDLE.MESSAGE_TIMESTAMP, messageTimestamp)
+                    .where(BUNDLE.ID.eq(id))
+                    .execute();
+            if (numberOfUpdatedRows > 0) {
+                notifyStatusChange(DSL.using(configuration), id, status);
+            }
+        });
     }
 
+    /**
+     * The previous status is read in a locking CTE because Postgres only returns the new row values from an UPDATE.
+     */
     @Override
-    public boolean updateBundleStatusIfNewer(UUID id, BundleStatus status, DateTime messageTimestamp) {
-        final Integer numberOfUpdatedRow = writeDslContext.transactionResult(configuration ->
-                DSL.using(configuration)
-                        .update(BUNDLE)
-                        .set(BUNDLE.STATUS, status.toString())
-                        .set(BUNDLE.UPDATED_AT, now())
-                        .set(BUNDLE.MESSAGE_TIMESTAMP, messageTimestamp)
-                        .where(BUNDLE.ID.eq(id))
-                        .and(BUNDLE.MESSAGE_TIMESTAMP.lessThan(messageTimestamp))
-                        .execute());
-        return numberOfUpdatedRow > 0;
+    public Optional<BundleStatusTransition> updateBundleStatusIfNewer(UUID id, BundleStatus status, DateTime messageTimestamp) {
+        return writeDslContext.transactionResult(configuration -> {
+            final CommonTableExpression<Record3<UUID, String, DateTime>> previous = name("previous").as(
+                    select(BUNDLE.ID, BUNDLE.STATUS, BUNDLE.MESSAGE_TIMESTAMP)
+                            .from(BUNDLE)
+                            .where(BUNDLE.ID.eq(id))
+                            .and(BUNDLE.MESSAGE_TIMESTAMP.lessThan(messageTimestamp))
+                            .forUpdate());
+            final Optional<BundleStatusTransition> transition = DSL.using(configuration)
+                    .with(previous)
+                    .update(BUNDLE)
+                    .set(BUNDLE.STATUS, status.toString())
+                    .set(BUNDLE.UPDATED_AT, now())
+                    .set(BUNDLE.MESSAGE_TIMESTAMP, messageTimestamp)
+                    .from(previous)
+                    .where(BUNDLE.ID.eq(previous.field(BUNDLE.ID)))
+                    .returningResult(BUNDLE.PLATFORM_NAME, previous.field(BUNDLE.STATUS), previous.field(BUNDLE.MESSAGE_TIMESTAMP))
+                    .fetchOptional(updated -> BundleStatusTransition.create(
+                            id, updated.value1(), BundleStatus.valueOf(updated.value2()), updated.value3(), status, messageTimestamp));
+            if (transition.isPresent()) {
+                notifyStatusChange(DSL.using(configuration), id, status);
+            }
+            return transition;
+        });
+    }
+
+    /**
+     * Postgres delivers the notification to listeners only when the surrounding transaction commits.
+     */
+    private static void notifyStatusChange(DSLContext dslContext, UUID id, BundleStatus status) {
+        dslContext.fetch("select pg_notify(?, ?)", BUNDLE_STATUS_CHANNEL, PostgresBundleStatusListener.toPayload(id, status));
     }
 
     @Override
@@ -132,6 +361,122 @@ public class JooqBundleDao implements BundleDao {
                 .fetchOptional(Record1::value1);
     }
 
+    @Override
+    public Map<UUID, BundleStatus> getBundleStatuses(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return readDslContext.select(BUNDLE.ID, BUNDLE.STATUS)
+                .from(BUNDLE)
+                .where(BUNDLE.ID.in(ids))
+                .fetch()
+                .stream()
+                .collect(toMap(Record2::value1, bundleStatus -> BundleStatus.valueOf(bundleStatus.value2())));
+    }
+
+    @Override
+    public List<UUID> queueBundleGenerations(List<QueuedGeneration> queuedGenerations) {
+        if (queuedGenerations.isEmpty()) {
+            return List.of();
+        }
+        final Map<UUID, QueuedGeneration> queuedGenerationsById = queuedGenerations.stream()
+                .collect(toMap(queuedGeneration -> queuedGeneration.getBundleContext().getBundle().getId(), identity()));
+        return writeDslContext.transactionResult(configuration -> {
+            final DSLContext dslContext = DSL.using(configuration);
+            final List<UUID> queuedIds = dslContext.update(BUNDLE)
+                    .set(BUNDLE.STATUS, GENERATION_QUEUED.name())
+                    .set(BUNDLE.UPDATED_AT, now())
+                    .where(BUNDLE.ID.in(queuedGenerationsById.keySet()))
+                    .and(BUNDLE.STATUS.eq(GENERATION_REQUESTED.name()))
+                    .returningResult(BUNDLE.ID)
+                    .fetch(Record1::value1);
+            if (queuedIds.isEmpty()) {
+                return queuedIds;
+            }
+            var insert = dslContext.insertInto(BUNDLE_GENERATION_QUEUE,
+                    BUNDLE_GENERATION_QUEUE.BUNDLE_ID,
+                    BUNDLE_GENERATION_QUEUE.TENANT,
+                    BUNDLE_GENERATION_QUEUE.MAINTAINER_CODE,
+                    BUNDLE_GENERATION_QUEUE.OCI_IMAGE_URL,
+                    BUNDLE_GENERATION_QUEUE.ENCRYPT,
+                    BUNDLE_GENERATION_QUEUE.QUEUED_AT
+            );
+            for (UUID id : queuedIds) {
+                final QueuedGeneration queuedGeneration = queuedGenerationsById.get(id);
+                final BundleContext bundleContext = queuedGeneration.getBundleContext();
+                insert = insert.values(
+                        id,
+                        queuedGeneration.getTenant(),
+                        bundleContext.getMaintainerCode(),
+                        bundleContext.getOciImageUrl(),
+                        bundleContext.getEncrypt(),
+                        queuedGeneration.getQueuedAt()
+                );
+            }
+            insert.execute();
+            queuedIds.forEach(id -> notifyStatusChange(dslContext, id, GENERATION_QUEUED));
+            return queuedIds;
+        });
+    }
+
+    @Override
+    public List<QueuedGeneration> getQueuedGenerations(int limitPerTenant) {
+        final Table<?> queuedPositions = select(BUNDLE_GENERATION_QUEUE.BUNDLE_ID, TENANT_QUEUE_POSITION)
+                .from(BUNDLE_GENERATION_QUEUE)
+                .join(BUNDLE).on(BUNDLE.ID.eq(BUNDLE_GENERATION_QUEUE.BUNDLE_ID))
+                .where(BUNDLE.STATUS.eq(GENERATION_QUEUED.name()))
+                .asTable("queued_position");
+        return readDslContext.select(BUNDLE.fields())
+                .select(BUNDLE_GENERATION_QUEUE.fields())
+                .from(BUNDLE_GENERATION_QUEUE)
+                .join(BUNDLE).on(BUNDLE.ID.eq(BUNDLE_GENERATION_QUEUE.BUNDLE_ID))
+                .join(queuedPositions).on(queuedPositions.field(BUNDLE_GENERATION_QUEUE.BUNDLE_ID).eq(BUNDLE_GENERATION_QUEUE.BUNDLE_ID))
+                .where(BUNDLE.STATUS.eq(GENERATION_QUEUED.name()))
+                .and(queuedPositions.field(TENANT_QUEUE_POSITION).le(limitPerTenant))
+                .orderBy(BUNDLE_GENERATION_QUEUE.QUEUED_AT)
+                .fetch(queued -> QueuedGeneration.create(
+                        BundleContext.create(
+                                toBundle(queued.into(BUNDLE)),
+                                queued.get(BUNDLE_GENERATION_QUEUE.OCI_IMAGE_URL),
+                                queued.get(BUNDLE_GENERATION_QUEUE.ENCRYPT),
+                                queued.get(BUNDLE_GENERATION_QUEUE.MAINTAINER_CODE)),
+                        queued.get(BUNDLE_GENERATION_QUEUE.TENANT),
+                        queued.get(BUNDLE_GENERATION_QUEUE.QUEUED_AT)));
+    }
+
+    @Override
+    public boolean claimQueuedGeneration(UUID id) {
+        return writeDslContext.transactionResult(configuration -> {
+            final DSLContext dslContext = DSL.using(configuration);
+            final boolean moved = dslContext.update(BUNDLE)
+                    .set(BUNDLE.STATUS, GENERATION_REQUESTED.name())
+                    .set(BUNDLE.UPDATED_AT, now())
+                    .where(BUNDLE.ID.eq(id))
+                    .and(BUNDLE.STATUS.eq(GENERATION_QUEUED.name()))
+                    .execute() > 0;
+            dslContext.deleteFrom(BUNDLE_GENERATION_QUEUE)
+                    .where(BUNDLE_GENERATION_QUEUE.BUNDLE_ID.eq(id))
+                    .execute();
+            if (moved) {
+                notifyStatusChange(dslContext, id, GENERATION_REQUESTED);
+            }
+            return moved;
+        });
+    }
+
+    /**
+     * Counter rows are kept up to date by a trigger on the bundle table, see the V6 migration.
+     */
+    @Override
+    public List<BundleStatusCount> getBundleStatusCounts() {
+        return readDslContext.select(BUNDLE_STATUS_COUNT.PLATFORM_NAME, BUNDLE_STATUS_COUNT.STATUS, BUNDLE_COUNT_SUM)
+                .from(BUNDLE_STATUS_COUNT)
+                .groupBy(BUNDLE_STATUS_COUNT.PLATFORM_NAME, BUNDLE_STATUS_COUNT.STATUS)
+                .orderBy(BUNDLE_STATUS_COUNT.PLATFORM_NAME, BUNDLE_STATUS_COUNT.STATUS)
+                .fetch(count -> BundleStatusCount.create(
+                        count.value1(), BundleStatus.valueOf(count.value2()), count.value3()));
+    }
+
     private static Bundle toBundle(BundleRecord bundleRecord) {
         return Bundle.create(
                 bundleRecord.getId(),
@@ -0,0 +1,180 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.storage.persistent;
+
+import com.lgi.appstorebundle.api.model.ApplicationContext;
+import com.lgi.appstorebundle.api.model.PrewarmJobState;
+import com.lgi.appstorebundle.jooq.generated.tables.records.PrewarmJobRecord;
+import org.joda.time.DateTime;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.lgi.appstorebundle.jooq.generated.Tables.PREWARM_JOB;
+import static com.lgi.appstorebundle.jooq.generated.Tables.PREWARM_JOB_APPLICATION;
+import static java.util.Objects.requireNonNull;
+import static org.joda.time.DateTime.now;
+import static org.jooq.impl.DSL.select;
+
+@Component
+public class JooqPrewarmJobDao implements PrewarmJobDao {
+
+    private final DSLContext readDslContext;
+
+    private final DSLContext writeDslContext;
+
+    @Autowired
+    public JooqPrewarmJobDao(DSLContext readDslContext, DSLContext writeDslContext) {
+        this.readDslContext = requireNonNull(readDslContext, "readDslContext");
+        this.writeDslContext = requireNonNull(writeDslContext, "writeDslContext");
+    }
+
+    @Override
+    public void savePrewarmJob(PrewarmJobState prewarmJob) {
+        writeDslContext.transaction(configuration -> {
+            final DSLContext dslContext = DSL.using(configuration);
+            dslContext.insertInto(PREWARM_JOB,
+                            PREWARM_JOB.ID,
+                            PREWARM_JOB.PLATFORM_NAME,
+                            PREWARM_JOB.FIRMWARE_VERSION,
+                            PREWARM_JOB.SKIPPED,
+                            PREWARM_JOB.QUEUED,
+                            PREWARM_JOB.NOT_FOUND,
+                            PREWARM_JOB.FAILED,
+                            PREWARM_JOB.STARTED_AT,
+                            PREWARM_JOB.FINISHED_AT,
+                            PREWARM_JOB.HEARTBEAT_AT)
+                    .values(
+                            prewarmJob.getId(),
+                            prewarmJob.getPlatformName(),
+                            prewarmJob.getFirmwareVersion(),
+                            prewarmJob.getSkipped(),
+                            prewarmJob.getQueued(),
+                            prewarmJob.getNotFound(),
+                            prewarmJob.getFailed(),
+                            prewarmJob.getStartedAt(),
+                            prewarmJob.getFinishedAt().orElse(null),
+                            now())
+                    .execute();
+            if (prewarmJob.getApplicationContexts().isEmpty()) {
+                return;
+            }
+            var insert = dslContext.insertInto(PREWARM_JOB_APPLICATION,
+                    PREWARM_JOB_APPLICATION.PREWARM_JOB_ID,
+                    PREWARM_JOB_APPLICATION.POSITION,
+                    PREWARM_JOB_APPLICATION.APPLICATION_ID,
+                    PREWARM_JOB_APPLICATION.APPLICATION_VERSION
+            );
+            final List<ApplicationContext> applicationContexts = prewarmJob.getApplicationContexts();
+            for (int position = 0; position < applicationContexts.size(); position++) {
+                insert = insert.values(
+                        prewarmJob.getId(),
+                        position,
+                        applicationContexts.get(position).getApplicationId(),
+                        applicationContexts.get(position).getApplicationVersion()
+                );
+            }
+            insert.execute();
+        });
+    }
+
+    @Override
+    public void updatePrewarmJob(PrewarmJobState prewarmJob) {
+        writeDslContext.update(PREWARM_JOB)
+                .set(PREWARM_JOB.SKIPPED, prewarmJob.getSkipped())
+                .set(PREWARM_JOB.QUEUED, prewarmJob.getQueued())
+                .set(PREWARM_JOB.NOT_FOUND, prewarmJob.getNotFound())
+                .set(PREWARM_JOB.FAILED, prewarmJob.getFailed())
+                .set(PREWARM_JOB.FINISHED_AT, prewarmJob.getFinishedAt().orElse(null))
+                .set(PREWARM_JOB.HEARTBEAT_AT, now())
+                .where(PREWARM_JOB.ID.eq(prewarmJob.getId()))
+                .and(PREWARM_JOB.FINISHED_AT.isNull())
+                .execute();
+    }
+
+    @Override
+    public Optional<PrewarmJobState> getPrewarmJob(UUID id) {
+        return readDslContext.selectFrom(PREWARM_JOB)
+                .where(PREWARM_JOB.ID.eq(id))
+                .fetchOptional()
+                .map(prewarmJob -> toPrewarmJobState(readDslContext, prewarmJob));
+    }
+
+    /**
+     * Jobs locked by a concurrent claim are skipped, so instances claiming at the same time take over different jobs.
+     */
+    @Override
+    public Optional<PrewarmJobState> claimAbandonedPrewarmJob(Duration abandonAfter) {
+        return writeDslContext.transactionResult(configuration -> {
+            final DSLContext dslContext = DSL.using(configuration);
+            return dslContext.update(PREWARM_JOB)
+                    .set(PREWARM_JOB.SKIPPED, 0)
+                    .set(PREWARM_JOB.QUEUED, 0)
+                    .set(PREWARM_JOB.NOT_FOUND, 0)
+                    .set(PREWARM_JOB.FAILED, 0)
+                    .set(PREWARM_JOB.HEARTBEAT_AT, now())
+                    .where(PREWARM_JOB.ID.eq(select(PREWARM_JOB.ID)
+                            .from(PREWARM_JOB)
+                            .where(PREWARM_JOB.FINISHED_AT.isNull())
+                            .and(PREWARM_JOB.HEARTBEAT_AT.lessThan(now().minus(abandonAfter.toMillis())))
+                            .orderBy(PREWARM_JOB.HEARTBEAT_AT)
+                            .limit(1)
+                            .forUpdate()
+                            .skipLocked()))
+                    .returning()
+                    .fetchOptional()
+                    .map(prewarmJob -> toPrewarmJobState(dslContext, prewarmJob));
+        });
+    }
+
+    @Override
+    public int deletePrewarmJobsFinishedBefore(DateTime finishedBefore) {
+        return writeDslContext.deleteFrom(PREWARM_JOB)
+                .where(PREWARM_JOB.FINISHED_AT.lessThan(finishedBefore))
+                .execute();
+    }
+
+    private static PrewarmJobState toPrewarmJobState(DSLContext dslContext, PrewarmJobRecord prewarmJob) {
+        final List<ApplicationContext> applicationContexts = dslContext
+                .select(PREWARM_JOB_APPLICATION.APPLICATION_ID, PREWARM_JOB_APPLICATION.APPLICATION_VERSION)
+                .from(PREWARM_JOB_APPLICATION)
+                .where(PREWARM_JOB_APPLICATION.PREWARM_JOB_ID.eq(prewarmJob.getId()))
+                .orderBy(PREWARM_JOB_APPLICATION.POSITION)
+                .fetch(application -> ApplicationContext.create(application.value1(), application.value2(),
+                        prewarmJob.getPlatformName(), prewarmJob.getFirmwareVersion()));
+        return PrewarmJobState.create(
+                prewarmJob.getId(),
+                prewarmJob.getPlatformName(),
+                prewarmJob.getFirmwareVersion(),
+                applicationContexts,
+                prewarmJob.getSkipped(),
+                prewarmJob.getQueued(),
+                prewarmJob.getNotFound(),
+                prewarmJob.getFailed(),
+                prewarmJob.getStartedAt(),
+                Optional.ofNullable(prewarmJob.getFinishedAt())
+        );
+    }
+}
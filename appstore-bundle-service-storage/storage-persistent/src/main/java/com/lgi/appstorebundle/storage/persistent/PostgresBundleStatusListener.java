@@ -0,0 +1,158 @@
+/*
+ * If not stated otherwise in this file or this component's LICENSE file the
+ * following copyright and licenses apply:
+ *
+ * Copyright 2023 Liberty Global Technology Services BV
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.lgi.appstorebundle.storage.persistent;
+
+import com.lgi.appstorebundle.api.model.BundleStatus;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Receives the bundle status changes that {@link JooqBundleDao} publishes with {@code pg_notify} and hands them to a
+ * consumer. A single dedicated connection, outside of any pool, is held per instance no matter how many clients wait
+ * for changes; it is re-established after failures. Notifications sent while disconnected are lost.
+ * <p>
+ * The connection is never returned to a pool that would validate it, so it is checked here: TCP keepalive and a socket
+ * timeout are set on it and a validation query runs periodically, so a half-open connection is noticed and replaced
+ * instead of silently delivering nothing.
+ */
+public class PostgresBundleStatusListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostgresBundleStatusListener.class);
+
+    public static final String BUNDLE_STATUS_CHANNEL = "bundle_status";
+    private static final String PAYLOAD_SEPARATOR = ":";
+    private static final int POLL_TIMEOUT_MILLIS = 1000;
+    private static final String VALIDATION_QUERY = "SELECT 1";
+
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final Duration reconnectDelay;
+    private final Duration socketTimeout;
+    private final Duration validationInterval;
+    private final BiConsumer<UUID, BundleStatus> statusConsumer;
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public PostgresBundleStatusListener(String jdbcUrl, String username, String password, Duration reconnectDelay,
+                                        Duration socketTimeout, Duration validationInterval,
+                                        BiConsumer<UUID, BundleStatus> statusConsumer) {
+        this.jdbcUrl = requireNonNull(jdbcUrl, "jdbcUrl");
+        this.username = requireNonNull(username, "username");
+        this.password = requireNonNull(password, "password");
+        this.reconnectDelay = requireNonNull(reconnectDelay, "reconnectDelay");
+        this.socketTimeout = requireNonNull(socketTimeout, "socketTimeout");
+        this.validationInterval = requireNonNull(validationInterval, "validationInterval");
+        this.statusConsumer = requireNonNull(statusConsumer, "statusConsumer");
+    }
+
+    static String toPayload(UUID id, BundleStatus status) {
+        return id + PAYLOAD_SEPARATOR + status.name();
+    }
+
+    public synchronized void start() {
+        running = true;
+        listenerThread = new Thread(this::listen, "bundle-status-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(jdbcUrl, connectionProperties());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + BUNDLE_STATUS_CHANNEL);
+                LOG.info("Listening for bundle status changes on channel '{}'.", BUNDLE_STATUS_CHANNEL);
+                final PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                long nextValidation = System.nanoTime() + validationInterval.toNanos();
+                while (running) {
+                    if (System.nanoTime() - nextValidation >= 0) {
+                        statement.execute(VALIDATION_QUERY);
+                        nextValidation = System.nanoTime() + validationInterval.toNanos();
+                    }
+                    final PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    LOG.warn("Bundle status listener connection failed, reconnecting in {}.", reconnectDelay, e);
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+        LOG.info("Bundle status listener stopped.");
+    }
+
+    private Properties connectionProperties() {
+        final Properties properties = new Properties();
+        properties.setProperty("user", username);
+        properties.setProperty("password", password);
+        properties.setProperty("socketTimeout", String.valueOf(socketTimeout.toSeconds()));
+        properties.setProperty("tcpKeepAlive", "true");
+        return properties;
+    }
+
+    private void dispatch(String payload) {
+        final String[] parts = payload.split(PAYLOAD_SEPARATOR, 2);
+        final Optional<BundleStatus> maybeStatus = parts.length == 2 ? BundleStatus.of(parts[1]) : Optional.empty();
+        if (maybeStatus.isEmpty()) {
+            LOG.warn("Ignoring malformed bundle status notification: '{}'.", payload);
+            return;
+        }
+        try {
+            statusConsumer.accept(UUID.fromString(parts[0]), maybeStatus.get());
+        } catch (RuntimeException e) {
+            LOG.warn("Bundle status notification '{}' could not be handled.", payload, e);
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
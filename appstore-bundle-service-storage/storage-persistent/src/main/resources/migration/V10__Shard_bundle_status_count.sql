@@ -0,0 +1,46 @@
+--
+-- If not stated otherwise in this file or this component's LICENSE file the
+-- following copyright and licenses apply:
+--
+-- Copyright 2023 Liberty Global Technology Services BV
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Every (platform_name, status) count is spread over 16 shard rows. The shard is chosen by the backend process, so
+-- transitions running on different connections update different rows instead of queueing on one hot counter row.
+-- Readers sum the shards.
+lock table bundle_status_count in access exclusive mode;
+
+alter table bundle_status_count add column shard SMALLINT NOT NULL DEFAULT 0;
+alter table bundle_status_count alter column shard drop default;
+alter table bundle_status_count drop constraint bundle_status_count_pkey;
+alter table bundle_status_count add primary key (platform_name, status, shard);
+
+-- Counter rows are always changed in (platform_name, status) order so that concurrent transitions cannot deadlock.
+create or replace function bundle_status_count_update() returns trigger as $$
+begin
+    insert into bundle_status_count (platform_name, status, shard, bundle_count)
+    select platform_name, status, pg_backend_pid() % 16, sum(delta)
+    from (
+        select new.platform_name as platform_name, new.status as status, 1 as delta where tg_op in ('INSERT', 'UPDATE')
+        union all
+        select old.platform_name, old.status, -1 where tg_op in ('UPDATE', 'DELETE')
+    ) changes
+    group by platform_name, status
+    having sum(delta) <> 0
+    order by platform_name, status
+    on conflict (platform_name, status, shard) do update set bundle_count = bundle_status_count.bundle_count + excluded.bundle_count;
+    return null;
+end;
+$$ language plpgsql;
@@ -0,0 +1,53 @@
+--
+-- If not stated otherwise in this file or this component's LICENSE file the
+-- following copyright and licenses apply:
+--
+-- Copyright 2023 Liberty Global Technology Services BV
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Queued generations count as in flight again, so a request arriving while a bundle of the same application is queued
+-- gets the queued bundle instead of queuing another one. Data fix: the queued duplicates of a bundle in flight, or of a
+-- more recently updated queued bundle, are dequeued, moved to BUNDLE_ERROR and recorded in bundle_data_fix.
+with duplicates as (
+    select id, status
+    from (
+        select id,
+               status,
+               row_number() over (
+                   partition by application_id, application_version, platform_name, firmware_version
+                   order by status = 'GENERATION_QUEUED', coalesce(updated_at, created_at) desc, id
+               ) as position
+        from bundle
+        where status in ('GENERATION_QUEUED', 'GENERATION_REQUESTED', 'GENERATION_LAUNCHED', 'ENCRYPTION_REQUESTED', 'ENCRYPTION_LAUNCHED')
+    ) in_flight
+    where position > 1
+), recorded as (
+    insert into bundle_data_fix (bundle_id, migration, previous_status, status, reason)
+    select id, 'V11', status, 'BUNDLE_ERROR', 'Queued duplicate of another in-flight bundle of the same application'
+    from duplicates
+    returning bundle_id
+), dequeued as (
+    delete from bundle_generation_queue
+    where bundle_id in (select bundle_id from recorded)
+)
+update bundle
+set status = 'BUNDLE_ERROR', updated_at = now()
+where id in (select bundle_id from recorded);
+
+drop index bundle_in_flight_application_uidx;
+create unique index bundle_in_flight_application_uidx on bundle (application_id, application_version, platform_name, firmware_version)
+    where status in ('GENERATION_QUEUED', 'GENERATION_REQUESTED', 'GENERATION_LAUNCHED', 'ENCRYPTION_REQUESTED', 'ENCRYPTION_LAUNCHED');
+
+create index bundle_generation_queue_tenant_queued_at_idx on bundle_generation_queue (tenant, queued_at);
@@ -0,0 +1,22 @@
+--
+-- If not stated otherwise in this file or this component's LICENSE file the
+-- following copyright and licenses apply:
+--
+-- Copyright 2023 Liberty Global Technology Services BV
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- A status has too many rows to make the index selective, while it is rewritten on every status change and keeps
+-- those updates from being HOT. Status-only searches walk bundle_created_at_id_idx in keyset order instead.
+drop index bundle_status_created_at_id_idx;
@@ -0,0 +1,57 @@
+--
+-- If not stated otherwise in this file or this component's LICENSE file the
+-- following copyright and licenses apply:
+--
+-- Copyright 2023 Liberty Global Technology Services BV
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Data fix: bundle_in_flight_application_uidx allows a single in-flight bundle per application, so the older in-flight
+-- duplicates are moved to BUNDLE_ERROR and the most recently updated one is kept. Every bundle changed by a migration
+-- is recorded in bundle_data_fix with its previous status.
+create table bundle_data_fix (
+    bundle_id UUID NOT NULL REFERENCES bundle (id) ON DELETE CASCADE,
+    migration VARCHAR(255) NOT NULL,
+    previous_status VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    reason TEXT NOT NULL,
+    fixed_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (bundle_id, migration)
+);
+
+with duplicates as (
+    select id, status
+    from (
+        select id,
+               status,
+               row_number() over (
+                   partition by application_id, application_version, platform_name, firmware_version
+                   order by coalesce(updated_at, created_at) desc, id
+               ) as position
+        from bundle
+        where status in ('GENERATION_REQUESTED', 'GENERATION_LAUNCHED', 'ENCRYPTION_REQUESTED', 'ENCRYPTION_LAUNCHED')
+    ) in_flight
+    where position > 1
+), recorded as (
+    insert into bundle_data_fix (bundle_id, migration, previous_status, status, reason)
+    select id, 'V4', status, 'BUNDLE_ERROR', 'Older duplicate of another in-flight bundle of the same application'
+    from duplicates
+    returning bundle_id
+)
+update bundle
+set status = 'BUNDLE_ERROR', updated_at = now()
+where id in (select bundle_id from recorded);
+
+create unique index bundle_in_flight_application_uidx on bundle (application_id, application_version, platform_name, firmware_version)
+    where status in ('GENERATION_REQUESTED', 'GENERATION_LAUNCHED', 'ENCRYPTION_REQUESTED', 'ENCRYPTION_LAUNCHED');
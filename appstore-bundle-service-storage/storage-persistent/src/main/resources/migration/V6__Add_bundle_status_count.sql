@@ -0,0 +1,54 @@
+--
+-- If not stated otherwise in this file or this component's LICENSE file the
+-- following copyright and licenses apply:
+--
+-- Copyright 2023 Liberty Global Technology Services BV
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+create table bundle_status_count (
+    platform_name VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    bundle_count BIGINT NOT NULL,
+    PRIMARY KEY (platform_name, status)
+);
+
+-- Counter rows are always changed in (platform_name, status) order so that concurrent transitions cannot deadlock.
+create function bundle_status_count_update() returns trigger as $$
+begin
+    insert into bundle_status_count (platform_name, status, bundle_count)
+    select platform_name, status, sum(delta)
+    from (
+        select new.platform_name as platform_name, new.status as status, 1 as delta where tg_op in ('INSERT', 'UPDATE')
+        union all
+        select old.platform_name, old.status, -1 where tg_op in ('UPDATE', 'DELETE')
+    ) changes
+    group by platform_name, status
+    having sum(delta) <> 0
+    order by platform_name, status
+    on conflict (platform_name, status) do update set bundle_count = bundle_status_count.bundle_count + excluded.bundle_count;
+    return null;
+end;
+$$ language plpgsql;
+
+lock table bundle in share row exclusive mode;
+
+create trigger bundle_status_count_trigger
+    after insert or delete or update of platform_name, status on bundle
+    for each row execute function bundle_status_count_update();
+
+insert into bundle_status_count (platform_name, status, bundle_count)
+select platform_name, status, count(*)
+from bundle
+group by platform_name, status;
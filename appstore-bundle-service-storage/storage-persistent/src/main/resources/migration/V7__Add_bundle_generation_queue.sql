@@ -0,0 +1,33 @@
+--
+-- If not stated otherwise in this file or this component's LICENSE file the
+-- following copyright and licenses apply:
+--
+-- Copyright 2023 Liberty Global Technology Services BV
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Queued generations are deliberately left out of bundle_in_flight_application_uidx: a queued bundle only becomes in
+-- flight once an instance claims it from the queue.
+alter table bundle drop constraint bundle_status_check;
+alter table bundle add constraint bundle_status_check
+    check (status in ('GENERATION_QUEUED', 'GENERATION_REQUESTED', 'GENERATION_LAUNCHED', 'GENERATION_COMPLETED', 'ENCRYPTION_REQUESTED', 'ENCRYPTION_LAUNCHED', 'ENCRYPTION_COMPLETED', 'BUNDLE_ERROR'));
+
+create table bundle_generation_queue (
+    bundle_id UUID NOT NULL PRIMARY KEY REFERENCES bundle (id) ON DELETE CASCADE,
+    tenant VARCHAR(255) NOT NULL,
+    maintainer_code VARCHAR(255) NOT NULL,
+    oci_image_url TEXT NOT NULL,
+    encrypt BOOLEAN NOT NULL,
+    queued_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,41 @@
+--
+-- If not stated otherwise in this file or this component's LICENSE file the
+-- following copyright and licenses apply:
+--
+-- Copyright 2023 Liberty Global Technology Services BV
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+-- http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+create table prewarm_job (
+    id UUID NOT NULL PRIMARY KEY,
+    platform_name VARCHAR(255) NOT NULL,
+    firmware_version VARCHAR(255) NOT NULL,
+    skipped INTEGER NOT NULL DEFAULT 0,
+    queued INTEGER NOT NULL DEFAULT 0,
+    not_found INTEGER NOT NULL DEFAULT 0,
+    failed INTEGER NOT NULL DEFAULT 0,
+    started_at TIMESTAMPTZ NOT NULL,
+    finished_at TIMESTAMPTZ,
+    heartbeat_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+create index prewarm_job_running_idx on prewarm_job (heartbeat_at) where finished_at is null;
+
+create table prewarm_job_application (
+    prewarm_job_id UUID NOT NULL REFERENCES prewarm_job (id) ON DELETE CASCADE,
+    position INTEGER NOT NULL,
+    application_id VARCHAR(255) NOT NULL,
+    application_version VARCHAR(255) NOT NULL,
+    PRIMARY KEY (prewarm_job_id, position)
+);